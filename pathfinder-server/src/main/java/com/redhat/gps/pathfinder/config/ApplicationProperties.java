@@ -33,4 +33,117 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Scoring scoring = new Scoring();
+
+    private final Cache cache = new Cache();
+
+    private final Db db = new Db();
+
+    public Scoring getScoring() {
+        return scoring;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Db getDb() {
+        return db;
+    }
+
+    /**
+     * How an assessment's answers are rolled up into an overall RAG status
+     */
+    public static class Scoring {
+
+        // fraction of AMBER answers above which an assessment without enough REDs is rated AMBER
+        private double amberThreshold = 0.3;
+
+        // number of RED answers at which the assessment is rated RED
+        private int redThreshold = 1;
+
+        public double getAmberThreshold() {
+            return amberThreshold;
+        }
+
+        public void setAmberThreshold(double amberThreshold) {
+            this.amberThreshold = amberThreshold;
+        }
+
+        public int getRedThreshold() {
+            return redThreshold;
+        }
+
+        public void setRedThreshold(int redThreshold) {
+            this.redThreshold = redThreshold;
+        }
+    }
+
+    /**
+     * Bounds of each of the domain caches, see CacheConfiguration
+     */
+    public static class Cache {
+
+        // total weight held by each cache, a customer weighs 1 plus its number of applications
+        private long maximumWeight = 20000;
+
+        // safety net for writes that don't go through the api (ie. directly to mongo)
+        private int timeToLiveSeconds = 600;
+
+        // how long a token's resolved roles are trusted, bounds how long a member change made through another
+        // instance, which can't reach this instance's cache, goes unseen. See JwtUserDetailsCache
+        private int userDetailsTimeToLiveSeconds = 60;
+
+        public long getMaximumWeight() {
+            return maximumWeight;
+        }
+
+        public void setMaximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
+        public int getTimeToLiveSeconds() {
+            return timeToLiveSeconds;
+        }
+
+        public void setTimeToLiveSeconds(int timeToLiveSeconds) {
+            this.timeToLiveSeconds = timeToLiveSeconds;
+        }
+
+        public int getUserDetailsTimeToLiveSeconds() {
+            return userDetailsTimeToLiveSeconds;
+        }
+
+        public void setUserDetailsTimeToLiveSeconds(int userDetailsTimeToLiveSeconds) {
+            this.userDetailsTimeToLiveSeconds = userDetailsTimeToLiveSeconds;
+        }
+    }
+
+    /**
+     * Per request accounting of the mongo commands, see MongoCommandMetrics
+     */
+    public static class Db {
+
+        // mongo commands a request can make before it's logged as a warning
+        private int queryBudget = 50;
+
+        // whether the count is sent back in X-Db-Query-Count, not something to tell the world in production
+        private boolean exposeQueryCount = false;
+
+        public int getQueryBudget() {
+            return queryBudget;
+        }
+
+        public void setQueryBudget(int queryBudget) {
+            this.queryBudget = queryBudget;
+        }
+
+        public boolean isExposeQueryCount() {
+            return exposeQueryCount;
+        }
+
+        public void setExposeQueryCount(boolean exposeQueryCount) {
+            this.exposeQueryCount = exposeQueryCount;
+        }
+    }
 }
@@ -0,0 +1,86 @@
+package com.redhat.gps.pathfinder.config;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.service.DomainCacheService;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One Caffeine cache per name in DomainCacheService, bounded by weight rather than entry count since a customer with
+ * thousands of applications costs far more to hold than an empty one. Hit, miss and eviction counts are published to
+ * the MetricRegistry as cache.&lt;name&gt;.*
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    @Bean
+    public CacheManager cacheManager(ApplicationProperties properties, MetricRegistry metricRegistry) {
+        ApplicationProperties.Cache bounds = properties.getCache();
+        List<CaffeineCache> caches = new ArrayList<>();
+        for (String name : DomainCacheService.CACHE_NAMES) {
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> cache = Caffeine.newBuilder()
+                .maximumWeight(bounds.getMaximumWeight())
+                .weigher((Object key, Object value) -> weigh(value))
+                .expireAfterWrite(bounds.getTimeToLiveSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+            registerMetrics(metricRegistry, name, cache);
+            caches.add(new CaffeineCache(name, cache, false));
+        }
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+
+    static int weigh(Object value) {
+        if (value instanceof Customer) {
+            Customer customer = (Customer) value;
+            return 1 + (null == customer.getApplications() ? 0 : customer.getApplications().size());
+        }
+        if (value instanceof Collection) return Math.max(1, ((Collection<?>) value).size());
+        return 1;
+    }
+
+    private static void registerMetrics(MetricRegistry metricRegistry, String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+        metricRegistry.register(MetricRegistry.name("cache", name, "hits"), (Gauge<Long>) () -> cache.stats().hitCount());
+        metricRegistry.register(MetricRegistry.name("cache", name, "misses"), (Gauge<Long>) () -> cache.stats().missCount());
+        metricRegistry.register(MetricRegistry.name("cache", name, "evictions"), (Gauge<Long>) () -> cache.stats().evictionCount());
+        metricRegistry.register(MetricRegistry.name("cache", name, "hit-ratio"), (Gauge<Double>) () -> cache.stats().hitRate());
+        metricRegistry.register(MetricRegistry.name("cache", name, "size"), (Gauge<Long>) cache::estimatedSize);
+    }
+}
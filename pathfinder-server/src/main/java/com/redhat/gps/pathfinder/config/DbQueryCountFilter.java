@@ -0,0 +1,80 @@
+package com.redhat.gps.pathfinder.config;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Counts the mongo commands made while handling each request, so N+1 patterns (a lazy DBRef resolved per item) show
+ * up before the latency does. A request going over application.db.query-budget is logged as a warning with the
+ * command it repeated most, and with application.db.expose-query-count the count is returned in X-Db-Query-Count.
+ * <p>
+ * The header goes out with the response headers, so for responses streamed as they're produced (eg. the export) it
+ * holds the commands made up to the first byte; the warning always has the full count.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DbQueryCountFilter extends OncePerRequestFilter {
+    private final Logger log = LoggerFactory.getLogger(DbQueryCountFilter.class);
+
+    public static final String QUERY_COUNT_HEADER = "X-Db-Query-Count";
+
+    private final ApplicationProperties.Db properties;
+
+    public DbQueryCountFilter(ApplicationProperties properties) {
+        this.properties = properties.getDb();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        MongoCommandMetrics.QueryCount count = MongoCommandMetrics.begin();
+        try {
+            chain.doFilter(request, properties.isExposeQueryCount() ? new OnCommittedResponseWrapper(response) {
+                @Override
+                protected void onResponseCommitted() {
+                    setIntHeader(QUERY_COUNT_HEADER, count.getTotal());
+                }
+            } : response);
+            // small responses are only committed by the container, after this
+            if (properties.isExposeQueryCount() && !response.isCommitted()) response.setIntHeader(QUERY_COUNT_HEADER, count.getTotal());
+        } finally {
+            MongoCommandMetrics.end();
+            if (count.getTotal() > properties.getQueryBudget()) {
+                log.warn("{} {} made {} mongo commands (budget {}), most repeated {}", request.getMethod(), request.getRequestURI(),
+                        count.getTotal(), properties.getQueryBudget(), count.getMostRepeated());
+            }
+        }
+    }
+}
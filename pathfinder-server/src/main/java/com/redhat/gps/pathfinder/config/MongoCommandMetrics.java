@@ -0,0 +1,137 @@
+package com.redhat.gps.pathfinder.config;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every command the mongo driver sends, as mongo.&lt;collection&gt;.&lt;command&gt; (eg. mongo.applications.find),
+ * and counts the commands made by the current request when one is being tracked (see DbQueryCountFilter).
+ * <p>
+ * The driver is synchronous so the listener is called on the thread issuing the command, which is what lets the
+ * count be kept in a thread local. Work handed to other threads (jobs, async) isn't attributed to the request.
+ */
+@Component
+public class MongoCommandMetrics implements CommandListener {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private final MetricRegistry metricRegistry;
+    private final Counter failures;
+    // metric name of each command in flight, since only the started event carries the command document
+    private final Map<Integer, String> inFlight = new ConcurrentHashMap<>();
+
+    public MongoCommandMetrics(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        this.failures = metricRegistry.counter("mongo.failures");
+    }
+
+    /**
+     * Start counting the commands made on this thread
+     */
+    public static QueryCount begin() {
+        QueryCount count = new QueryCount();
+        CURRENT.set(count);
+        return count;
+    }
+
+    /**
+     * Stop counting the commands made on this thread
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String collection = collectionOf(event.getCommandName(), event.getCommand(), event.getDatabaseName());
+        inFlight.put(event.getRequestId(), MetricRegistry.name("mongo", collection, event.getCommandName()));
+        QueryCount count = CURRENT.get();
+        if (null != count) count.add(collection + "." + event.getCommandName());
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        String name = inFlight.remove(event.getRequestId());
+        if (null != name) metricRegistry.timer(name).update(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        inFlight.remove(event.getRequestId());
+        failures.inc();
+    }
+
+    /**
+     * @return the collection the command is on, the database for commands that aren't on a collection (eg. isMaster)
+     */
+    static String collectionOf(String commandName, BsonDocument command, String databaseName) {
+        BsonValue value = command.get("getMore".equals(commandName) ? "collection" : commandName);
+        return null != value && value.isString() ? value.asString().getValue() : databaseName;
+    }
+
+    /**
+     * The commands made while handling one request
+     */
+    public static final class QueryCount {
+        private int total;
+        private final Map<String, Integer> byCommand = new HashMap<>();
+
+        private void add(String command) {
+            total++;
+            byCommand.merge(command, 1, Integer::sum);
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return the command on a collection made the most times, with its count, eg. "applications.find x 120"
+         */
+        public String getMostRepeated() {
+            return byCommand.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(e -> e.getKey() + " x " + e.getValue())
+                    .orElse("none");
+        }
+
+        @Override
+        public String toString() {
+            return total + " " + byCommand;
+        }
+    }
+}
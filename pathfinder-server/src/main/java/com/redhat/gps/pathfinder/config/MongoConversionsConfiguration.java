@@ -0,0 +1,42 @@
+package com.redhat.gps.pathfinder.config;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.repository.AssessmentsConverters;
+import com.redhat.gps.pathfinder.web.api.SurveyEngine;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+
+import java.util.Arrays;
+
+@Configuration
+public class MongoConversionsConfiguration {
+
+    @Bean
+    public CustomConversions customConversions(SurveyEngine surveyEngine) {
+        return new CustomConversions(Arrays.asList(
+                new AssessmentsConverters.AssessmentsWriter(() -> surveyEngine.current().getCompiledSurvey()),
+                new AssessmentsConverters.AssessmentsReader(surveyEngine::find)));
+    }
+}
@@ -50,6 +50,8 @@ public class OSEMongoDBConfig {
 
     private final Environment environment;
 
+    private final MongoCommandMetrics commandMetrics;
+
     @Value("${database-user}")
     private String username;
 
@@ -68,9 +70,10 @@ public class OSEMongoDBConfig {
     @Value("${dbhostport:27017}")
     private int dbport;
 
-    public OSEMongoDBConfig(ObjectProvider<MongoClientOptions> options, Environment environment) {
+    public OSEMongoDBConfig(ObjectProvider<MongoClientOptions> options, Environment environment, MongoCommandMetrics commandMetrics) {
         this.options = options.getIfAvailable();
         this.environment = environment;
+        this.commandMetrics = commandMetrics;
     }
 
     protected String getDatabaseName() {
@@ -119,7 +122,7 @@ public class OSEMongoDBConfig {
                     this.password.toCharArray()));
         }
 
-        MongoClientURI dburi = new MongoClientURI(this.createMongoURL());
+        MongoClientURI dburi = new MongoClientURI(this.createMongoURL(), MongoClientOptions.builder().addCommandListener(commandMetrics));
 
         return new MongoClient(dburi);
     }
@@ -0,0 +1,114 @@
+package com.redhat.gps.pathfinder.config;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import io.github.jhipster.config.JHipsterProperties;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Histogram;
+import io.prometheus.client.dropwizard.DropwizardExports;
+import io.prometheus.client.exporter.MetricsServlet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Prometheus exposition, at jhipster.metrics.prometheus.endpoint (/management/prometheus).
+ * <p>
+ * The Dropwizard registry is bridged as is, so everything already published there (@Timed, jobs, mongo commands, ...)
+ * is scraped too. Its timers are summaries though, whose quantiles can't be aggregated across pods, so each api
+ * operation is also observed in a native histogram, pathfinder_api_request_seconds.
+ */
+@Configuration
+public class PrometheusConfiguration extends WebMvcConfigurerAdapter {
+    private final Logger log = LoggerFactory.getLogger(PrometheusConfiguration.class);
+
+    private final CollectorRegistry collectorRegistry = new CollectorRegistry();
+
+    private final Histogram apiRequests = Histogram.build()
+            .name("pathfinder_api_request_seconds")
+            .help("Time taken to handle an api request, by operation")
+            .labelNames("operation", "method", "status")
+            .register(collectorRegistry);
+
+    public PrometheusConfiguration(MetricRegistry metricRegistry) {
+        collectorRegistry.register(new DropwizardExports(metricRegistry));
+    }
+
+    @Bean
+    public CollectorRegistry collectorRegistry() {
+        return collectorRegistry;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "jhipster.metrics.prometheus", name = "enabled")
+    public ServletRegistrationBean prometheusServlet(JHipsterProperties jHipsterProperties) {
+        String endpoint = jHipsterProperties.getMetrics().getPrometheus().getEndpoint();
+        log.debug("Initializing Metrics Prometheus endpoint at {}", endpoint);
+        return new ServletRegistrationBean(new MetricsServlet(collectorRegistry), endpoint);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ApiRequestTimer(apiRequests)).addPathPatterns("/api/**");
+    }
+
+    /**
+     * Labels requests with the name of the controller method, ie. the swagger operation id, so the label stays bounded
+     * whatever the ids in the path
+     */
+    private static final class ApiRequestTimer extends HandlerInterceptorAdapter {
+        private static final String START = ApiRequestTimer.class.getName() + ".start";
+
+        private final Histogram requests;
+
+        private ApiRequestTimer(Histogram requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            request.setAttribute(START, System.nanoTime());
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+            Object start = request.getAttribute(START);
+            if (null == start || !(handler instanceof HandlerMethod)) return;
+            String status = null != ex ? "500" : Integer.toString(response.getStatus());
+            requests.labels(((HandlerMethod) handler).getMethod().getName(), request.getMethod(), status)
+                    .observe((System.nanoTime() - (Long) start) / 1e9);
+        }
+    }
+}
@@ -72,6 +72,13 @@ public class ApplicationAssessmentReview implements Serializable {
     @DBRef(lazy = true)
     private Applications Application;
 
+    // scored when the review is written, from the assessment it was made against
+    @Field("Confidence")
+    private Integer confidence;
+
+    @Field("Rag")
+    private String rag;
+
     public ApplicationAssessmentReview() {}
     
     public ApplicationAssessmentReview(String ReviewDate, com.redhat.gps.pathfinder.domain.Assessments Assessments, String ReviewDecision, String ReviewEstimate, String ReviewNotes, String WorkPriority, String BusinessPriority) {
@@ -148,6 +155,25 @@ public class ApplicationAssessmentReview implements Serializable {
         BusinessPriority = businessPriority;
     }
 
+    public Integer getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(Integer confidence) {
+        this.confidence = confidence;
+    }
+
+    /**
+     * @return overall RED, AMBER or GREEN status of the reviewed assessment
+     */
+    public String getRag() {
+        return rag;
+    }
+
+    public void setRag(String rag) {
+        this.rag = rag;
+    }
+
 
     @Override
     public boolean equals(Object o) {
@@ -181,6 +207,8 @@ public class ApplicationAssessmentReview implements Serializable {
             ", ReviewNotes='" + ReviewNotes + '\'' +
             ", WorkPriority='" + WorkPriority + '\'' +
             ", BusinessPriority='" + BusinessPriority + '\'' +
+            ", confidence=" + confidence +
+            ", rag='" + rag + '\'' +
             '}';
     }
 }
@@ -22,6 +22,7 @@ package com.redhat.gps.pathfinder.domain;
  * #L%
  */
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Field;
@@ -56,9 +57,17 @@ public class Applications implements Serializable {
     @Field("stereotype")
     private String stereotype;
 
+    // owning customer, so the customer's applications can be filtered, sorted and paged in one indexed query
+    @Field("customerId")
+    private String customerId;
+
+    // full history, only resolved when accessed. Screens that just need the latest assessment use latestAssessment
     @DBRef(lazy = true)
     private List<Assessments> Assessments;
 
+    @Field("latestAssessment")
+    private AssessmentDigest latestAssessment;
+
     @DBRef(lazy = true)
     private ApplicationAssessmentReview review;
 
@@ -70,8 +79,8 @@ public class Applications implements Serializable {
             ", Description='" + Description + '\'' +
             ", Owner='" + owner + '\'' +
             ", stereotype='" + stereotype + '\'' +
-            ", Assessments=" + Assessments +
-            ", review=" + review +
+            ", customerId='" + customerId + '\'' +
+            ", latestAssessment=" + latestAssessment +
             '}';
     }
 
@@ -84,14 +93,12 @@ public class Applications implements Serializable {
             Objects.equals(name, that.name) &&
             Objects.equals(Description, that.Description) &&
             Objects.equals(owner, that.owner) &&
-            Objects.equals(stereotype, that.stereotype) &&
-            Objects.equals(Assessments, that.Assessments) &&
-            Objects.equals(review, that.review);
+            Objects.equals(stereotype, that.stereotype);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, Description, owner, stereotype, Assessments, review);
+        return Objects.hash(id, name, Description, owner, stereotype);
     }
 
     public String getStereotype() {
@@ -104,6 +111,14 @@ public class Applications implements Serializable {
 
 
 
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
     public List<Assessments> getAssessments() {
         return Assessments;
     }
@@ -112,6 +127,22 @@ public class Applications implements Serializable {
         this.Assessments = Assessments;
     }
 
+    public AssessmentDigest getLatestAssessment() {
+        return latestAssessment;
+    }
+
+    public void setLatestAssessment(AssessmentDigest latestAssessment) {
+        this.latestAssessment = latestAssessment;
+    }
+
+    /**
+     * Answered from the digest where there is one, so the assessment history isn't resolved
+     */
+    @JsonIgnore
+    public boolean isAssessed() {
+        return latestAssessment != null || (Assessments != null && !Assessments.isEmpty());
+    }
+
     public String getId() {
         return id;
     }
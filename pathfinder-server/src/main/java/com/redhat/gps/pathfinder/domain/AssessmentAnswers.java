@@ -0,0 +1,162 @@
+package com.redhat.gps.pathfinder.domain;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.web.api.CompiledSurvey;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact form of an assessment's answers: one byte per radiogroup question of the survey it was answered against
+ * (the chosen choice position + 1, 0 when unanswered) plus the free-form entries (notes, business priority etc.)
+ * that don't map to a survey choice.
+ * Ratings and answer texts are looked up in the compiled survey on demand rather than copied into every document.
+ */
+public final class AssessmentAnswers {
+
+    private final String surveyVersion;
+    private final CompiledSurvey survey;
+    private final byte[] choices;
+    private final Map<String, String> extras;
+
+    /**
+     * @param survey - the compiled survey matching surveyVersion, or null if it is no longer known
+     */
+    public AssessmentAnswers(String surveyVersion, CompiledSurvey survey, byte[] choices, Map<String, String> extras) {
+        this.surveyVersion = surveyVersion;
+        this.survey = survey;
+        this.choices = choices;
+        this.extras = null == extras ? Collections.emptyMap() : Collections.unmodifiableMap(extras);
+    }
+
+    /**
+     * @param results - answers keyed on question name, as posted by the survey (ie. "3-GREEN")
+     */
+    public static AssessmentAnswers encode(CompiledSurvey survey, Map<String, String> results) {
+        byte[] choices = new byte[survey.size()];
+        Map<String, String> extras = new HashMap<>();
+        if (null != results) {
+            for (Map.Entry<String, String> e : results.entrySet()) {
+                int choice = choiceOf(survey, e.getKey(), e.getValue());
+                if (choice < 0 || choice > 254) {
+                    extras.put(e.getKey(), e.getValue());
+                } else {
+                    choices[survey.indexOf(e.getKey())] = (byte) (choice + 1);
+                }
+            }
+        }
+        return new AssessmentAnswers(survey.getVersion(), survey, choices, extras);
+    }
+
+    // only values that re-encode to exactly the same string are packed, anything else is kept verbatim
+    private static int choiceOf(CompiledSurvey survey, String name, String value) {
+        int q = survey.indexOf(name);
+        if (q < 0 || null == value) return -1;
+        int dash = value.indexOf('-');
+        if (dash < 0) return -1;
+        int choice = survey.choiceIndexOf(q, value.substring(0, dash));
+        if (choice < 0 || !value.equals(survey.getOrdinal(q, choice) + "-" + survey.getRating(q, choice))) return -1;
+        return choice;
+    }
+
+    public String getSurveyVersion() {
+        return surveyVersion;
+    }
+
+    public CompiledSurvey getSurvey() {
+        return survey;
+    }
+
+    /**
+     * @return true if the answers were encoded against the given survey, so question positions can be used directly
+     */
+    public boolean isEncodedWith(CompiledSurvey other) {
+        return null != survey && null != other && surveyVersion.equals(other.getVersion());
+    }
+
+    public byte[] getEncoded() {
+        return choices;
+    }
+
+    public Map<String, String> getExtras() {
+        return extras;
+    }
+
+    /**
+     * @return the chosen choice position for the question at the given survey position, or -1 if unanswered
+     */
+    public int getChoice(int question) {
+        return question < choices.length ? (choices[question] & 0xff) - 1 : -1;
+    }
+
+    public int getAnsweredCount() {
+        int count = 0;
+        for (byte b : choices) if (b != 0) count++;
+        return count;
+    }
+
+    /**
+     * @return number of entries in the equivalent results map
+     */
+    public int size() {
+        return getAnsweredCount() + extras.size();
+    }
+
+    public String getRating(int question) {
+        int choice = getChoice(question);
+        return choice < 0 ? null : survey.getRating(question, choice);
+    }
+
+    public String getAnswerText(int question) {
+        int choice = getChoice(question);
+        return choice < 0 ? null : survey.getAnswerText(question, choice);
+    }
+
+    /**
+     * @return the answers in the original "ordinal-rating" results form. Without the survey only the extras are known
+     */
+    public HashMap<String, String> toResults() {
+        HashMap<String, String> results = new HashMap<>(extras);
+        if (null == survey) return results;
+        for (int q = 0; q < choices.length; q++) {
+            int choice = getChoice(q);
+            if (choice >= 0) results.put(survey.getName(q), survey.getOrdinal(q, choice) + "-" + survey.getRating(q, choice));
+        }
+        return results;
+    }
+
+    /**
+     * @return the text of each selected answer keyed on question name, ie. what the customer saw
+     */
+    public HashMap<String, String> toAnswerTexts() {
+        HashMap<String, String> texts = new HashMap<>();
+        if (null == survey) return texts;
+        for (int q = 0; q < choices.length; q++) {
+            int choice = getChoice(q);
+            if (choice >= 0) texts.put(survey.getName(q), survey.getAnswerText(q, choice));
+        }
+        return texts;
+    }
+}
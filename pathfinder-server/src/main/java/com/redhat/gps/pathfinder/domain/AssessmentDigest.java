@@ -0,0 +1,199 @@
+package com.redhat.gps.pathfinder.domain;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What list and summary screens need from an application's latest assessment, embedded in the Applications document
+ * so they don't have to resolve the assessment history. Maintained by the AssessmentDigestService.
+ */
+public class AssessmentDigest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Field("assessmentId")
+    private String assessmentId;
+
+    @Field("datetime")
+    private String datetime;
+
+    @Field("red")
+    private int red;
+
+    @Field("amber")
+    private int amber;
+
+    @Field("green")
+    private int green;
+
+    @Field("unknown")
+    private int unknown;
+
+    // answers recorded, including notes and other free-form fields
+    @Field("answered")
+    private int answered;
+
+    @Field("incomplete")
+    private int incomplete;
+
+    @Field("confidence")
+    private int confidence;
+
+    @Field("dependenciesIN")
+    private List<String> depsIN = new ArrayList<>();
+
+    @Field("dependenciesOUT")
+    private List<String> depsOUT = new ArrayList<>();
+
+    public String getAssessmentId() {
+        return assessmentId;
+    }
+
+    public void setAssessmentId(String assessmentId) {
+        this.assessmentId = assessmentId;
+    }
+
+    public String getDatetime() {
+        return datetime;
+    }
+
+    public void setDatetime(String datetime) {
+        this.datetime = datetime;
+    }
+
+    public int getRed() {
+        return red;
+    }
+
+    public void setRed(int red) {
+        this.red = red;
+    }
+
+    public int getAmber() {
+        return amber;
+    }
+
+    public void setAmber(int amber) {
+        this.amber = amber;
+    }
+
+    public int getGreen() {
+        return green;
+    }
+
+    public void setGreen(int green) {
+        this.green = green;
+    }
+
+    public int getUnknown() {
+        return unknown;
+    }
+
+    public void setUnknown(int unknown) {
+        this.unknown = unknown;
+    }
+
+    public int getAnswered() {
+        return answered;
+    }
+
+    public void setAnswered(int answered) {
+        this.answered = answered;
+    }
+
+    public int getIncomplete() {
+        return incomplete;
+    }
+
+    public void setIncomplete(int incomplete) {
+        this.incomplete = incomplete;
+    }
+
+    public int getConfidence() {
+        return confidence;
+    }
+
+    public void setConfidence(int confidence) {
+        this.confidence = confidence;
+    }
+
+    public List<String> getDepsIN() {
+        return depsIN;
+    }
+
+    public void setDepsIN(List<String> depsIN) {
+        this.depsIN = depsIN;
+    }
+
+    public List<String> getDepsOUT() {
+        return depsOUT;
+    }
+
+    public void setDepsOUT(List<String> depsOUT) {
+        this.depsOUT = depsOUT;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AssessmentDigest that = (AssessmentDigest) o;
+        return red == that.red &&
+            amber == that.amber &&
+            green == that.green &&
+            unknown == that.unknown &&
+            answered == that.answered &&
+            incomplete == that.incomplete &&
+            confidence == that.confidence &&
+            Objects.equals(assessmentId, that.assessmentId) &&
+            Objects.equals(datetime, that.datetime) &&
+            Objects.equals(depsIN, that.depsIN) &&
+            Objects.equals(depsOUT, that.depsOUT);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(assessmentId, datetime, red, amber, green, unknown, answered, incomplete, confidence, depsIN, depsOUT);
+    }
+
+    @Override
+    public String toString() {
+        return "AssessmentDigest{" +
+            "assessmentId='" + assessmentId + '\'' +
+            ", datetime='" + datetime + '\'' +
+            ", red=" + red +
+            ", amber=" + amber +
+            ", green=" + green +
+            ", unknown=" + unknown +
+            ", answered=" + answered +
+            ", incomplete=" + incomplete +
+            ", confidence=" + confidence +
+            '}';
+    }
+}
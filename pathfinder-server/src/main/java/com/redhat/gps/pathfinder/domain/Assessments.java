@@ -22,6 +22,7 @@ package com.redhat.gps.pathfinder.domain;
  * #L%
  */
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.redhat.gps.pathfinder.web.api.SurveyPayload;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,9 +57,13 @@ public class Assessments implements Serializable {
     private HashMap<String, String> results = new HashMap<>();
 
     //qanswers stores the text value of the selected answer i.e. what text did the customer see
-    @NotNull
+    //only present on documents written before the compact encoding, newer ones resolve it from the survey
     @Field("qanswers")
-    private HashMap<String, String> qanswers = new HashMap<>();
+    private HashMap<String, String> qanswers;
+
+    //compact form the assessment is persisted in, see AssessmentsConverters
+    @Transient
+    private AssessmentAnswers answers;
 
     @Field("dependenciesIN")
     private List<String> depsIN = new ArrayList<String>();
@@ -72,7 +77,7 @@ public class Assessments implements Serializable {
         if (o == null || getClass() != o.getClass()) return false;
         Assessments that = (Assessments) o;
         return Objects.equals(id, that.id) &&
-            Objects.equals(results, that.results) &&
+            Objects.equals(getResults(), that.getResults()) &&
             Objects.equals(depsIN, that.depsIN) &&
             Objects.equals(depsOUT, that.depsOUT) &&
             Objects.equals(datetime, that.datetime);
@@ -80,14 +85,14 @@ public class Assessments implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, results, depsIN, depsOUT, datetime);
+        return Objects.hash(id, getResults(), depsIN, depsOUT, datetime);
     }
 
     @Override
     public String toString() {
         return "Assessments{" +
             "id='" + id + '\'' +
-            ", results=" + results +
+            ", results=" + getResults() +
             ", depsIN=" + depsIN +
             ", depsOUT=" + depsOUT +
             ", datetime='" + datetime + '\'' +
@@ -113,12 +118,33 @@ public class Assessments implements Serializable {
         this.id = id;
     }
 
+    /**
+     * Materialised on first use when the assessment was read in its compact form, treat it as read only in that case
+     * and use setResults to change the answers.
+     */
     public HashMap<String, String> getResults() {
+        if (null == results && null != answers) results = answers.toResults();
         return results;
     }
 
     public void setResults(HashMap<String, String> resultsIn) {
         this.results = resultsIn;
+        this.answers = null;
+    }
+
+    @JsonIgnore
+    public AssessmentAnswers getAnswers() {
+        return answers;
+    }
+
+    public void setAnswers(AssessmentAnswers answers) {
+        this.answers = answers;
+        this.results = null;
+    }
+
+    @JsonIgnore
+    public String getSurveyVersion() {
+        return null == answers ? null : answers.getSurveyVersion();
     }
 
     public List<String> getDepsIN() {
@@ -138,6 +164,7 @@ public class Assessments implements Serializable {
     }
 
     public HashMap<String, String> getQanswers() {
+        if (null == qanswers && null != answers) return answers.toAnswerTexts();
         return qanswers;
     }
 
@@ -70,6 +70,9 @@ public class Customer implements Serializable {
     @DBRef(lazy = true)
     private List<Applications> Applications;
 
+    @Field("summary")
+    private CustomerSummary summary;
+
     public String getId() {
         return id;
     }
@@ -142,6 +145,14 @@ public class Customer implements Serializable {
       this.members = members;
     }
 
+    public CustomerSummary getSummary() {
+        return summary;
+    }
+
+    public void setSummary(CustomerSummary summary) {
+        this.summary = summary;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
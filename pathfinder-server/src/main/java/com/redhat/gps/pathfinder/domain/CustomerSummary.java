@@ -0,0 +1,130 @@
+package com.redhat.gps.pathfinder.domain;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Portfolio counters embedded in the Customer document so the customer list doesn't need to walk the object graph.
+ * Maintained incrementally by the CustomerSummaryService.
+ */
+public class CustomerSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Field("applications")
+    private int applications;
+
+    @Field("targetApplications")
+    private int targetApplications;
+
+    @Field("assessed")
+    private int assessed;
+
+    @Field("reviewed")
+    private int reviewed;
+
+    @Field("members")
+    private int members;
+
+    public CustomerSummary() {}
+
+    public CustomerSummary(int applications, int targetApplications, int assessed, int reviewed, int members) {
+        this.applications = applications;
+        this.targetApplications = targetApplications;
+        this.assessed = assessed;
+        this.reviewed = reviewed;
+        this.members = members;
+    }
+
+    public int getApplications() {
+        return applications;
+    }
+
+    public void setApplications(int applications) {
+        this.applications = applications;
+    }
+
+    public int getTargetApplications() {
+        return targetApplications;
+    }
+
+    public void setTargetApplications(int targetApplications) {
+        this.targetApplications = targetApplications;
+    }
+
+    public int getAssessed() {
+        return assessed;
+    }
+
+    public void setAssessed(int assessed) {
+        this.assessed = assessed;
+    }
+
+    public int getReviewed() {
+        return reviewed;
+    }
+
+    public void setReviewed(int reviewed) {
+        this.reviewed = reviewed;
+    }
+
+    public int getMembers() {
+        return members;
+    }
+
+    public void setMembers(int members) {
+        this.members = members;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerSummary that = (CustomerSummary) o;
+        return applications == that.applications &&
+            targetApplications == that.targetApplications &&
+            assessed == that.assessed &&
+            reviewed == that.reviewed &&
+            members == that.members;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(applications, targetApplications, assessed, reviewed, members);
+    }
+
+    @Override
+    public String toString() {
+        return "CustomerSummary{" +
+            "applications=" + applications +
+            ", targetApplications=" + targetApplications +
+            ", assessed=" + assessed +
+            ", reviewed=" + reviewed +
+            ", members=" + members +
+            '}';
+    }
+}
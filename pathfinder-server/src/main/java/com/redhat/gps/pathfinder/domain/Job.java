@@ -0,0 +1,275 @@
+package com.redhat.gps.pathfinder.domain;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A long-running operation (import, export, copy, delete) handed to the JobService, with its state and progress.
+ * Kept in mongo so it can be polled from any instance and picked up again after the instance running it goes away.
+ */
+@Document(collection = "job")
+public class Job implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    @Id
+    private String id;
+
+    @Field("type")
+    private String type;
+
+    @Field("status")
+    private Status status;
+
+    // username of the member that submitted the job
+    @Field("owner")
+    private String owner;
+
+    @Field("customerId")
+    private String customerId;
+
+    @Field("parameters")
+    private Map<String, Object> parameters;
+
+    @Field("result")
+    private Object result;
+
+    @Field("message")
+    private String message;
+
+    // progress, total is 0 while it's not known
+    @Field("done")
+    private long done;
+
+    @Field("total")
+    private long total;
+
+    @Field("cancelRequested")
+    private boolean cancelRequested;
+
+    // instance the job is queued or running on, and when that instance last confirmed it's still working on it
+    @JsonIgnore
+    @Field("instance")
+    private String instance;
+
+    @JsonIgnore
+    @Field("heartbeat")
+    private Date heartbeat;
+
+    // GridFS ids of the uploaded payload and of the file produced by the job
+    @JsonIgnore
+    @Field("inputFile")
+    private String inputFile;
+
+    @JsonIgnore
+    @Field("outputFile")
+    private String outputFile;
+
+    @Field("created")
+    private Date created;
+
+    @Field("started")
+    private Date started;
+
+    @Field("finished")
+    private Date finished;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(String customerId) {
+        this.customerId = customerId;
+    }
+
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    public void setParameters(Map<String, Object> parameters) {
+        this.parameters = parameters;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public void setResult(Object result) {
+        this.result = result;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public long getDone() {
+        return done;
+    }
+
+    public void setDone(long done) {
+        this.done = done;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public void setCancelRequested(boolean cancelRequested) {
+        this.cancelRequested = cancelRequested;
+    }
+
+    public String getInstance() {
+        return instance;
+    }
+
+    public void setInstance(String instance) {
+        this.instance = instance;
+    }
+
+    public Date getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(Date heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    public void setInputFile(String inputFile) {
+        this.inputFile = inputFile;
+    }
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    public void setOutputFile(String outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * @return true once the job has produced a file that can be downloaded
+     */
+    public boolean isOutputAvailable() {
+        return null != outputFile && Status.SUCCEEDED == status;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public void setStarted(Date started) {
+        this.started = started;
+    }
+
+    public Date getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Date finished) {
+        this.finished = finished;
+    }
+
+    @Override
+    public String toString() {
+        return "Job{" +
+                "id='" + id + '\'' +
+                ", type='" + type + '\'' +
+                ", status=" + status +
+                ", owner='" + owner + '\'' +
+                ", done=" + done +
+                ", total=" + total +
+                '}';
+    }
+}
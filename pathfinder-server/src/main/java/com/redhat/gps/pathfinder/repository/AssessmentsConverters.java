@@ -0,0 +1,166 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.redhat.gps.pathfinder.domain.AssessmentAnswers;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.web.api.CompiledSurvey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Persists Assessments in their compact form (survey version + one byte per question, see AssessmentAnswers)
+ * instead of the results/qanswers string maps, while still reading documents written in the old form.
+ * Answer texts are resolved from the survey, only those that differ from it (ie. the wording changed since the
+ * assessment was taken) are still stored in qanswers.
+ */
+public final class AssessmentsConverters {
+
+    private static final String ID = "_id";
+    private static final String SURVEY_VERSION = "surveyVersion";
+    private static final String ANSWERS = "answers";
+    private static final String EXTRAS = "extras";
+    private static final String RESULTS = "results";
+    private static final String QANSWERS = "qanswers";
+    private static final String DEPS_IN = "dependenciesIN";
+    private static final String DEPS_OUT = "dependenciesOUT";
+    private static final String DATETIME = "AssessmentDateTime";
+
+    private AssessmentsConverters() {
+    }
+
+    @WritingConverter
+    public static class AssessmentsWriter implements Converter<Assessments, DBObject> {
+
+        private final Supplier<CompiledSurvey> currentSurvey;
+
+        public AssessmentsWriter(Supplier<CompiledSurvey> currentSurvey) {
+            this.currentSurvey = currentSurvey;
+        }
+
+        @Override
+        public DBObject convert(Assessments source) {
+            // answers read in compact form are written back untouched, anything else is encoded against today's survey
+            AssessmentAnswers answers = source.getAnswers();
+            if (null == answers) answers = AssessmentAnswers.encode(currentSurvey.get(), source.getResults());
+
+            DBObject dbo = new BasicDBObject();
+            if (null != source.getId()) dbo.put(ID, source.getId());
+            dbo.put(SURVEY_VERSION, answers.getSurveyVersion());
+            dbo.put(ANSWERS, answers.getEncoded());
+            if (!answers.getExtras().isEmpty()) dbo.put(EXTRAS, new BasicDBObject(answers.getExtras()));
+            Map<String, String> texts = textsNotInSurvey(source.getQanswers(), answers);
+            if (!texts.isEmpty()) dbo.put(QANSWERS, new BasicDBObject(texts));
+            if (null != source.getDepsIN()) dbo.put(DEPS_IN, new ArrayList<>(source.getDepsIN()));
+            if (null != source.getDepsOUT()) dbo.put(DEPS_OUT, new ArrayList<>(source.getDepsOUT()));
+            if (null != source.getDatetime()) dbo.put(DATETIME, source.getDatetime());
+            return dbo;
+        }
+
+        private static Map<String, String> textsNotInSurvey(Map<String, String> texts, AssessmentAnswers answers) {
+            Map<String, String> result = new HashMap<>();
+            if (null == texts) return result;
+            Map<String, String> resolved = answers.toAnswerTexts();
+            for (Map.Entry<String, String> e : texts.entrySet()) {
+                if (!Objects.equals(e.getValue(), resolved.get(e.getKey()))) result.put(e.getKey(), e.getValue());
+            }
+            return result;
+        }
+    }
+
+    @ReadingConverter
+    public static class AssessmentsReader implements Converter<DBObject, Assessments> {
+
+        private final Logger log = LoggerFactory.getLogger(AssessmentsReader.class);
+
+        private final Function<String, CompiledSurvey> surveys;
+
+        /**
+         * @param surveys - looks up the compiled survey for a version, returning null if it's not known
+         */
+        public AssessmentsReader(Function<String, CompiledSurvey> surveys) {
+            this.surveys = surveys;
+        }
+
+        @Override
+        public Assessments convert(DBObject source) {
+            Assessments result = new Assessments();
+            result.setId(null == source.get(ID) ? null : source.get(ID).toString());
+            result.setDatetime((String) source.get(DATETIME));
+            if (source.containsField(DEPS_IN)) result.setDepsIN(toList(source.get(DEPS_IN)));
+            if (source.containsField(DEPS_OUT)) result.setDepsOUT(toList(source.get(DEPS_OUT)));
+
+            Object encoded = source.get(ANSWERS);
+            if (encoded instanceof byte[]) {
+                String version = (String) source.get(SURVEY_VERSION);
+                CompiledSurvey survey = surveys.apply(version);
+                if (null == survey)
+                    log.warn("Assessment {} was answered against unknown survey version {}, only free-form answers are available", result.getId(), version);
+                result.setAnswers(new AssessmentAnswers(version, survey, (byte[]) encoded, toMap(source.get(EXTRAS))));
+                if (source.containsField(QANSWERS)) {
+                    HashMap<String, String> texts = result.getAnswers().toAnswerTexts();
+                    texts.putAll(toMap(source.get(QANSWERS)));
+                    result.setQanswers(texts);
+                }
+            } else {
+                // written before the compact encoding, picked up in the new form the next time it's saved
+                result.setResults(toMap(source.get(RESULTS)));
+                if (source.containsField(QANSWERS)) result.setQanswers(toMap(source.get(QANSWERS)));
+            }
+            return result;
+        }
+
+        private static HashMap<String, String> toMap(Object value) {
+            HashMap<String, String> result = new HashMap<>();
+            if (value instanceof DBObject) {
+                DBObject dbo = (DBObject) value;
+                for (String key : dbo.keySet()) {
+                    Object v = dbo.get(key);
+                    result.put(key, null == v ? null : v.toString());
+                }
+            }
+            return result;
+        }
+
+        private static List<String> toList(Object value) {
+            List<String> result = new ArrayList<>();
+            if (value instanceof List) {
+                for (Object v : (List<?>) value) result.add(null == v ? null : v.toString());
+            }
+            return result;
+        }
+    }
+}
@@ -33,7 +33,7 @@ import java.util.List;
  */
 @SuppressWarnings("unused")
 @Repository
-public interface CustomerRepository extends MongoRepository<Customer, String> {
+public interface CustomerRepository extends MongoRepository<Customer, String>, CustomerRepositoryCustom {
 
     @Override
     Customer save(Customer entity);
@@ -49,4 +49,6 @@ public interface CustomerRepository extends MongoRepository<Customer, String> {
 
     @Override
     boolean exists(String s);
+
+    long countByName(String name);
 }
@@ -0,0 +1,134 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Member;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Aggregate loaders for the Customer -> Applications -> Assessments/Reviews graph.
+ * <p>
+ * The domain objects link to each other with lazy DBRefs, so walking the graph issues one round-trip per hop.
+ * These loaders resolve the whole graph in a fixed number of $in batched queries instead.
+ */
+public interface CustomerRepositoryCustom {
+
+    /**
+     * @return the customer with its applications, their assessments and reviews already resolved, or null if not found
+     */
+    Customer findOneWithGraph(String custId);
+
+    /**
+     * @return the customer with its applications and their reviews resolved, each application carrying only its most
+     * recent assessment. For the report, which reads nothing else, or null if not found
+     */
+    Customer findOneWithLatestAssessments(String custId);
+
+    /**
+     * @return every customer with its applications, their assessments and reviews already resolved
+     */
+    List<Customer> findAllWithGraph();
+
+    /**
+     * @return the customer with its applications and their reviews resolved but not their assessments, which are left
+     * lazy. For screens that only need Applications.getLatestAssessment(), or null if not found
+     */
+    Customer findOneWithApplications(String custId);
+
+    /**
+     * @return the customer without its applications (ie. getApplications() is null), or null if not found
+     */
+    Customer findOneWithoutApplications(String custId);
+
+    /**
+     * Resolve the customer's applications batch by batch and hand them to the action in their original order,
+     * so only one batch of the graph is held in memory at a time.
+     *
+     * @param latestAssessmentOnly - when true each application carries only its most recent assessment
+     */
+    void forEachApplication(String custId, boolean latestAssessmentOnly, Consumer<Applications> action);
+
+    /**
+     * @return one page of the customers matching the filter, without their applications resolved
+     */
+    KeysetPage<Customer> findCustomers(Criteria filter, KeysetRequest page);
+
+    long countCustomers(Criteria filter);
+
+    /**
+     * @return one page of the customer's applications matching the filter, with their reviews resolved but not
+     * their assessments (as findOneWithApplications)
+     */
+    KeysetPage<Applications> findApplications(String custId, Criteria filter, KeysetRequest page);
+
+    long countApplications(String custId, Criteria filter);
+
+    /**
+     * @return every application of the customer matching the filter, in the order of the customer's list (ie. the
+     * order they were added in), with their reviews resolved but not their assessments
+     */
+    List<Applications> findApplicationsInListOrder(String custId, Criteria filter);
+
+    /**
+     * Append the application to the customer's list with a $push, leaving the rest of the customer (ie. its summary,
+     * which is maintained with $inc) as it is
+     *
+     * @return false if there's no such customer
+     */
+    boolean addApplication(String custId, Applications app);
+
+    /**
+     * Append the member to the customer's list with a $push, leaving the rest of the customer as it is
+     *
+     * @return false if there's no such customer
+     */
+    boolean addMember(String custId, Member member);
+
+    /**
+     * $pull the members with these usernames from the customer's list, leaving the rest of the customer as it is
+     *
+     * @return the number of members that were on the list and have been taken off it
+     */
+    int removeMembers(String custId, Collection<String> usernames);
+
+    /**
+     * $set the customer's own details (name, description, vertical, size, rtilink and assessor), leaving its
+     * applications, members and summary as they are
+     *
+     * @return false if there's no such customer
+     */
+    boolean updateDetails(Customer customer);
+
+    /**
+     * Set Applications.customerId on applications saved before it existed
+     *
+     * @return the number of applications updated
+     */
+    int linkApplicationsToCustomers();
+}
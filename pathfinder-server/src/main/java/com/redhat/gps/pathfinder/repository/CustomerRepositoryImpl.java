@@ -0,0 +1,363 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Member;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads the raw documents so the DBRefs can be collected without triggering the lazy proxies, fetches each level
+ * of the graph with $in batches and stitches the converted entities back together in their original order.
+ */
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+
+    static final int BATCH_SIZE = 500;
+    // smaller batches when streaming so the memory held per batch stays low
+    static final int EXPORT_BATCH_SIZE = 100;
+
+    // mongo field names of the DBRef properties
+    private static final String CUSTOMER_APPLICATIONS = "Applications";
+    private static final String CUSTOMER_MEMBERS = "members";
+    private static final String APPLICATION_CUSTOMER = "customerId";
+    private static final String APPLICATION_ASSESSMENTS = "Assessments";
+    private static final String APPLICATION_REVIEW = "review";
+    private static final String REVIEW_ASSESSMENT = "Assessments";
+
+    // which of the application's assessments are resolved along with it
+    private enum AssessmentScope {ALL, LATEST, NONE}
+
+    private final MongoOperations mongoOps;
+
+    public CustomerRepositoryImpl(MongoOperations mongoOps) {
+        this.mongoOps = mongoOps;
+    }
+
+    @Override
+    public Customer findOneWithGraph(String custId) {
+        DBObject raw = findRawCustomer(custId);
+        if (raw == null) return null;
+        return loadGraph(Collections.singletonList(raw), AssessmentScope.ALL).get(0);
+    }
+
+    @Override
+    public Customer findOneWithLatestAssessments(String custId) {
+        DBObject raw = findRawCustomer(custId);
+        if (raw == null) return null;
+        return loadGraph(Collections.singletonList(raw), AssessmentScope.LATEST).get(0);
+    }
+
+    @Override
+    public List<Customer> findAllWithGraph() {
+        List<DBObject> raw;
+        try (DBCursor cursor = mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).find()) {
+            raw = cursor.toArray();
+        }
+        return loadGraph(raw, AssessmentScope.ALL);
+    }
+
+    @Override
+    public Customer findOneWithApplications(String custId) {
+        DBObject raw = findRawCustomer(custId);
+        if (raw == null) return null;
+        return loadGraph(Collections.singletonList(raw), AssessmentScope.NONE).get(0);
+    }
+
+    @Override
+    public Customer findOneWithoutApplications(String custId) {
+        DBObject raw = findRawCustomer(custId);
+        if (raw == null) return null;
+        Customer customer = mongoOps.getConverter().read(Customer.class, raw);
+        customer.setApplications(null);
+        return customer;
+    }
+
+    @Override
+    public void forEachApplication(String custId, boolean latestAssessmentOnly, Consumer<Applications> action) {
+        DBObject raw = findRawCustomer(custId);
+        if (raw == null) return;
+        for (List<Object> batch : Lists.partition(refIds(raw, CUSTOMER_APPLICATIONS), EXPORT_BATCH_SIZE)) {
+            resolve(batch, loadApplications(batch, latestAssessmentOnly ? AssessmentScope.LATEST : AssessmentScope.ALL)).forEach(action);
+        }
+    }
+
+    @Override
+    public KeysetPage<Customer> findCustomers(Criteria filter, KeysetRequest page) {
+        MongoConverter converter = mongoOps.getConverter();
+        List<DBObject> rows = new ArrayList<>();
+        String next = findPage(Customer.class, filter, page, rows);
+        List<Customer> customers = new ArrayList<>(rows.size());
+        for (DBObject dbo : rows) customers.add(converter.read(Customer.class, dbo));
+        return new KeysetPage<>(customers, next);
+    }
+
+    @Override
+    public long countCustomers(Criteria filter) {
+        return mongoOps.count(null == filter ? new Query() : new Query(filter), Customer.class);
+    }
+
+    @Override
+    public KeysetPage<Applications> findApplications(String custId, Criteria filter, KeysetRequest page) {
+        List<DBObject> rows = new ArrayList<>();
+        String next = findPage(Applications.class, ownedBy(custId, filter), page, rows);
+        List<Object> ids = new ArrayList<>(rows.size());
+        Map<Object, DBObject> rawApps = new HashMap<>();
+        for (DBObject dbo : rows) {
+            ids.add(dbo.get("_id"));
+            rawApps.put(dbo.get("_id"), dbo);
+        }
+        return new KeysetPage<>(resolve(ids, resolveApplications(rawApps, AssessmentScope.NONE)), next);
+    }
+
+    @Override
+    public long countApplications(String custId, Criteria filter) {
+        return mongoOps.count(new Query(ownedBy(custId, filter)), Applications.class);
+    }
+
+    @Override
+    public List<Applications> findApplicationsInListOrder(String custId, Criteria filter) {
+        DBObject raw = mongoOps.getCollection(mongoOps.getCollectionName(Customer.class))
+                .findOne(new BasicDBObject("_id", custId), new BasicDBObject(CUSTOMER_APPLICATIONS, 1));
+        Map<Object, Integer> positions = new HashMap<>();
+        if (null != raw) for (Object id : refIds(raw, CUSTOMER_APPLICATIONS)) positions.putIfAbsent(id, positions.size());
+        List<Applications> apps = new ArrayList<>(findApplications(custId, filter,
+                KeysetRequest.of(Collections.singletonList("name"), true, null, 0, -1)).getContent());
+        // applications missing from the list (ie. left behind by an interrupted change) go last, by name
+        apps.sort(Comparator.comparingInt(app -> positions.getOrDefault(app.getId(), Integer.MAX_VALUE)));
+        return apps;
+    }
+
+    @Override
+    public int linkApplicationsToCustomers() {
+        int linked = 0;
+        DBObject fields = new BasicDBObject(CUSTOMER_APPLICATIONS, 1);
+        try (DBCursor cursor = mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).find(new BasicDBObject(), fields)) {
+            for (DBObject customer : cursor) {
+                for (List<Object> batch : Lists.partition(refIds(customer, CUSTOMER_APPLICATIONS), BATCH_SIZE)) {
+                    linked += mongoOps.getCollection(mongoOps.getCollectionName(Applications.class)).updateMulti(
+                            new BasicDBObject("_id", new BasicDBObject("$in", batch)).append(APPLICATION_CUSTOMER, new BasicDBObject("$exists", false)),
+                            new BasicDBObject("$set", new BasicDBObject(APPLICATION_CUSTOMER, customer.get("_id")))).getN();
+                }
+            }
+        }
+        return linked;
+    }
+
+    @Override
+    public boolean addApplication(String custId, Applications app) {
+        DBRef ref = new DBRef(mongoOps.getCollectionName(Applications.class), app.getId());
+        return mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).update(new BasicDBObject("_id", custId),
+                new BasicDBObject("$push", new BasicDBObject(CUSTOMER_APPLICATIONS, ref))).getN() > 0;
+    }
+
+    @Override
+    public boolean addMember(String custId, Member member) {
+        DBRef ref = new DBRef(mongoOps.getCollectionName(Member.class), member.getUsername());
+        return mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).update(new BasicDBObject("_id", custId),
+                new BasicDBObject("$push", new BasicDBObject(CUSTOMER_MEMBERS, ref))).getN() > 0;
+    }
+
+    @Override
+    public int removeMembers(String custId, Collection<String> usernames) {
+        Set<String> removing = new LinkedHashSet<>(usernames);
+        // the list as it was before the $pull, to count what came off it
+        DBObject before = mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).findAndModify(
+                new BasicDBObject("_id", custId), new BasicDBObject(CUSTOMER_MEMBERS, 1), null, false,
+                new BasicDBObject("$pull", new BasicDBObject(CUSTOMER_MEMBERS,
+                        new BasicDBObject("$id", new BasicDBObject("$in", new ArrayList<>(removing))))),
+                false, false);
+        int removed = 0;
+        if (before != null && before.get(CUSTOMER_MEMBERS) instanceof Collection) {
+            for (Object ref : (Collection<?>) before.get(CUSTOMER_MEMBERS)) {
+                if (ref instanceof DBRef && removing.contains(String.valueOf(((DBRef) ref).getId()))) removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean updateDetails(Customer customer) {
+        Update update = new Update()
+                .set("name", customer.getName())
+                .set("description", customer.getDescription())
+                .set("vertical", customer.getVertical())
+                .set("size", customer.getSize())
+                .set("rtilink", customer.getRtilink())
+                .set("assessor", customer.getAssessor());
+        return mongoOps.updateFirst(Query.query(Criteria.where("_id").is(customer.getId())), update, Customer.class).getN() > 0;
+    }
+
+    private static Criteria ownedBy(String custId, Criteria filter) {
+        Criteria owner = Criteria.where(APPLICATION_CUSTOMER).is(custId);
+        return null == filter ? owner : new Criteria().andOperator(owner, filter);
+    }
+
+    /**
+     * Run the page query against the raw collection, filling rows with at most page.getLimit() documents
+     *
+     * @return the cursor for the following page, or null if there isn't one
+     */
+    private String findPage(Class<?> type, Criteria filter, KeysetRequest page, List<DBObject> rows) {
+        Query query = page.toQuery(filter);
+        try (DBCursor cursor = mongoOps.getCollection(mongoOps.getCollectionName(type)).find(query.getQueryObject())
+                .sort(query.getSortObject()).skip(query.getSkip()).limit(query.getLimit())) {
+            for (DBObject dbo : cursor) rows.add(dbo);
+        }
+        if (page.getLimit() < 0 || rows.size() <= page.getLimit()) return null;
+        rows.remove(rows.size() - 1);
+        return rows.isEmpty() ? null : page.cursorOf(rows.get(rows.size() - 1));
+    }
+
+    private DBObject findRawCustomer(String custId) {
+        return mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).findOne(new BasicDBObject("_id", custId));
+    }
+
+    private List<Customer> loadGraph(List<DBObject> rawCustomers, AssessmentScope scope) {
+        List<Object> appIds = new ArrayList<>();
+        for (DBObject c : rawCustomers) appIds.addAll(refIds(c, CUSTOMER_APPLICATIONS));
+        Map<Object, Applications> apps = loadApplications(appIds, scope);
+
+        MongoConverter converter = mongoOps.getConverter();
+        List<Customer> result = new ArrayList<>(rawCustomers.size());
+        for (DBObject dbo : rawCustomers) {
+            Customer customer = converter.read(Customer.class, dbo);
+            if (dbo.containsField(CUSTOMER_APPLICATIONS))
+                customer.setApplications(resolve(refIds(dbo, CUSTOMER_APPLICATIONS), apps));
+            result.add(customer);
+        }
+        return result;
+    }
+
+    /**
+     * Load the applications with their assessments and reviews resolved, keyed on _id
+     */
+    private Map<Object, Applications> loadApplications(List<Object> appIds, AssessmentScope scope) {
+        return resolveApplications(findRaw(Applications.class, appIds), scope);
+    }
+
+    private Map<Object, Applications> resolveApplications(Map<Object, DBObject> rawApps, AssessmentScope scope) {
+        MongoConverter converter = mongoOps.getConverter();
+        List<Object> reviewIds = new ArrayList<>();
+        for (DBObject a : rawApps.values()) reviewIds.addAll(refIds(a, APPLICATION_REVIEW));
+        Map<Object, DBObject> rawReviews = findRaw(ApplicationAssessmentReview.class, reviewIds);
+
+        List<Object> assessmentIds = new ArrayList<>();
+        if (scope != AssessmentScope.NONE) {
+            for (DBObject a : rawApps.values()) assessmentIds.addAll(assessmentRefs(a, scope));
+            for (DBObject r : rawReviews.values()) assessmentIds.addAll(refIds(r, REVIEW_ASSESSMENT));
+        }
+
+        Map<Object, Assessments> assessments = new HashMap<>();
+        findRaw(Assessments.class, assessmentIds).forEach((id, dbo) -> assessments.put(id, converter.read(Assessments.class, dbo)));
+
+        Map<Object, ApplicationAssessmentReview> reviews = new HashMap<>();
+        rawReviews.forEach((id, dbo) -> {
+            ApplicationAssessmentReview review = converter.read(ApplicationAssessmentReview.class, dbo);
+            List<Object> reviewed = refIds(dbo, REVIEW_ASSESSMENT);
+            if (!reviewed.isEmpty() && assessments.containsKey(reviewed.get(0)))
+                review.setAssessments(assessments.get(reviewed.get(0)));
+            reviews.put(id, review);
+        });
+
+        Map<Object, Applications> apps = new HashMap<>();
+        rawApps.forEach((id, dbo) -> {
+            Applications app = converter.read(Applications.class, dbo);
+            // with no scope the converter's lazy proxies are left in place
+            if (scope != AssessmentScope.NONE && dbo.containsField(APPLICATION_ASSESSMENTS))
+                app.setAssessments(resolve(assessmentRefs(dbo, scope), assessments));
+            if (dbo.containsField(APPLICATION_REVIEW)) {
+                List<Object> review = refIds(dbo, APPLICATION_REVIEW);
+                app.setReview(review.isEmpty() ? null : reviews.get(review.get(0)));
+            }
+            apps.put(id, app);
+        });
+        return apps;
+    }
+
+    private static List<Object> assessmentRefs(DBObject app, AssessmentScope scope) {
+        List<Object> ids = refIds(app, APPLICATION_ASSESSMENTS);
+        return scope == AssessmentScope.LATEST && ids.size() > 1 ? ids.subList(ids.size() - 1, ids.size()) : ids;
+    }
+
+    /**
+     * Fetch the raw documents for the given ids in batches of BATCH_SIZE, keyed on _id
+     */
+    private Map<Object, DBObject> findRaw(Class<?> type, List<Object> ids) {
+        Map<Object, DBObject> result = new HashMap<>();
+        if (ids.isEmpty()) return result;
+        for (List<Object> batch : Lists.partition(new ArrayList<>(new LinkedHashSet<>(ids)), BATCH_SIZE)) {
+            try (DBCursor cursor = mongoOps.getCollection(mongoOps.getCollectionName(type)).find(new BasicDBObject("_id", new BasicDBObject("$in", batch)))) {
+                for (DBObject dbo : cursor) result.put(dbo.get("_id"), dbo);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Map the referenced ids onto the loaded entities, keeping the reference order and dropping dangling references
+     */
+    private static <T> List<T> resolve(List<Object> ids, Map<Object, T> loaded) {
+        List<T> result = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            T entity = loaded.get(id);
+            if (entity != null) result.add(entity);
+        }
+        return result;
+    }
+
+    private static List<Object> refIds(DBObject source, String field) {
+        List<Object> ids = new ArrayList<>();
+        Object value = source.get(field);
+        if (value instanceof DBRef) {
+            ids.add(((DBRef) value).getId());
+        } else if (value instanceof Collection) {
+            for (Object o : (Collection<?>) value) {
+                if (o instanceof DBRef) ids.add(((DBRef) o).getId());
+            }
+        }
+        return ids;
+    }
+}
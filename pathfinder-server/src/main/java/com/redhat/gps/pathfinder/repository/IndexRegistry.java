@@ -0,0 +1,181 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Job;
+import com.redhat.gps.pathfinder.domain.Member;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Every index the repositories rely on, in one place.
+ * ensureIndexes() creates the missing ones at startup and reports drift, ie. declared indexes whose keys differ from
+ * what is in the database and indexes that exist in the database but are not declared here. Drifted indexes are
+ * left alone since dropping them on a live system is a decision for an operator.
+ */
+@Component
+public class IndexRegistry {
+
+    private static final String ID_INDEX = "_id_";
+
+    static final List<IndexSpec> INDEXES = Collections.unmodifiableList(Arrays.asList(
+            // name collision checks on create and import, and keyset paging of the customers grid by name
+            new IndexSpec(Customer.class, "customer_name", "name", "_id"),
+            // owning customer of an application
+            new IndexSpec(Customer.class, "customer_applications", "Applications.$id"),
+            // keyset paging of the customers grid by its other sortable columns
+            new IndexSpec(Customer.class, "customer_description", "description", "_id"),
+            new IndexSpec(Customer.class, "customer_vertical", "vertical", "_id"),
+            new IndexSpec(Member.class, "member_customerId", "customerId"),
+            new IndexSpec(Applications.class, "applications_stereotype_name", "stereotype", "name"),
+            // keyset paging of a customer's applications, by name and by stereotype then name
+            new IndexSpec(Applications.class, "applications_customer_name", "customerId", "name", "_id"),
+            new IndexSpec(Applications.class, "applications_customer_stereotype_name", "customerId", "stereotype", "name", "_id"),
+            new IndexSpec(Applications.class, "applications_review", "review.$id"),
+            new IndexSpec(Applications.class, "applications_assessments", "Assessments.$id"),
+            new IndexSpec(ApplicationAssessmentReview.class, "reviews_assessment", "Assessments.$id"),
+            // recovery of abandoned jobs, and the sweep of finished ones
+            new IndexSpec(Job.class, "job_status_heartbeat", "status", "heartbeat"),
+            new IndexSpec(Job.class, "job_finished", "finished")));
+
+    private final Logger log = LoggerFactory.getLogger(IndexRegistry.class);
+
+    private final MongoOperations mongoOps;
+
+    public IndexRegistry(MongoOperations mongoOps) {
+        this.mongoOps = mongoOps;
+    }
+
+    public Drift ensureIndexes() {
+        Drift drift = new Drift();
+        List<String> collections = new ArrayList<>();
+        for (IndexSpec spec : INDEXES) {
+            String collectionName = mongoOps.getCollectionName(spec.type);
+            if (!collections.contains(collectionName)) collections.add(collectionName);
+            DBCollection collection = mongoOps.getCollection(collectionName);
+            List<DBObject> existing = collection.getIndexInfo();
+
+            DBObject sameName = find(existing, spec.name, null);
+            DBObject sameKeys = find(existing, null, spec.keys);
+            if (null != sameName && sameName != sameKeys) {
+                drift.mismatched.add(collectionName + "." + spec.name + " expected " + spec.keys + " but found " + sameName.get("key"));
+            } else if (null == sameName && null != sameKeys) {
+                drift.mismatched.add(collectionName + "." + spec.name + " exists as " + sameKeys.get("name"));
+            } else if (null == sameName) {
+                collection.createIndex(spec.keys, new BasicDBObject("name", spec.name).append("background", true));
+                drift.created.add(collectionName + "." + spec.name);
+            }
+        }
+
+        for (String collectionName : collections) {
+            for (DBObject index : mongoOps.getCollection(collectionName).getIndexInfo()) {
+                if (!isDeclared(collectionName, index)) drift.unexpected.add(collectionName + "." + index.get("name"));
+            }
+        }
+
+        if (!drift.created.isEmpty()) log.info("Created indexes {}", drift.created);
+        if (!drift.isClean()) log.warn("Index drift detected: mismatched {}, undeclared {}", drift.mismatched, drift.unexpected);
+        return drift;
+    }
+
+    private boolean isDeclared(String collectionName, DBObject index) {
+        if (ID_INDEX.equals(index.get("name"))) return true;
+        for (IndexSpec spec : INDEXES) {
+            if (collectionName.equals(mongoOps.getCollectionName(spec.type))
+                    && (spec.name.equals(index.get("name")) || sameKeys(spec.keys, (DBObject) index.get("key"))))
+                return true;
+        }
+        return false;
+    }
+
+    private static DBObject find(List<DBObject> indexes, String name, DBObject keys) {
+        for (DBObject index : indexes) {
+            if (null != name && name.equals(index.get("name"))) return index;
+            if (null != keys && sameKeys(keys, (DBObject) index.get("key"))) return index;
+        }
+        return null;
+    }
+
+    // key order matters for compound indexes, and the server may hand back the direction as a double
+    private static boolean sameKeys(DBObject expected, DBObject actual) {
+        if (null == actual || expected.keySet().size() != actual.keySet().size()) return false;
+        Iterator<String> a = actual.keySet().iterator();
+        for (String key : expected.keySet()) {
+            String other = a.next();
+            if (!key.equals(other)) return false;
+            Object direction = actual.get(other);
+            if (!(direction instanceof Number) || ((Number) direction).intValue() != ((Number) expected.get(key)).intValue())
+                return false;
+        }
+        return true;
+    }
+
+    static final class IndexSpec {
+        final Class<?> type;
+        final String name;
+        final DBObject keys;
+
+        IndexSpec(Class<?> type, String name, String... fields) {
+            this.type = type;
+            this.name = name;
+            this.keys = new BasicDBObject();
+            for (String field : fields) keys.put(field, 1);
+        }
+    }
+
+    public static final class Drift {
+        private final List<String> created = new ArrayList<>();
+        private final List<String> mismatched = new ArrayList<>();
+        private final List<String> unexpected = new ArrayList<>();
+
+        public List<String> getCreated() {
+            return created;
+        }
+
+        public List<String> getMismatched() {
+            return mismatched;
+        }
+
+        public List<String> getUnexpected() {
+            return unexpected;
+        }
+
+        public boolean isClean() {
+            return mismatched.isEmpty() && unexpected.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.List;
+
+/**
+ * A page of results from a KeysetRequest
+ */
+public final class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String next;
+
+    public KeysetPage(List<T> content, String next) {
+        this.content = content;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * @return the cursor to pass as the "after" of the following page, or null if this is the last page
+     */
+    public String getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,159 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.mongodb.BasicDBList;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a sorted query. The sort fields are always followed by _id so the order is total, which lets the next
+ * page start from the last row returned (the keyset) rather than skipping over every row before it.
+ * <p>
+ * The cursor handed back by KeysetPage.getNext() is opaque to callers; if there isn't one the page is found by skip.
+ */
+public final class KeysetRequest {
+
+    private static final String ID = "_id";
+
+    private final List<String> sortFields;
+    private final boolean ascending;
+    // the decoded cursor, or null when the page is found by skip
+    private final List<Object> after;
+    private final int skip;
+    private final int limit;
+
+    private KeysetRequest(List<String> sortFields, boolean ascending, List<Object> after, int skip, int limit) {
+        this.sortFields = sortFields;
+        this.ascending = ascending;
+        this.after = after;
+        this.skip = skip;
+        this.limit = limit;
+    }
+
+    /**
+     * @param sortFields - the mongo fields to sort on, _id is appended
+     * @param after - cursor from the previous page, or null to start at skip
+     * @param limit - page size, or a negative number for no limit
+     * @throws IllegalArgumentException if the cursor is malformed or wasn't produced for the same sort fields
+     */
+    public static KeysetRequest of(List<String> sortFields, boolean ascending, String after, int skip, int limit) {
+        List<String> fields = new ArrayList<>(sortFields);
+        fields.remove(ID);
+        fields.add(ID);
+        return new KeysetRequest(Collections.unmodifiableList(fields), ascending, null == after ? null : decode(after, fields), Math.max(0, skip), limit);
+    }
+
+    public List<String> getSortFields() {
+        return sortFields;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the query for this page. It asks for one extra row so the caller can tell whether there is a next page
+     */
+    Query toQuery(Criteria filter) {
+        Query query = new Query();
+        Criteria keyset = null == after ? null : keysetCriteria(after);
+        if (null != filter && null != keyset) query.addCriteria(new Criteria().andOperator(filter, keyset));
+        else if (null != filter) query.addCriteria(filter);
+        else if (null != keyset) query.addCriteria(keyset);
+
+        query.with(new Sort(ascending ? Sort.Direction.ASC : Sort.Direction.DESC, sortFields));
+        if (null == after) query.skip(skip);
+        if (limit >= 0) query.limit(limit + 1);
+        return query;
+    }
+
+    /**
+     * @return the cursor for the page following the given (raw) row
+     */
+    String cursorOf(DBObject row) {
+        BasicDBList values = new BasicDBList();
+        for (String field : sortFields) values.add(valueOf(row, field));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(JSON.serialize(values).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Object> decode(String cursor, List<String> sortFields) {
+        Object values;
+        try {
+            values = JSON.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid page cursor " + cursor, e);
+        }
+        if (!(values instanceof BasicDBList) || ((BasicDBList) values).size() != sortFields.size())
+            throw new IllegalArgumentException("Page cursor " + cursor + " does not match the sort order");
+        return (BasicDBList) values;
+    }
+
+    /**
+     * Rows strictly after the keyset in sort order, ie. for each sort field i: equal on the fields before it and
+     * beyond it on field i. Mongo sorts null (and missing) before any string, which is handled explicitly since
+     * $gt/$lt never match null.
+     */
+    private Criteria keysetCriteria(List<Object> keyset) {
+        List<Criteria> alternatives = new ArrayList<>();
+        for (int i = 0; i < sortFields.size(); i++) {
+            Criteria beyond = beyond(sortFields.get(i), keyset.get(i));
+            if (null == beyond) continue;
+            List<Criteria> terms = new ArrayList<>();
+            for (int j = 0; j < i; j++) terms.add(Criteria.where(sortFields.get(j)).is(keyset.get(j)));
+            terms.add(beyond);
+            alternatives.add(terms.size() == 1 ? terms.get(0) : new Criteria().andOperator(terms.toArray(new Criteria[0])));
+        }
+        // nothing sorts after a descending null
+        if (alternatives.isEmpty()) return Criteria.where(ID).exists(false);
+        return alternatives.size() == 1 ? alternatives.get(0) : new Criteria().orOperator(alternatives.toArray(new Criteria[0]));
+    }
+
+    private Criteria beyond(String field, Object value) {
+        if (ascending) return null == value ? Criteria.where(field).ne(null) : Criteria.where(field).gt(value);
+        if (null == value) return null;
+        return new Criteria().orOperator(Criteria.where(field).lt(value), Criteria.where(field).is(null));
+    }
+
+    private static Object valueOf(DBObject row, String field) {
+        Object value = row;
+        for (String part : field.split("\\.")) {
+            if (!(value instanceof DBObject)) return null;
+            value = ((DBObject) value).get(part);
+        }
+        return value;
+    }
+}
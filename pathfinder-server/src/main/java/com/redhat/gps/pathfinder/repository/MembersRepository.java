@@ -51,4 +51,6 @@ public interface MembersRepository extends MongoRepository<Member, String> {
 
     @Override
     long count();
+
+    List<Member> findByCustomerId(String customerId);
 }
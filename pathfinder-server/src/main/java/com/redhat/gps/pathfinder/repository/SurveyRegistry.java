@@ -0,0 +1,115 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.redhat.gps.pathfinder.web.api.CompiledSurvey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every survey that assessments have been answered against, keyed on the content hash of the survey json
+ * (see CompiledSurvey.getVersion()). A survey is persisted once, the first time it's published, so assessments
+ * taken before a change to the custom questions can still be read against the questions they were answered with,
+ * including after a restart. The most recently used versions are kept compiled in memory.
+ * <p>
+ * Works on the raw collection through the MongoDbFactory rather than MongoOperations since the Assessments converters,
+ * and so the MongoTemplate, depend on it.
+ */
+@Component
+public class SurveyRegistry {
+
+    static final String COLLECTION = "survey";
+    static final int HOT_SURVEYS = 16;
+
+    private static final String ID = "_id";
+    private static final String JSON = "json";
+    private static final String CREATED = "created";
+
+    private final Logger log = LoggerFactory.getLogger(SurveyRegistry.class);
+
+    private final MongoDbFactory dbFactory;
+    private final Cache<String, CompiledSurvey> hot = CacheBuilder.newBuilder().maximumSize(HOT_SURVEYS).build();
+    // versions that aren't in the database, so reading a batch of orphaned assessments doesn't query once per document
+    private final Cache<String, Boolean> unknown = CacheBuilder.newBuilder().maximumSize(1000).expireAfterWrite(1, TimeUnit.MINUTES).build();
+
+    public SurveyRegistry(MongoDbFactory dbFactory) {
+        this.dbFactory = dbFactory;
+    }
+
+    /**
+     * Persists the survey unless a survey with the same version is already stored.
+     *
+     * @param surveyJson - the materialised survey the compiled survey was built from
+     */
+    public void register(CompiledSurvey survey, String surveyJson) {
+        String version = survey.getVersion();
+        hot.put(version, survey);
+        unknown.invalidate(version);
+        try {
+            collection().update(new BasicDBObject(ID, version),
+                    new BasicDBObject("$setOnInsert", new BasicDBObject(JSON, surveyJson).append(CREATED, new Date())),
+                    true, false);
+        } catch (Exception ex) {
+            // still usable for this run, it's persisted the next time it's published
+            log.error("Unable to persist survey {}, assessments answered against it won't be readable after a restart", version, ex);
+        }
+    }
+
+    /**
+     * @return the compiled survey with the given version, or null if it was never registered
+     */
+    public CompiledSurvey find(String version) {
+        if (null == version) return null;
+        CompiledSurvey survey = hot.getIfPresent(version);
+        if (null != survey || null != unknown.getIfPresent(version)) return survey;
+
+        DBObject row = collection().findOne(new BasicDBObject(ID, version));
+        if (null == row || !(row.get(JSON) instanceof String)) {
+            unknown.put(version, Boolean.TRUE);
+            return null;
+        }
+        survey = CompiledSurvey.compile((String) row.get(JSON));
+        if (!version.equals(survey.getVersion())) {
+            log.error("Stored survey {} doesn't match its version, found {}", version, survey.getVersion());
+            unknown.put(version, Boolean.TRUE);
+            return null;
+        }
+        hot.put(version, survey);
+        log.info("Loaded survey {} with {} questions", version, survey.size());
+        return survey;
+    }
+
+    private DBCollection collection() {
+        return dbFactory.getDb().getCollection(COLLECTION);
+    }
+}
@@ -0,0 +1,127 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response of the adoptionPlan endpoint: the applications in adoption order, each with the effort that has to
+ * complete before it can start (padding), plus any dependency cycles found.
+ */
+public class AdoptionPlan {
+
+    private int duration;
+    private int waves;
+    private List<Item> applications = new ArrayList<>();
+    private List<List<String>> cycles = new ArrayList<>();
+
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+
+    public int getWaves() {
+        return waves;
+    }
+
+    public void setWaves(int waves) {
+        this.waves = waves;
+    }
+
+    public List<Item> getApplications() {
+        return applications;
+    }
+
+    public void setApplications(List<Item> applications) {
+        this.applications = applications;
+    }
+
+    public List<List<String>> getCycles() {
+        return cycles;
+    }
+
+    public void setCycles(List<List<String>> cycles) {
+        this.cycles = cycles;
+    }
+
+    public static class Item {
+        private String id;
+        private String name;
+        private int size;
+        private int padding;
+        private int wave;
+        private boolean inCycle;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+
+        public int getPadding() {
+            return padding;
+        }
+
+        public void setPadding(int padding) {
+            this.padding = padding;
+        }
+
+        public int getWave() {
+            return wave;
+        }
+
+        public void setWave(int wave) {
+            this.wave = wave;
+        }
+
+        public boolean isInCycle() {
+            return inCycle;
+        }
+
+        public void setInCycle(boolean inCycle) {
+            this.inCycle = inCycle;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.AssessmentDigest;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.web.api.model.ApplicationType;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the adoption plan (the order and padding of the bars on the report's adoption chart) from the dependencies
+ * captured in each target application's latest assessment digest, see DependencyGraph.
+ */
+@Service
+public class AdoptionPlanService {
+
+    private static final Map<String, Integer> EFFORT_SIZES = new HashMap<>();
+
+    static {
+        EFFORT_SIZES.put("SMALL", 10);
+        EFFORT_SIZES.put("MEDIUM", 20);
+        EFFORT_SIZES.put("LARGE", 40);
+        EFFORT_SIZES.put("XLarge", 80);
+    }
+
+    private final AssessmentDigestService digestService;
+
+    public AdoptionPlanService(AssessmentDigestService digestService) {
+        this.digestService = digestService;
+    }
+
+    /**
+     * @param customer - with its application graph loaded
+     * @param selected - ids of the applications to plan for, or null for all. Unselected applications are kept in the
+     *                 graph so transitive dependencies still hold, but take no time.
+     */
+    public AdoptionPlan plan(Customer customer, Collection<String> selected) {
+        List<Applications> apps = new ArrayList<>();
+        if (null != customer.getApplications()) {
+            for (Applications app : customer.getApplications()) {
+                if (null != app && ApplicationType.StereotypeEnum.TARGETAPP.toString().equals(app.getStereotype()))
+                    apps.add(app);
+            }
+        }
+
+        Set<String> selection = null == selected ? null : new HashSet<>(selected);
+        List<String> ids = new ArrayList<>(apps.size());
+        List<List<String>> outbound = new ArrayList<>(apps.size());
+        List<List<String>> inbound = new ArrayList<>(apps.size());
+        int[] sizes = new int[apps.size()];
+        for (int i = 0; i < apps.size(); i++) {
+            Applications app = apps.get(i);
+            ids.add(app.getId());
+            AssessmentDigest latest = digestService.latestOf(app);
+            outbound.add(null == latest ? null : latest.getDepsOUT());
+            inbound.add(null == latest ? null : latest.getDepsIN());
+            if (null == selection || selection.contains(app.getId()))
+                sizes[i] = null == app.getReview() ? 0 : EFFORT_SIZES.getOrDefault(app.getReview().getReviewEstimate(), 0);
+        }
+
+        DependencyGraph graph = DependencyGraph.build(ids, outbound, inbound);
+        DependencyGraph.Schedule schedule = graph.schedule(sizes);
+
+        AdoptionPlan result = new AdoptionPlan();
+        AdoptionPlan.Item[] items = new AdoptionPlan.Item[apps.size()];
+        for (int i = 0; i < apps.size(); i++) {
+            if (null != selection && !selection.contains(ids.get(i))) continue;
+            AdoptionPlan.Item item = new AdoptionPlan.Item();
+            item.setId(ids.get(i));
+            item.setName(apps.get(i).getName());
+            item.setSize(sizes[i]);
+            item.setPadding(schedule.getStart(i));
+            item.setWave(schedule.getWave(i));
+            items[i] = item;
+            result.getApplications().add(item);
+            result.setDuration(Math.max(result.getDuration(), item.getPadding() + item.getSize()));
+            result.setWaves(Math.max(result.getWaves(), item.getWave() + 1));
+        }
+        for (int[] cycle : schedule.getCycles()) {
+            List<String> cycleIds = new ArrayList<>(cycle.length);
+            for (int node : cycle) {
+                cycleIds.add(ids.get(node));
+                if (null != items[node]) items[node].setInCycle(true);
+            }
+            Collections.sort(cycleIds);
+            result.getCycles().add(cycleIds);
+        }
+        result.getApplications().sort(Comparator.comparingInt(AdoptionPlan.Item::getPadding)
+                .thenComparingInt(AdoptionPlan.Item::getWave)
+                .thenComparing(AdoptionPlan.Item::getName, Comparator.nullsLast(Comparator.naturalOrder())));
+        return result;
+    }
+}
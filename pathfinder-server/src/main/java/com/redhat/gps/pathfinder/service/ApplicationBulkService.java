@@ -0,0 +1,186 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBRef;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.service.util.JsonCodec;
+import com.redhat.gps.pathfinder.web.api.model.ApplicationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Creates many applications for a customer in one go, from a CSV upload (with a header row) or a JSON array, both
+ * using the ApplicationType field names (Name, Description, Owner, Stereotype) in any case.
+ * <p>
+ * Every row is validated before anything is written. The applications are then written with bulk inserts and
+ * attached to the customer with a single $push $each, instead of a findOne and a save of the whole customer each.
+ */
+@Service
+public class ApplicationBulkService {
+    private final Logger log = LoggerFactory.getLogger(ApplicationBulkService.class);
+
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+    static final int BATCH_SIZE = 500;
+    // enough to fix an upload with, without echoing back every row of a bad one
+    private static final int MAX_ERRORS = 20;
+    private static final String CUSTOMER_APPLICATIONS = "Applications";
+
+    private static final ObjectReader CSV_READER = new CsvMapper().readerFor(Map.class).with(CsvSchema.emptySchema().withHeader());
+
+    private final MongoOperations mongoOps;
+    private final JsonCodec json;
+    private final CustomerSummaryService summaryService;
+    private final DomainCacheService domainCache;
+
+    public ApplicationBulkService(MongoOperations mongoOps, JsonCodec json, CustomerSummaryService summaryService, DomainCacheService domainCache) {
+        this.mongoOps = mongoOps;
+        this.json = json;
+        this.summaryService = summaryService;
+        this.domainCache = domainCache;
+    }
+
+    /**
+     * @param contentType - text/csv for a CSV upload, anything else is read as a JSON array
+     * @return one map per application, keyed on the lower cased field name
+     */
+    public List<Map<String, String>> read(InputStream in, MediaType contentType) throws IOException {
+        List<Map<String, String>> rows = new ArrayList<>();
+        if (null != contentType && TEXT_CSV.isCompatibleWith(contentType)) {
+            try (MappingIterator<Map<String, String>> it = CSV_READER.readValues(in)) {
+                while (it.hasNext()) rows.add(normalise(it.next()));
+            }
+        } else {
+            List<Map<String, Object>> values = json.readerFor(new TypeReference<List<Map<String, Object>>>() {
+            }).readValue(in);
+            for (Map<String, Object> value : values) rows.add(normalise(value));
+        }
+        return rows;
+    }
+
+    private static Map<String, String> normalise(Map<String, ?> row) {
+        Map<String, String> result = new HashMap<>();
+        row.forEach((k, v) -> {
+            if (null != v) result.put(k.trim().toLowerCase(), v.toString().trim());
+        });
+        return result;
+    }
+
+    /**
+     * @param custId - an existing customer
+     * @return ids of the new applications, in the order of the rows
+     * @throws IllegalArgumentException if any row is invalid, in which case nothing is created
+     */
+    public List<String> create(String custId, List<Map<String, String>> rows) {
+        List<Applications> apps = toApplications(custId, rows);
+        if (apps.isEmpty()) return new ArrayList<>();
+
+        long start = System.currentTimeMillis();
+        List<Object> refs = new ArrayList<>(apps.size());
+        List<String> ids = new ArrayList<>(apps.size());
+        String collection = mongoOps.getCollectionName(Applications.class);
+        try {
+            for (List<Applications> batch : Lists.partition(apps, BATCH_SIZE)) {
+                mongoOps.insert(batch, Applications.class);
+                for (Applications app : batch) {
+                    ids.add(app.getId());
+                    refs.add(new DBRef(collection, app.getId()));
+                }
+            }
+            int attached = mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).update(new BasicDBObject("_id", custId),
+                    new BasicDBObject("$push", new BasicDBObject(CUSTOMER_APPLICATIONS, new BasicDBObject("$each", refs)))).getN();
+            if (attached == 0) throw new IllegalStateException("Customer " + custId + " not found");
+        } catch (RuntimeException e) {
+            // don't leave applications behind that no customer refers to
+            if (!ids.isEmpty()) mongoOps.remove(query(where("_id").in(ids)), Applications.class);
+            throw e;
+        }
+        summaryService.update(custId, CustomerSummaryService.NONE, CustomerSummaryService.contributionOf(apps));
+        domainCache.changed(custId);
+        log.info("create....{} application(s) for customer {} in {}ms", apps.size(), custId, System.currentTimeMillis() - start);
+        return ids;
+    }
+
+    private static List<Applications> toApplications(String custId, List<Map<String, String>> rows) {
+        List<Applications> apps = new ArrayList<>(rows.size());
+        List<String> errors = new ArrayList<>();
+        int invalid = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, String> row = rows.get(i);
+            String name = row.get("name");
+            ApplicationType.StereotypeEnum stereotype = stereotypeOf(row.get("stereotype"));
+            String error = !StringUtils.hasText(name) ? "Name is missing"
+                    : null == stereotype ? "Stereotype must be one of TARGETAPP, DEPENDENCY, PROFILE" : null;
+            if (null != error) {
+                // rows are counted from 1, after the CSV header
+                if (invalid++ < MAX_ERRORS) errors.add("row " + (i + 1) + ": " + error);
+                continue;
+            }
+            Applications app = new Applications();
+            app.setId(UUID.randomUUID().toString());
+            app.setCustomerId(custId);
+            app.setName(name);
+            app.setDescription(row.get("description"));
+            app.setOwner(row.get("owner"));
+            app.setStereotype(stereotype.toString());
+            apps.add(app);
+        }
+        if (invalid > 0) {
+            if (invalid > errors.size()) errors.add("and " + (invalid - errors.size()) + " more");
+            throw new IllegalArgumentException(invalid + " invalid application(s), " + String.join("; ", errors));
+        }
+        return apps;
+    }
+
+    private static ApplicationType.StereotypeEnum stereotypeOf(String value) {
+        if (null == value) return null;
+        for (ApplicationType.StereotypeEnum stereotype : ApplicationType.StereotypeEnum.values()) {
+            if (stereotype.toString().equalsIgnoreCase(value)) return stereotype;
+        }
+        return null;
+    }
+}
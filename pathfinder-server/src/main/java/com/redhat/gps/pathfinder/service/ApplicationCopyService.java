@@ -0,0 +1,222 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBRef;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Job;
+import com.redhat.gps.pathfinder.repository.ApplicationsRepository;
+import com.redhat.gps.pathfinder.repository.AssessmentsRepository;
+import com.redhat.gps.pathfinder.repository.ReviewsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Copies an application, with its latest assessment and review, under new names within the same customer.
+ * Copying to many names can be run as a job.
+ */
+@Service
+public class ApplicationCopyService implements JobHandler {
+    private final Logger log = LoggerFactory.getLogger(ApplicationCopyService.class);
+
+    public static final String JOB_TYPE = "copy";
+    public static final String APPLICATION_ID = "applicationId";
+    public static final String NAMES = "names";
+    private static final IntConsumer NO_PROGRESS = done -> {
+    };
+    private static final String CUSTOMER_APPLICATIONS = "Applications";
+
+    private final MongoOperations mongoOps;
+    private final ApplicationsRepository appsRepo;
+    private final AssessmentsRepository assmRepo;
+    private final ReviewsRepository reviewRepository;
+    private final AssessmentDigestService digestService;
+    private final CustomerSummaryService summaryService;
+    private final DomainCacheService domainCache;
+
+    public ApplicationCopyService(MongoOperations mongoOps,
+                                  ApplicationsRepository appsRepo,
+                                  AssessmentsRepository assmRepo,
+                                  ReviewsRepository reviewRepository,
+                                  AssessmentDigestService digestService,
+                                  CustomerSummaryService summaryService,
+                                  DomainCacheService domainCache,
+                                  JobService jobs) {
+        this.mongoOps = mongoOps;
+        this.appsRepo = appsRepo;
+        this.assmRepo = assmRepo;
+        this.reviewRepository = reviewRepository;
+        this.digestService = digestService;
+        this.summaryService = summaryService;
+        this.domainCache = domainCache;
+        jobs.register(this);
+    }
+
+    @Override
+    public String getType() {
+        return JOB_TYPE;
+    }
+
+    /**
+     * Copying twice creates the copies twice
+     */
+    @Override
+    public boolean isRestartable() {
+        return false;
+    }
+
+    /**
+     * @return the ids of the copies
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object run(Job job, JobContext context) {
+        List<String> names = (List<String>) job.getParameters().get(NAMES);
+        List<String> copies = copy(job.getCustomerId(), (String) job.getParameters().get(APPLICATION_ID), names,
+                done -> context.progress(done, names.size()));
+        if (null == copies) throw new IllegalArgumentException("Customer or application not found");
+        return copies;
+    }
+
+    /**
+     * @return the ids of the copies in the order of the names, or null if the customer or application doesn't exist
+     */
+    public List<String> copy(String custId, String appId, List<String> names) {
+        return copy(custId, appId, names, NO_PROGRESS);
+    }
+
+    /**
+     * @param onCopy - called with the number of copies made so far, before each copy
+     * @return the ids of the copies in the order of the names, or null if the customer or application doesn't exist.
+     * When a copy fails (or onCopy throws) the copies made before it are kept
+     */
+    public List<String> copy(String custId, String appId, List<String> names, IntConsumer onCopy) {
+        if (!mongoOps.exists(query(where("_id").is(custId)), Customer.class)) {
+            log.error("copy....customer not found " + custId);
+            return null;
+        }
+
+        Applications currApp = appsRepo.findOne(appId);
+        if (currApp == null) {
+            log.error("copy....app not found " + appId);
+            return null;
+        }
+
+        ApplicationAssessmentReview currReview = currApp.getReview();
+        if (currReview == null)
+            log.warn("copy....no reviews for app " + appId);
+
+        List<Assessments> currAssessments = currApp.getAssessments();
+        if ((currAssessments == null) || (currAssessments.isEmpty()))
+            log.warn("copy....no assessments for app " + appId);
+
+        Assessments latestAssessment = currAssessments == null || currAssessments.isEmpty() ? null : currAssessments.get(currAssessments.size() - 1);
+
+        List<Applications> copies = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        try {
+            for (String appName : names) {
+                onCopy.accept(copies.size());
+                log.debug("Creating application {}", appName);
+
+                //Create application
+                Applications newApp = new Applications();
+                newApp.setId(UUID.randomUUID().toString());
+                newApp.setName(appName);
+                newApp.setCustomerId(custId);
+                newApp.setDescription(currApp.getDescription());
+                newApp.setStereotype(currApp.getStereotype());
+
+                //Copy Assessment (latest only)
+                if (latestAssessment != null) {
+                    Assessments newAssessment = new Assessments();
+                    newAssessment.setId(UUID.randomUUID().toString());
+                    newAssessment.setDatetime(latestAssessment.getDatetime());
+                    if (!latestAssessment.getDepsIN().isEmpty())
+                        newAssessment.setDepsIN(latestAssessment.getDepsIN());
+                    if (!latestAssessment.getDepsOUT().isEmpty())
+                        newAssessment.setDepsOUT(latestAssessment.getDepsOUT());
+                    // the answers are copied in the form they were stored, encoded against the same survey version
+                    if (null != latestAssessment.getAnswers()) newAssessment.setAnswers(latestAssessment.getAnswers());
+                    else newAssessment.setResults(new HashMap<>(latestAssessment.getResults()));
+                    if (null != latestAssessment.getQanswers()) newAssessment.setQanswers(new HashMap<>(latestAssessment.getQanswers()));
+                    newAssessment = assmRepo.save(newAssessment);
+                    if (newApp.getAssessments() == null) newApp.setAssessments(new ArrayList<>());
+                    newApp.getAssessments().add(newAssessment);
+                    newApp.setLatestAssessment(digestService.digestOf(newAssessment));
+
+                    //Copy review
+                    if (currReview != null) {
+                        ApplicationAssessmentReview newReview = new ApplicationAssessmentReview(
+                                currReview.getReviewDate(),
+                                newAssessment,
+                                currReview.getReviewDecision(),
+                                currReview.getReviewEstimate(),
+                                currReview.getReviewNotes(),
+                                currReview.getWorkPriority(),
+                                currReview.getBusinessPriority());
+                        newReview.setId(UUID.randomUUID().toString());
+                        newReview = reviewRepository.insert(newReview);
+                        newApp.setReview(newReview);
+                    }
+                }
+
+                newApp = appsRepo.insert(newApp);
+                copies.add(newApp);
+                ids.add(newApp.getId());
+            }
+        } finally {
+            // whatever was copied is attached to the customer, so a failure part way through leaves no orphans. A $push
+            // rather than a save of the customer, so changes made to it meanwhile aren't overwritten
+            if (!copies.isEmpty()) {
+                String collection = mongoOps.getCollectionName(Applications.class);
+                List<Object> refs = new ArrayList<>(copies.size());
+                for (Applications copy : copies) refs.add(new DBRef(collection, copy.getId()));
+                int attached = mongoOps.getCollection(mongoOps.getCollectionName(Customer.class)).update(new BasicDBObject("_id", custId),
+                        new BasicDBObject("$push", new BasicDBObject(CUSTOMER_APPLICATIONS, new BasicDBObject("$each", refs)))).getN();
+                if (attached == 0) {
+                    log.error("copy....customer {} was deleted while copying, {} copies not attached", custId, copies.size());
+                } else {
+                    summaryService.update(custId, CustomerSummaryService.NONE, CustomerSummaryService.contributionOf(copies));
+                    domainCache.changed(custId);
+                }
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,146 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.AssessmentDigest;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.web.api.ScoringEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Builds the AssessmentDigest embedded in each application for its latest assessment.
+ * <p>
+ * Write paths that add or remove assessments set the digest on the application before saving it, and
+ * backfillMissing() populates it for applications written before the digest existed.
+ */
+@Service
+public class AssessmentDigestService {
+    private final Logger log = LoggerFactory.getLogger(AssessmentDigestService.class);
+
+    static final int BATCH_SIZE = 500;
+
+    private final MongoOperations mongoOps;
+    private final ScoringService scoring;
+
+    public AssessmentDigestService(MongoOperations mongoOps, ScoringService scoring) {
+        this.mongoOps = mongoOps;
+        this.scoring = scoring;
+    }
+
+    /**
+     * @return the digest of the assessment, or null if there is no assessment
+     */
+    public AssessmentDigest digestOf(Assessments assessment) {
+        if (assessment == null) return null;
+        ScoringEngine.Score score = scoring.score(assessment);
+
+        AssessmentDigest digest = new AssessmentDigest();
+        digest.setAssessmentId(assessment.getId());
+        digest.setDatetime(assessment.getDatetime());
+        digest.setRed(score.getRed());
+        digest.setAmber(score.getAmber());
+        digest.setGreen(score.getGreen());
+        digest.setUnknown(score.getUnknown());
+        digest.setAnswered(score.getAnswered());
+        digest.setIncomplete(score.getUnknown());
+        digest.setConfidence(score.getConfidence());
+        if (null != assessment.getDepsIN()) digest.setDepsIN(new ArrayList<>(assessment.getDepsIN()));
+        if (null != assessment.getDepsOUT()) digest.setDepsOUT(new ArrayList<>(assessment.getDepsOUT()));
+        return digest;
+    }
+
+    /**
+     * @return the digest of the last of the assessments, or null if there are none
+     */
+    public AssessmentDigest digestOfLatest(List<Assessments> assessments) {
+        return null == assessments || assessments.isEmpty() ? null : digestOf(assessments.get(assessments.size() - 1));
+    }
+
+    /**
+     * @return the digest of the application's latest assessment, only resolving the assessment history for
+     * applications that predate the digest
+     */
+    public AssessmentDigest latestOf(Applications app) {
+        if (null != app.getLatestAssessment()) return app.getLatestAssessment();
+        return digestOfLatest(app.getAssessments());
+    }
+
+    /**
+     * Populates latestAssessment on every application that has assessments but no digest yet
+     */
+    public void backfillMissing() {
+        DBObject missing = new BasicDBObject("latestAssessment", new BasicDBObject("$exists", false))
+                .append("Assessments.0", new BasicDBObject("$exists", true));
+
+        // app id -> id of its latest assessment
+        Map<Object, Object> latest = new LinkedHashMap<>();
+        try (DBCursor cursor = mongoOps.getCollection(mongoOps.getCollectionName(Applications.class))
+                .find(missing, new BasicDBObject("Assessments", 1))) {
+            for (DBObject app : cursor) {
+                List<?> refs = (List<?>) app.get("Assessments");
+                Object ref = refs.get(refs.size() - 1);
+                if (ref instanceof DBRef) latest.put(app.get("_id"), ((DBRef) ref).getId());
+            }
+        }
+        if (latest.isEmpty()) return;
+        log.info("Building latest assessment digest for {} application(s)", latest.size());
+
+        for (List<Map.Entry<Object, Object>> batch : Lists.partition(new ArrayList<>(latest.entrySet()), BATCH_SIZE)) {
+            List<Object> assessmentIds = new ArrayList<>(batch.size());
+            for (Map.Entry<Object, Object> e : batch) assessmentIds.add(e.getValue());
+            Map<Object, Assessments> assessments = new HashMap<>();
+            for (Assessments a : mongoOps.find(query(where("_id").in(assessmentIds)), Assessments.class))
+                assessments.put(a.getId(), a);
+
+            BulkOperations updates = mongoOps.bulkOps(BulkOperations.BulkMode.UNORDERED, Applications.class);
+            int pending = 0;
+            for (Map.Entry<Object, Object> e : batch) {
+                Assessments assessment = assessments.get(e.getValue());
+                if (null == assessment) continue; // dangling reference
+                updates.updateOne(query(where("_id").is(e.getKey())), Update.update("latestAssessment", digestOf(assessment)));
+                pending++;
+            }
+            if (pending > 0) updates.execute();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Job;
+import com.redhat.gps.pathfinder.domain.Member;
+import com.redhat.gps.pathfinder.web.api.security.JwtUserDetailsCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Deletes customers or applications along with everything hanging off them (members, applications, assessments and reviews).
+ * <p>
+ * The descendants are gathered from the raw documents in one pass of $in batched queries, the parents are detached
+ * (customer removed, or the applications $pull'ed from its list in a single update) and then every collection is
+ * cleared with one multi-document remove per batch of ids. Once the parents are detached the descendants are
+ * unreachable, so when there are more than BACKGROUND_THRESHOLD of them they're removed by a restartable job and the
+ * caller returns straight away.
+ */
+@Service
+public class CascadeDeleteService implements JobHandler {
+    private final Logger log = LoggerFactory.getLogger(CascadeDeleteService.class);
+
+    static final int BATCH_SIZE = 500;
+    static final int BACKGROUND_THRESHOLD = 2000;
+
+    // mongo field names of the DBRef properties
+    private static final String CUSTOMER_APPLICATIONS = "Applications";
+    private static final String APPLICATION_CUSTOMER = "customerId";
+    private static final String APPLICATION_ASSESSMENTS = "Assessments";
+    private static final String APPLICATION_REVIEW = "review";
+    private static final String MEMBER_CUSTOMER = "customerId";
+
+    public static final String JOB_TYPE = "delete";
+    // job parameters, the ids left to remove
+    private static final String APPLICATIONS = "applications";
+    private static final String ASSESSMENTS = "assessments";
+    private static final String REVIEWS = "reviews";
+
+    public enum Outcome {
+        /** one of the customers or applications doesn't exist, nothing was deleted */
+        NOT_FOUND,
+        /** everything is gone */
+        DELETED,
+        /** the parents are gone, their descendants are being removed in the background */
+        ACCEPTED
+    }
+
+    public static final class Result {
+        private final Outcome outcome;
+        private final Job job;
+
+        private Result(Outcome outcome, Job job) {
+            this.outcome = outcome;
+            this.job = job;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return the job removing the descendants when the outcome is ACCEPTED, otherwise null
+         */
+        public Job getJob() {
+            return job;
+        }
+    }
+
+    private static final Result NOT_FOUND = new Result(Outcome.NOT_FOUND, null);
+    private static final Result DELETED = new Result(Outcome.DELETED, null);
+    private static final IntConsumer NO_PROGRESS = batch -> {
+    };
+
+    private final MongoOperations mongoOps;
+    private final CustomerSummaryService summaryService;
+    private final DomainCacheService domainCache;
+    private final JwtUserDetailsCache userDetailsCache;
+    private final JobService jobs;
+
+    public CascadeDeleteService(MongoOperations mongoOps, CustomerSummaryService summaryService, DomainCacheService domainCache,
+                                JwtUserDetailsCache userDetailsCache, JobService jobs) {
+        this.mongoOps = mongoOps;
+        this.summaryService = summaryService;
+        this.domainCache = domainCache;
+        this.userDetailsCache = userDetailsCache;
+        this.jobs = jobs;
+        jobs.register(this);
+    }
+
+    @Override
+    public String getType() {
+        return JOB_TYPE;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    /**
+     * Remove the descendants of parents that were already detached
+     *
+     * @return the number of documents removed from each collection
+     */
+    @Override
+    public Object run(Job job, JobContext context) {
+        List<Object> appIds = ids(job, APPLICATIONS);
+        List<Object> assessmentIds = ids(job, ASSESSMENTS);
+        List<Object> reviewIds = ids(job, REVIEWS);
+        long total = appIds.size() + assessmentIds.size() + reviewIds.size();
+        AtomicLong done = new AtomicLong();
+        return removeAll(appIds, assessmentIds, reviewIds, batch -> context.progress(done.addAndGet(batch), total));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> ids(Job job, String parameter) {
+        Object ids = null == job.getParameters() ? null : job.getParameters().get(parameter);
+        return ids instanceof List ? (List<Object>) ids : new ArrayList<>();
+    }
+
+    /**
+     * Delete the customers with their members, applications, assessments and reviews.
+     *
+     * @param owner - username the background job, if there's one, is submitted under
+     */
+    public Result deleteCustomers(String owner, Collection<String> custIds) {
+        Set<String> ids = new LinkedHashSet<>(custIds);
+        List<Object> appIds = new ArrayList<>();
+        int found = 0;
+        try (DBCursor cursor = collection(Customer.class).find(in("_id", new ArrayList<>(ids)), new BasicDBObject(CUSTOMER_APPLICATIONS, 1))) {
+            for (DBObject customer : cursor) {
+                found++;
+                appIds.addAll(refIds(customer, CUSTOMER_APPLICATIONS));
+            }
+        }
+        if (found < ids.size()) {
+            log.error("deleteCustomers....customer(s) not found in {}", ids);
+            return NOT_FOUND;
+        }
+
+        Map<Object, DBObject> apps = findRawApplications(appIds, descendantFields());
+        // applications that lost their place in the customer's list still belong to it
+        try (DBCursor cursor = collection(Applications.class).find(in(APPLICATION_CUSTOMER, new ArrayList<>(ids)), descendantFields())) {
+            for (DBObject app : cursor) apps.putIfAbsent(app.get("_id"), app);
+        }
+
+        List<Object> customers = new ArrayList<>(ids);
+        // only the members the customers own, the members list of an imported customer can point at someone else's
+        List<Object> memberIds = new ArrayList<>();
+        try (DBCursor cursor = collection(Member.class).find(in(MEMBER_CUSTOMER, customers), new BasicDBObject("_id", 1))) {
+            for (DBObject member : cursor) memberIds.add(member.get("_id"));
+        }
+        remove(Customer.class, customers, NO_PROGRESS);
+        collection(Member.class).remove(in(MEMBER_CUSTOMER, customers));
+        for (String custId : ids) domainCache.changed(custId);
+        // tokens of the removed members must stop resolving to their old roles
+        for (Object username : memberIds) userDetailsCache.invalidate(username.toString());
+        log.info("deleteCustomers....detached {} customer(s) with {} application(s)", ids.size(), apps.size());
+
+        return removeDescendants(owner, ids.size() == 1 ? ids.iterator().next() : null, apps);
+    }
+
+    /**
+     * Delete the customer's applications with their assessments and reviews, and take them off its summary.
+     *
+     * @param owner - username the background job, if there's one, is submitted under
+     */
+    public Result deleteApplications(String owner, String custId, Collection<String> appIds) {
+        DBObject customer = collection(Customer.class).findOne(new BasicDBObject("_id", custId), new BasicDBObject(CUSTOMER_APPLICATIONS, 1));
+        if (customer == null) {
+            log.error("deleteApplications....customer not found {}", custId);
+            return NOT_FOUND;
+        }
+
+        Map<String, DBRef> refs = new LinkedHashMap<>();
+        for (Object ref : refs(customer, CUSTOMER_APPLICATIONS)) refs.put(((DBRef) ref).getId().toString(), (DBRef) ref);
+        List<DBRef> deleted = new ArrayList<>();
+        for (String appId : new LinkedHashSet<>(appIds)) {
+            DBRef ref = refs.get(appId);
+            if (ref == null) {
+                log.error("deleteApplications....application not found {} in customer list {}", appId, custId);
+                return NOT_FOUND;
+            }
+            deleted.add(ref);
+        }
+
+        List<Object> ids = new ArrayList<>();
+        for (DBRef ref : deleted) ids.add(ref.getId());
+        Map<Object, DBObject> apps = findRawApplications(ids, new BasicDBObject());
+        List<Applications> contributions = new ArrayList<>();
+        for (DBObject app : apps.values()) contributions.add(mongoOps.getConverter().read(Applications.class, app));
+
+        collection(Customer.class).update(new BasicDBObject("_id", custId),
+                new BasicDBObject("$pull", new BasicDBObject(CUSTOMER_APPLICATIONS, new BasicDBObject("$in", deleted))));
+        summaryService.update(custId, CustomerSummaryService.contributionOf(contributions), CustomerSummaryService.NONE);
+        domainCache.changed(custId);
+        log.info("deleteApplications....detached {} application(s) from customer {}", deleted.size(), custId);
+
+        return removeDescendants(owner, custId, apps);
+    }
+
+    private Result removeDescendants(String owner, String custId, Map<Object, DBObject> apps) {
+        List<Object> appIds = new ArrayList<>(apps.keySet());
+        List<Object> assessmentIds = new ArrayList<>();
+        List<Object> reviewIds = new ArrayList<>();
+        for (DBObject app : apps.values()) {
+            assessmentIds.addAll(refIds(app, APPLICATION_ASSESSMENTS));
+            reviewIds.addAll(refIds(app, APPLICATION_REVIEW));
+        }
+
+        if (appIds.size() + assessmentIds.size() + reviewIds.size() <= BACKGROUND_THRESHOLD) {
+            removeAll(appIds, assessmentIds, reviewIds, NO_PROGRESS);
+            return DELETED;
+        }
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put(APPLICATIONS, appIds);
+        parameters.put(ASSESSMENTS, assessmentIds);
+        parameters.put(REVIEWS, reviewIds);
+        return new Result(Outcome.ACCEPTED, jobs.submit(JOB_TYPE, owner, custId, parameters));
+    }
+
+    private Map<String, Integer> removeAll(List<Object> appIds, List<Object> assessmentIds, List<Object> reviewIds, IntConsumer onBatch) {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> removed = new LinkedHashMap<>();
+        // children first, so an interrupted delete leaves nothing pointing at a missing document
+        removed.put(REVIEWS, remove(ApplicationAssessmentReview.class, reviewIds, onBatch));
+        removed.put(ASSESSMENTS, remove(Assessments.class, assessmentIds, onBatch));
+        removed.put(APPLICATIONS, remove(Applications.class, appIds, onBatch));
+        log.info("removed {} in {}ms", removed, System.currentTimeMillis() - start);
+        return removed;
+    }
+
+    /**
+     * @param fields - projection, empty for the whole document
+     */
+    private Map<Object, DBObject> findRawApplications(List<Object> ids, DBObject fields) {
+        Map<Object, DBObject> result = new LinkedHashMap<>();
+        for (List<Object> batch : Lists.partition(ids, BATCH_SIZE)) {
+            try (DBCursor cursor = collection(Applications.class).find(in("_id", batch), fields)) {
+                for (DBObject dbo : cursor) result.put(dbo.get("_id"), dbo);
+            }
+        }
+        return result;
+    }
+
+    private static DBObject descendantFields() {
+        return new BasicDBObject(APPLICATION_ASSESSMENTS, 1).append(APPLICATION_REVIEW, 1);
+    }
+
+    private int remove(Class<?> type, List<Object> ids, IntConsumer onBatch) {
+        int removed = 0;
+        for (List<Object> batch : Lists.partition(new ArrayList<>(new LinkedHashSet<>(ids)), BATCH_SIZE)) {
+            removed += collection(type).remove(in("_id", batch)).getN();
+            onBatch.accept(batch.size());
+        }
+        return removed;
+    }
+
+    private DBCollection collection(Class<?> type) {
+        return mongoOps.getCollection(mongoOps.getCollectionName(type));
+    }
+
+    private static DBObject in(String field, List<?> values) {
+        return new BasicDBObject(field, new BasicDBObject("$in", values));
+    }
+
+    private static List<Object> refs(DBObject source, String field) {
+        List<Object> refs = new ArrayList<>();
+        Object value = source.get(field);
+        if (value instanceof DBRef) {
+            refs.add(value);
+        } else if (value instanceof Collection) {
+            for (Object o : (Collection<?>) value) {
+                if (o instanceof DBRef) refs.add(o);
+            }
+        }
+        return refs;
+    }
+
+    private static List<Object> refIds(DBObject source, String field) {
+        List<Object> ids = new ArrayList<>();
+        for (Object ref : refs(source, field)) ids.add(((DBRef) ref).getId());
+        return ids;
+    }
+}
@@ -0,0 +1,155 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Job;
+import com.redhat.gps.pathfinder.repository.CustomerRepository;
+import com.redhat.gps.pathfinder.service.util.JsonCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Writes customers, with their applications and the latest assessment of each, in the form read by the
+ * CustomerImportService. Streamed customer by customer, and application batch by application batch, so the export
+ * never sits in memory as a whole. Large exports can be run as a job whose output is downloaded once it's done.
+ */
+@Service
+public class CustomerExportService implements JobHandler {
+    private final Logger log = LoggerFactory.getLogger(CustomerExportService.class);
+
+    public static final String JOB_TYPE = "export";
+    public static final String CUSTOMER_IDS = "customerIds";
+
+    private final CustomerRepository custRepo;
+    private final JsonCodec json;
+
+    public CustomerExportService(CustomerRepository custRepo, JsonCodec json, JobService jobs) {
+        this.custRepo = custRepo;
+        this.json = json;
+        jobs.register(this);
+    }
+
+    @Override
+    public String getType() {
+        return JOB_TYPE;
+    }
+
+    @Override
+    public boolean isRestartable() {
+        return true;
+    }
+
+    /**
+     * @return the name of the exported file
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object run(Job job, JobContext context) throws IOException {
+        List<String> custIds = new ArrayList<>((List<String>) job.getParameters().get(CUSTOMER_IDS));
+        String filename = filenameFor(custIds);
+        export(custIds, context.createOutput(null == filename ? "export.json" : filename, MediaType.APPLICATION_JSON_UTF8_VALUE),
+                done -> context.progress(done, custIds.size()));
+        return filename;
+    }
+
+    /**
+     * @return "&lt;customer name&gt;_export.json" when a single customer is exported, otherwise null
+     */
+    public String filenameFor(List<String> custIds) {
+        if (custIds.size() != 1) return null;
+        Customer c = custRepo.findOneWithoutApplications(custIds.get(0));
+        return null == c ? null : c.getName().replaceAll(" ", "-") + "_export.json";
+    }
+
+    /**
+     * Write the customers as a json array, skipping those that don't exist. The stream is closed once it's written.
+     */
+    public void export(List<String> custIds, OutputStream out) throws IOException {
+        export(custIds, out, done -> {
+        });
+    }
+
+    /**
+     * @param onCustomer - called with the number of customers handled so far
+     * @see #export(List, OutputStream)
+     */
+    public void export(List<String> custIds, OutputStream out, IntConsumer onCustomer) throws IOException {
+        try (JsonGenerator gen = json.createGenerator(out)) {
+            gen.writeStartArray();
+            gen.flush();
+            int done = 0;
+            for (String custId : custIds) {
+                onCustomer.accept(done++);
+                Customer c = custRepo.findOneWithoutApplications(custId);
+                if (null == c) {
+                    log.warn("exportCustomer():: customer {} not found, skipping", custId);
+                    continue;
+                }
+                log.debug("Adding customer: " + c.getName());
+
+                ObjectNode customer = json.valueToTree(c);
+                customer.remove("applications");
+                gen.writeStartObject();
+                Iterator<Map.Entry<String, JsonNode>> fields = customer.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    gen.writeFieldName(field.getKey());
+                    gen.writeTree(field.getValue());
+                }
+
+                // only the latest assessment of each application is exported
+                gen.writeArrayFieldStart("applications");
+                try {
+                    custRepo.forEachApplication(custId, true, app -> {
+                        try {
+                            gen.writeObject(app);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                gen.writeEndArray();
+                gen.writeEndObject();
+                gen.flush();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Job;
+import com.redhat.gps.pathfinder.domain.Member;
+import com.redhat.gps.pathfinder.service.util.JsonCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Imports the payload produced by the customer export.
+ * <p>
+ * The upload is parsed one customer at a time, customers are grouped into batches, and each batch resolves its id and
+ * name collisions with one $in query per collection and is written with bulk inserts, so the number of round-trips
+ * grows with the number of batches rather than the number of documents.
+ * Large uploads can be imported as a job (see JobService), with progress reported per batch.
+ */
+@Service
+public class CustomerImportService implements JobHandler {
+    private final Logger log = LoggerFactory.getLogger(CustomerImportService.class);
+
+    static final int CUSTOMER_BATCH_SIZE = 50;
+    static final int BATCH_SIZE = 500;
+    private static final int MAX_NAME_SUFFIX = 20;
+
+    public static final String JOB_TYPE = "import";
+
+    private final MongoOperations mongoOps;
+    private final JsonCodec json;
+    private final AssessmentDigestService digestService;
+    private final DomainCacheService domainCache;
+
+    public CustomerImportService(MongoOperations mongoOps, JsonCodec json, AssessmentDigestService digestService,
+                                 DomainCacheService domainCache, JobService jobs) {
+        this.mongoOps = mongoOps;
+        this.json = json;
+        this.digestService = digestService;
+        this.domainCache = domainCache;
+        jobs.register(this);
+    }
+
+    @Override
+    public String getType() {
+        return JOB_TYPE;
+    }
+
+    /**
+     * Importing twice creates the customers twice, under another name
+     */
+    @Override
+    public boolean isRestartable() {
+        return false;
+    }
+
+    /**
+     * @return the ids the customers were imported under
+     */
+    @Override
+    public Object run(Job job, JobContext context) throws IOException {
+        List<String> imported = new ArrayList<>();
+        try (InputStream in = context.openInput()) {
+            importCustomers(in, batch -> {
+                batch.forEach(domainCache::changed);
+                imported.addAll(batch);
+                context.progress(imported.size(), 0);
+            });
+        }
+        return imported;
+    }
+
+    /**
+     * @param in - a json array of customers, as written by the export
+     * @return the ids the customers were imported under
+     * @throws IllegalArgumentException if the payload is not an array, or no free name could be found for a customer.
+     *                                  Batches before the one that failed stay imported.
+     */
+    public List<String> importCustomers(InputStream in) throws IOException {
+        List<String> imported = new ArrayList<>();
+        importCustomers(in, imported::addAll);
+        return imported;
+    }
+
+    /**
+     * @param onBatch - called with the ids of each batch of customers once it's imported
+     * @see #importCustomers(InputStream)
+     */
+    public void importCustomers(InputStream in, Consumer<List<String>> onBatch) throws IOException {
+        ObjectReader reader = json.readerFor(Customer.class);
+        try (JsonParser parser = json.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new IllegalArgumentException("Expected a json array of customers");
+
+            List<Customer> batch = new ArrayList<>(CUSTOMER_BATCH_SIZE);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                batch.add(reader.readValue(parser));
+                if (batch.size() == CUSTOMER_BATCH_SIZE) {
+                    onBatch.accept(importBatch(batch));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) onBatch.accept(importBatch(batch));
+        }
+    }
+
+    private List<String> importBatch(List<Customer> customers) {
+        List<String> result = new ArrayList<>(customers.size());
+        if (customers.isEmpty()) return result;
+
+        resolveCustomerCollisions(customers);
+
+        List<Applications> apps = new ArrayList<>();
+        List<Member> members = new ArrayList<>();
+        for (Customer customer : customers) {
+            log.debug("importCustomer():: importing customer = " + customer.getName());
+            if (null != customer.getApplications()) {
+                for (Applications app : customer.getApplications()) {
+                    app.setCustomerId(customer.getId());
+                    apps.add(app);
+                }
+            }
+            if (null != customer.getMembers()) {
+                for (Member m : customer.getMembers()) {
+                    m.setCustomerId(customer.getId());
+                    members.add(m);
+                }
+            }
+        }
+        for (List<Applications> chunk : Lists.partition(apps, BATCH_SIZE)) importApplications(chunk);
+        Set<Member> rejected = importMembers(members);
+
+        for (Customer customer : customers) {
+            // a rejected member is someone else's, the customer mustn't refer to or count it
+            if (null != customer.getMembers()) customer.getMembers().removeIf(rejected::contains);
+            customer.setSummary(CustomerSummaryService.summarise(customer));
+            result.add(customer.getId());
+        }
+        mongoOps.insert(customers, Customer.class);
+        return result;
+    }
+
+    /**
+     * Customers whose id is in use get a new id, and if their name is also taken, the first free "name_N" suffix
+     */
+    private void resolveCustomerCollisions(List<Customer> customers) {
+        Set<Object> takenIds = existingIds(Customer.class, ids(customers, Customer::getId));
+        List<Customer> renamed = new ArrayList<>();
+        for (Customer customer : customers) {
+            if (null == customer.getId() || !takenIds.add(customer.getId())) {
+                customer.setId(UUID.randomUUID().toString());
+                renamed.add(customer);
+            }
+        }
+        if (renamed.isEmpty()) return;
+
+        List<String> candidates = new ArrayList<>();
+        for (Customer customer : renamed) candidates.addAll(candidateNames(customer.getName()));
+        Set<Object> takenNames = existing(Customer.class, "name", candidates);
+        for (Customer customer : renamed) {
+            String name = null;
+            for (String candidate : candidateNames(customer.getName())) {
+                if (takenNames.add(candidate)) {
+                    name = candidate;
+                    break;
+                }
+            }
+            if (null == name) {
+                log.error("Customer already exists with name {}", customer.getName());
+                throw new IllegalArgumentException("Customer already exists with name " + customer.getName());
+            }
+            customer.setName(name);
+        }
+    }
+
+    private static List<String> candidateNames(String name) {
+        List<String> result = new ArrayList<>(MAX_NAME_SUFFIX);
+        result.add(name);
+        for (int i = 1; i < MAX_NAME_SUFFIX; i++) result.add(name + "_" + i);
+        return result;
+    }
+
+    private void importApplications(List<Applications> apps) {
+        List<Assessments> assessments = new ArrayList<>();
+        List<ApplicationAssessmentReview> reviews = new ArrayList<>();
+        for (Applications app : apps) {
+            // only the latest assessment is carried over
+            if (null != app.getAssessments() && !app.getAssessments().isEmpty()) {
+                Assessments latest = app.getAssessments().get(app.getAssessments().size() - 1);
+                app.setAssessments(Lists.newArrayList(latest));
+                assessments.add(latest);
+            } else {
+                app.setAssessments(null);
+            }
+            if (null != app.getReview()) {
+                ApplicationAssessmentReview review = app.getReview();
+                // point the review at the imported copy of the assessment it was made against
+                if (null != review.getAssessments() && null != app.getAssessments()
+                        && null != review.getAssessments().getId() && review.getAssessments().getId().equals(app.getAssessments().get(0).getId()))
+                    review.setAssessments(app.getAssessments().get(0));
+                reviews.add(review);
+            }
+        }
+
+        // generate new ids for any that are in use
+        Set<Object> takenApps = existingIds(Applications.class, ids(apps, Applications::getId));
+        for (Applications app : apps)
+            if (null == app.getId() || !takenApps.add(app.getId())) app.setId(UUID.randomUUID().toString());
+        Set<Object> takenAssessments = existingIds(Assessments.class, ids(assessments, Assessments::getId));
+        for (Assessments a : assessments)
+            if (null == a.getId() || !takenAssessments.add(a.getId())) a.setId(UUID.randomUUID().toString());
+        Set<Object> takenReviews = existingIds(ApplicationAssessmentReview.class, ids(reviews, ApplicationAssessmentReview::getId));
+        for (ApplicationAssessmentReview r : reviews)
+            if (null == r.getId() || !takenReviews.add(r.getId())) r.setId(UUID.randomUUID().toString());
+        for (Applications app : apps) app.setLatestAssessment(digestService.digestOfLatest(app.getAssessments()));
+
+        // referenced documents first, so the DBRefs carry the final ids
+        if (!assessments.isEmpty()) mongoOps.insert(assessments, Assessments.class);
+        if (!reviews.isEmpty()) mongoOps.insert(reviews, ApplicationAssessmentReview.class);
+        mongoOps.insert(apps, Applications.class);
+    }
+
+    /**
+     * Insert the members whose username is free
+     *
+     * @return the members that weren't inserted (compared by identity, a username can be rejected for one customer in
+     * the batch and inserted for another)
+     */
+    private Set<Member> importMembers(List<Member> members) {
+        Set<Member> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (members.isEmpty()) return rejected;
+        List<Object> usernames = new ArrayList<>();
+        for (Member m : members) {
+            if (null != m.getUsername()) usernames.add(m.getUsername());
+        }
+        Set<Object> taken = existingIds(Member.class, usernames);
+
+        List<Member> toInsert = new ArrayList<>();
+        for (Member m : members) {
+            if (null == m.getUsername()) {
+                rejected.add(m);
+            } else if (taken.add(m.getUsername())) {
+                toInsert.add(m);
+            } else {
+                log.error("Unable to add user to customer because the username already exists [" + m.getUsername() + "]");
+                rejected.add(m);
+            }
+        }
+        for (List<Member> chunk : Lists.partition(toInsert, BATCH_SIZE)) mongoOps.insert(chunk, Member.class);
+        return rejected;
+    }
+
+    private static <T> List<Object> ids(Collection<T> entities, Function<T, String> id) {
+        List<Object> result = new ArrayList<>(entities.size());
+        for (T e : entities) {
+            if (null != id.apply(e)) result.add(id.apply(e));
+        }
+        return result;
+    }
+
+    private Set<Object> existingIds(Class<?> type, Collection<?> ids) {
+        return existing(type, "_id", ids);
+    }
+
+    /**
+     * @return the values of the field that already exist in the collection, found with one $in query per BATCH_SIZE values
+     */
+    private Set<Object> existing(Class<?> type, String field, Collection<?> values) {
+        Set<Object> result = new HashSet<>();
+        for (List<?> batch : Lists.partition(new ArrayList<>(new HashSet<>(values)), BATCH_SIZE)) {
+            try (DBCursor cursor = mongoOps.getCollection(mongoOps.getCollectionName(type))
+                    .find(new BasicDBObject(field, new BasicDBObject("$in", batch)), new BasicDBObject(field, 1))) {
+                for (DBObject dbo : cursor) result.add(dbo.get(field));
+            }
+        }
+        return result;
+    }
+}
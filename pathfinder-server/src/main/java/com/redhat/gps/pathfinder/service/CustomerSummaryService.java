@@ -0,0 +1,146 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.CustomerSummary;
+import com.redhat.gps.pathfinder.repository.CustomerRepository;
+import com.redhat.gps.pathfinder.web.api.model.ApplicationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Maintains the CustomerSummary embedded in each Customer document.
+ * <p>
+ * Write paths take a contribution snapshot of the application before and after their change and call update(),
+ * which applies the difference with an atomic $inc. rebuild() recomputes the summary from the object graph for when it drifts.
+ */
+@Service
+public class CustomerSummaryService {
+    private final Logger log = LoggerFactory.getLogger(CustomerSummaryService.class);
+
+    public static final CustomerSummary NONE = new CustomerSummary();
+
+    private final MongoOperations mongoOps;
+    private final CustomerRepository custRepo;
+
+    public CustomerSummaryService(MongoOperations mongoOps, CustomerRepository custRepo) {
+        this.mongoOps = mongoOps;
+        this.custRepo = custRepo;
+    }
+
+    /**
+     * @return what a single application adds to its customer's summary
+     */
+    public static CustomerSummary contributionOf(Applications app) {
+        if (app == null) return NONE;
+        boolean target = ApplicationType.StereotypeEnum.TARGETAPP.toString().equalsIgnoreCase(app.getStereotype());
+        boolean assessed = target && app.isAssessed();
+        boolean reviewed = target && app.getReview() != null;
+        return new CustomerSummary(1, target ? 1 : 0, assessed ? 1 : 0, reviewed ? 1 : 0, 0);
+    }
+
+    /**
+     * @return what a set of applications adds to their customer's summary
+     */
+    public static CustomerSummary contributionOf(Collection<Applications> apps) {
+        CustomerSummary result = new CustomerSummary();
+        if (apps == null) return result;
+        for (Applications app : apps) {
+            CustomerSummary c = contributionOf(app);
+            result.setApplications(result.getApplications() + c.getApplications());
+            result.setTargetApplications(result.getTargetApplications() + c.getTargetApplications());
+            result.setAssessed(result.getAssessed() + c.getAssessed());
+            result.setReviewed(result.getReviewed() + c.getReviewed());
+        }
+        return result;
+    }
+
+    /**
+     * Computes the summary from an in-memory customer, its applications need to be resolved already
+     */
+    public static CustomerSummary summarise(Customer customer) {
+        CustomerSummary result = contributionOf(customer.getApplications());
+        result.setMembers(customer.getMembers() == null ? 0 : customer.getMembers().size());
+        return result;
+    }
+
+    /**
+     * reviewed + assessed / potential total (ie. target applications * 2)
+     */
+    public static int percentageComplete(CustomerSummary summary) {
+        if (summary == null || summary.getTargetApplications() == 0) return 0;
+        return (int) (100 * (double) (summary.getAssessed() + summary.getReviewed()) / (double) (summary.getTargetApplications() * 2));
+    }
+
+    public void update(String custId, CustomerSummary before, CustomerSummary after) {
+        Update update = new Update();
+        boolean changed = inc(update, "applications", after.getApplications() - before.getApplications());
+        changed |= inc(update, "targetApplications", after.getTargetApplications() - before.getTargetApplications());
+        changed |= inc(update, "assessed", after.getAssessed() - before.getAssessed());
+        changed |= inc(update, "reviewed", after.getReviewed() - before.getReviewed());
+        changed |= inc(update, "members", after.getMembers() - before.getMembers());
+        if (changed) {
+            log.debug("update summary for customer {} -> {}", custId, update);
+            mongoOps.updateFirst(query(where("_id").is(custId)), update, Customer.class);
+        }
+    }
+
+    public void membersChanged(String custId, int delta) {
+        update(custId, NONE, new CustomerSummary(0, 0, 0, 0, delta));
+    }
+
+    private static boolean inc(Update update, String field, int delta) {
+        if (delta == 0) return false;
+        update.inc("summary." + field, delta);
+        return true;
+    }
+
+    public CustomerSummary rebuild(String custId) {
+        Customer customer = custRepo.findOneWithGraph(custId);
+        if (customer == null) return null;
+        CustomerSummary summary = summarise(customer);
+        mongoOps.updateFirst(query(where("_id").is(custId)), Update.update("summary", summary), Customer.class);
+        log.debug("rebuilt summary for customer {} -> {}", custId, summary);
+        return summary;
+    }
+
+    /**
+     * Populates the summary for customers created before it existed
+     */
+    public void rebuildMissing() {
+        List<Customer> missing = mongoOps.find(query(where("summary").exists(false)), Customer.class);
+        if (!missing.isEmpty()) log.info("Building portfolio summary for {} customer(s)", missing.size());
+        for (Customer c : missing) rebuild(c.getId());
+    }
+}
@@ -0,0 +1,266 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Application dependency graph held as compact int adjacency arrays (CSR), where an edge i -> j means
+ * application i depends on application j, so j has to be adopted first.
+ * <p>
+ * Strongly connected components (ie. dependency cycles) are found with an iterative Tarjan, so deep chains can't
+ * overflow the stack. Because Tarjan emits components dependencies-first, the adoption schedule is then a single
+ * pass over the components.
+ */
+public final class DependencyGraph {
+
+    private final String[] ids;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private DependencyGraph(String[] ids, int[] offsets, int[] targets) {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * @param ids      - the application ids, their position is the node index
+     * @param outbound - per application, the ids it depends on (ie. Assessments.depsOUT)
+     * @param inbound  - per application, the ids that depend on it (ie. Assessments.depsIN), may be null
+     *                 Ids that aren't in the graph and self references are ignored, duplicate edges are collapsed.
+     */
+    public static DependencyGraph build(List<String> ids, List<List<String>> outbound, List<List<String>> inbound) {
+        int n = ids.size();
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) index.put(ids.get(i), i);
+
+        // collect edges as from/to pairs, then counting-sort them into CSR
+        int[] from = new int[16];
+        int[] to = new int[16];
+        int edges = 0;
+        for (int i = 0; i < n; i++) {
+            for (int pass = 0; pass < 2; pass++) {
+                List<String> deps = pass == 0 ? outbound.get(i) : (inbound == null ? null : inbound.get(i));
+                if (deps == null) continue;
+                for (String dep : deps) {
+                    Integer j = index.get(dep);
+                    if (j == null || j == i) continue;
+                    if (edges == from.length) {
+                        from = Arrays.copyOf(from, edges * 2);
+                        to = Arrays.copyOf(to, edges * 2);
+                    }
+                    from[edges] = pass == 0 ? i : j;
+                    to[edges] = pass == 0 ? j : i;
+                    edges++;
+                }
+            }
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < edges; e++) offsets[from[e] + 1]++;
+        for (int i = 0; i < n; i++) offsets[i + 1] += offsets[i];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] targets = new int[edges];
+        for (int e = 0; e < edges; e++) targets[fill[from[e]]++] = to[e];
+
+        // sort and de-duplicate each node's targets, compacting the arrays in place
+        int write = 0;
+        int[] compactOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Arrays.sort(targets, offsets[i], offsets[i + 1]);
+            compactOffsets[i] = write;
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                if (e > offsets[i] && targets[e] == targets[e - 1]) continue;
+                targets[write++] = targets[e];
+            }
+        }
+        compactOffsets[n] = write;
+        return new DependencyGraph(ids.toArray(new String[0]), compactOffsets, Arrays.copyOf(targets, write));
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public String getId(int node) {
+        return ids[node];
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Iterative Tarjan's algorithm.
+     *
+     * @return the component of each node. Components are numbered in reverse topological order, so every
+     * dependency of a component has a lower number than the component itself.
+     */
+    public int[] components() {
+        int n = ids.length;
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];
+        int[] edgePos = new int[n];
+        int[] callStack = new int[n];
+        int[] sccStack = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+
+        int nextIndex = 0, componentCount = 0, sp = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != -1) continue;
+            int csp = 0;
+            index[root] = low[root] = nextIndex++;
+            sccStack[sp++] = root;
+            onStack[root] = true;
+            edgePos[root] = offsets[root];
+            callStack[csp++] = root;
+
+            while (csp > 0) {
+                int v = callStack[csp - 1];
+                if (edgePos[v] < offsets[v + 1]) {
+                    int w = targets[edgePos[v]++];
+                    if (index[w] == -1) {
+                        index[w] = low[w] = nextIndex++;
+                        sccStack[sp++] = w;
+                        onStack[w] = true;
+                        edgePos[w] = offsets[w];
+                        callStack[csp++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                } else {
+                    csp--;
+                    if (csp > 0) {
+                        int parent = callStack[csp - 1];
+                        low[parent] = Math.min(low[parent], low[v]);
+                    }
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = sccStack[--sp];
+                            onStack[w] = false;
+                            component[w] = componentCount;
+                        } while (w != v);
+                        componentCount++;
+                    }
+                }
+            }
+        }
+        return component;
+    }
+
+    /**
+     * @param sizes - effort of each node, nodes that are not part of the plan should be given 0
+     * @return the adoption schedule, where members of a dependency cycle are scheduled together as one unit
+     */
+    public Schedule schedule(int[] sizes) {
+        int n = ids.length;
+        int[] component = components();
+        int componentCount = 0;
+        for (int c : component) componentCount = Math.max(componentCount, c + 1);
+
+        // group nodes by component
+        int[] memberOffsets = new int[componentCount + 1];
+        for (int c : component) memberOffsets[c + 1]++;
+        for (int c = 0; c < componentCount; c++) memberOffsets[c + 1] += memberOffsets[c];
+        int[] fill = Arrays.copyOf(memberOffsets, componentCount);
+        int[] members = new int[n];
+        for (int v = 0; v < n; v++) members[fill[component[v]]++] = v;
+
+        int[] componentSize = new int[componentCount];
+        int[] componentStart = new int[componentCount];
+        int[] componentWave = new int[componentCount];
+        for (int c = 0; c < componentCount; c++) {
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                int v = members[m];
+                componentSize[c] = Math.max(componentSize[c], sizes[v]);
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int d = component[targets[e]];
+                    if (d == c) continue;
+                    // d < c, so it's already been scheduled
+                    componentStart[c] = Math.max(componentStart[c], componentStart[d] + componentSize[d]);
+                    componentWave[c] = Math.max(componentWave[c], componentWave[d] + 1);
+                }
+            }
+        }
+
+        int[] start = new int[n];
+        int[] wave = new int[n];
+        List<int[]> cycles = new ArrayList<>();
+        for (int c = 0; c < componentCount; c++) {
+            int count = memberOffsets[c + 1] - memberOffsets[c];
+            if (count > 1) cycles.add(Arrays.copyOfRange(members, memberOffsets[c], memberOffsets[c + 1]));
+            for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                start[members[m]] = componentStart[c];
+                wave[members[m]] = componentWave[c];
+            }
+        }
+        return new Schedule(start, wave, component, cycles);
+    }
+
+    public static final class Schedule {
+        private final int[] start;
+        private final int[] wave;
+        private final int[] component;
+        private final List<int[]> cycles;
+
+        private Schedule(int[] start, int[] wave, int[] component, List<int[]> cycles) {
+            this.start = start;
+            this.wave = wave;
+            this.component = component;
+            this.cycles = cycles;
+        }
+
+        /**
+         * @return the critical-path padding of the node, ie. the effort that has to complete before it can start
+         */
+        public int getStart(int node) {
+            return start[node];
+        }
+
+        /**
+         * @return the topological wave of the node, 0 for nodes without dependencies
+         */
+        public int getWave(int node) {
+            return wave[node];
+        }
+
+        public int getComponent(int node) {
+            return component[node];
+        }
+
+        /**
+         * @return the nodes of each dependency cycle
+         */
+        public List<int[]> getCycles() {
+            return cycles;
+        }
+    }
+}
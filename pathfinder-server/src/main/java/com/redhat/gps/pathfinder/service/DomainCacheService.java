@@ -0,0 +1,128 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.QuestionMetaData;
+import com.redhat.gps.pathfinder.repository.CustomerRepository;
+import com.redhat.gps.pathfinder.repository.QuestionMetaDataRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Read-through cache of the customer aggregates the report and summary screens load over and over.
+ * <p>
+ * The cached objects are shared between requests, so callers must treat them as read only. Every endpoint that
+ * changes a customer, its applications, assessments, reviews or members calls changed() once the change is saved,
+ * which bumps the customer's version, the validator behind the ETags of its read endpoints.
+ * <p>
+ * The caches are local to each instance while the versions are shared, so the views are cached under the customer's
+ * id and version. A change made through another instance moves readers on to a new key instead of relying on an
+ * eviction that instance can't see; the views cached under older versions age out of the cache.
+ * <p>
+ * Versions are kept in their own collection rather than on the customer document, so saving a customer read before
+ * a concurrent change can't roll its version back.
+ */
+@Service
+public class DomainCacheService {
+
+    public static final String CUSTOMER_LATEST_ASSESSMENTS = "customerLatestAssessments";
+    public static final String CUSTOMER_APPLICATIONS = "customerApplications";
+    public static final String CUSTOMER = "customer";
+    public static final String QUESTION_METADATA = "questionMetaData";
+
+    static final String VERSIONS = "customer_version";
+
+    public static final List<String> CACHE_NAMES = Collections.unmodifiableList(Arrays.asList(CUSTOMER_LATEST_ASSESSMENTS, CUSTOMER_APPLICATIONS, CUSTOMER, QUESTION_METADATA));
+
+    private final MongoOperations mongoOps;
+    private final CustomerRepository custRepo;
+    private final QuestionMetaDataRepository questionRepository;
+
+    public DomainCacheService(MongoOperations mongoOps, CustomerRepository custRepo, QuestionMetaDataRepository questionRepository) {
+        this.mongoOps = mongoOps;
+        this.custRepo = custRepo;
+        this.questionRepository = questionRepository;
+    }
+
+    /**
+     * Only the latest assessment of each application is held, so an entry grows with the number of applications (as
+     * it's weighed) rather than with the customer's assessment history
+     *
+     * @param version - the customer's current version, from versionOf()
+     * @see CustomerRepository#findOneWithLatestAssessments(String)
+     */
+    @Cacheable(cacheNames = CUSTOMER_LATEST_ASSESSMENTS, key = "#custId + ':' + #version", unless = "#result == null")
+    public Customer findOneWithLatestAssessments(String custId, long version) {
+        return custRepo.findOneWithLatestAssessments(custId);
+    }
+
+    /**
+     * @param version - the customer's current version, from versionOf()
+     * @see CustomerRepository#findOneWithApplications(String)
+     */
+    @Cacheable(cacheNames = CUSTOMER_APPLICATIONS, key = "#custId + ':' + #version", unless = "#result == null")
+    public Customer findOneWithApplications(String custId, long version) {
+        return custRepo.findOneWithApplications(custId);
+    }
+
+    /**
+     * @param version - the customer's current version, from versionOf()
+     * @see CustomerRepository#findOneWithoutApplications(String)
+     */
+    @Cacheable(cacheNames = CUSTOMER, key = "#custId + ':' + #version", unless = "#result == null")
+    public Customer findOneWithoutApplications(String custId, long version) {
+        return custRepo.findOneWithoutApplications(custId);
+    }
+
+    @Cacheable(cacheNames = QUESTION_METADATA, key = "'all'")
+    public List<QuestionMetaData> findAllQuestionMetaData() {
+        return questionRepository.findAll();
+    }
+
+    /**
+     * @return the number of changes recorded for the customer, 0 if none were
+     */
+    public long versionOf(String custId) {
+        DBObject row = mongoOps.getCollection(VERSIONS).findOne(new BasicDBObject("_id", custId));
+        return null == row ? 0 : ((Number) row.get("version")).longValue();
+    }
+
+    /**
+     * Bump the customer's version, so every instance reads its views afresh
+     */
+    public void changed(String custId) {
+        mongoOps.upsert(query(where("_id").is(custId)), new Update().inc("version", 1L), VERSIONS);
+    }
+}
@@ -0,0 +1,85 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import org.springframework.stereotype.Component;
+
+/**
+ * Business throughput, published to Prometheus (see PrometheusConfiguration).
+ * <p>
+ * Report builds are counted by pathfinder_report_build_seconds_count; the build time is broken down by the number of
+ * applications in the report since that's what it grows with.
+ */
+@Component
+public class DomainMetrics {
+
+    // upper bounds of the application-count label on report builds
+    private static final int[] APPLICATION_BUCKETS = {10, 50, 200, 1000};
+
+    private final Counter assessmentsSubmitted;
+    private final Counter reviewsWritten;
+    private final Histogram reportBuilds;
+
+    public DomainMetrics(CollectorRegistry collectorRegistry) {
+        this.assessmentsSubmitted = Counter.build()
+                .name("pathfinder_assessments_submitted_total")
+                .help("Assessments submitted")
+                .register(collectorRegistry);
+        this.reviewsWritten = Counter.build()
+                .name("pathfinder_reviews_written_total")
+                .help("Reviews created or updated")
+                .register(collectorRegistry);
+        this.reportBuilds = Histogram.build()
+                .name("pathfinder_report_build_seconds")
+                .help("Time taken to load and build a customer's report, by number of applications")
+                .labelNames("applications")
+                .register(collectorRegistry);
+    }
+
+    public void assessmentSubmitted() {
+        assessmentsSubmitted.inc();
+    }
+
+    public void reviewWritten() {
+        reviewsWritten.inc();
+    }
+
+    public void reportBuilt(int applications, long nanos) {
+        reportBuilds.labels(applicationBucket(applications)).observe(nanos / 1e9);
+    }
+
+    /**
+     * @return eg. "11-50", or "1001+" above the last bucket
+     */
+    static String applicationBucket(int applications) {
+        int lower = 0;
+        for (int upper : APPLICATION_BUCKETS) {
+            if (applications <= upper) return lower + "-" + upper;
+            lower = upper + 1;
+        }
+        return lower + "+";
+    }
+}
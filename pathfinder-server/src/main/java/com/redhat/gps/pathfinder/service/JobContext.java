@@ -0,0 +1,53 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * What a running JobHandler can do with its job.
+ */
+public interface JobContext {
+
+    /**
+     * Record the progress of the job. Calls are cheap, only one update per second is written.
+     *
+     * @param total - 0 if it's not known
+     * @throws java.util.concurrent.CancellationException if the job was cancelled, the handler should let it propagate
+     */
+    void progress(long done, long total);
+
+    /**
+     * @return the payload uploaded with the job
+     * @throws IOException if the job was submitted without one
+     */
+    InputStream openInput() throws IOException;
+
+    /**
+     * @return a stream to the file the job produces, which can be downloaded once the job succeeds. Calling it again
+     * replaces the file
+     */
+    OutputStream createOutput(String filename, String contentType) throws IOException;
+}
@@ -0,0 +1,48 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.domain.Job;
+
+/**
+ * Runs one type of Job. Handlers register themselves with the JobService, usually from their constructor.
+ */
+public interface JobHandler {
+
+    /**
+     * @return the Job.type this handler runs
+     */
+    String getType();
+
+    /**
+     * @return true if running a job again after it was interrupted part way through leaves the same outcome as running
+     * it once (ie. it's idempotent). Interrupted jobs that aren't restartable are marked FAILED instead
+     */
+    boolean isRestartable();
+
+    /**
+     * @return the result recorded on the job, or null
+     * @throws java.util.concurrent.CancellationException when the context reports the job was cancelled
+     */
+    Object run(Job job, JobContext context) throws Exception;
+}
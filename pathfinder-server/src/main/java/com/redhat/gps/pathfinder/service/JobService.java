@@ -0,0 +1,352 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.mongodb.gridfs.GridFS;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.mongodb.gridfs.GridFSInputFile;
+import com.redhat.gps.pathfinder.domain.Job;
+import io.github.jhipster.config.JHipsterProperties;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Runs long operations off the request threads.
+ * <p>
+ * Jobs are persisted in the job collection and run on a bounded pool sized from the jhipster.async properties; a
+ * submit that would overflow the queue is refused rather than piling up. Each instance keeps a heartbeat on the jobs
+ * it holds. Jobs whose instance stopped beating (ie. the pod went away) are claimed by another instance: queued jobs
+ * are run again, running ones only if their handler is restartable, otherwise they're marked FAILED.
+ * <p>
+ * Cancelling is cooperative: a queued job is cancelled straight away, a running one when its handler next reports
+ * progress, which works from any instance since the flag is read back from mongo.
+ * <p>
+ * Uploaded payloads and produced files are kept in GridFS, and finished jobs are removed after RETENTION_MILLIS.
+ * The queue depth and active jobs are published as jobs.queue and jobs.active, run times as jobs.&lt;type&gt;.run and
+ * failures counted in jobs.failures.
+ */
+@Service
+public class JobService {
+    private final Logger log = LoggerFactory.getLogger(JobService.class);
+
+    static final long HEARTBEAT_SECONDS = 30;
+    static final long ABANDONED_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    static final long PROGRESS_INTERVAL_MILLIS = 1000;
+    static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+    static final String FILES = "job";
+
+    private static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private final MongoOperations mongoOps;
+    private final MongoDbFactory dbFactory;
+    private final MetricRegistry metricRegistry;
+    private final Counter failures;
+    private final Map<String, JobHandler> handlers = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService housekeeping = Executors.newSingleThreadScheduledExecutor(daemon("job-housekeeping"));
+    // identifies this process among the instances sharing the database
+    private final String instance = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    public JobService(MongoOperations mongoOps, MongoDbFactory dbFactory, JHipsterProperties jHipsterProperties, MetricRegistry metricRegistry) {
+        this.mongoOps = mongoOps;
+        this.dbFactory = dbFactory;
+        this.metricRegistry = metricRegistry;
+        JHipsterProperties.Async async = jHipsterProperties.getAsync();
+        this.executor = new ThreadPoolExecutor(async.getCorePoolSize(), Math.max(async.getCorePoolSize(), async.getMaxPoolSize()),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(async.getQueueCapacity()), daemon("job-"), new ThreadPoolExecutor.AbortPolicy());
+        this.failures = metricRegistry.counter("jobs.failures");
+        metricRegistry.register("jobs.queue", (Gauge<Integer>) () -> executor.getQueue().size());
+        metricRegistry.register("jobs.active", (Gauge<Integer>) executor::getActiveCount);
+    }
+
+    public void register(JobHandler handler) {
+        handlers.put(handler.getType(), handler);
+    }
+
+    /**
+     * Start the heartbeat, and pick up the jobs left behind by instances that went away. Called once the handlers
+     * are registered, ie. when the application is ready.
+     */
+    public void start() {
+        housekeeping.scheduleWithFixedDelay(this::housekeeping, 0, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        housekeeping.shutdownNow();
+        executor.shutdownNow();
+        try {
+            // let the other instances take over straight away rather than waiting for the heartbeat to expire
+            mongoOps.updateMulti(held(), Update.update("heartbeat", new Date(0)), Job.class);
+        } catch (Exception e) {
+            log.warn("Unable to release the jobs held by {}", instance, e);
+        }
+    }
+
+    public Job submit(String type, String owner, String customerId, Map<String, Object> parameters) {
+        return submit(type, owner, customerId, parameters, null);
+    }
+
+    /**
+     * @param input - payload for the job, kept until the job finishes. May be null
+     * @throws IllegalArgumentException if there's no handler for the type
+     * @throws RejectedExecutionException if the queue is full, the job is recorded as FAILED
+     */
+    public Job submit(String type, String owner, String customerId, Map<String, Object> parameters, InputStream input) {
+        if (!handlers.containsKey(type)) throw new IllegalArgumentException("Unknown job type " + type);
+
+        Job job = new Job();
+        job.setId(UUID.randomUUID().toString());
+        job.setType(type);
+        job.setOwner(owner);
+        job.setCustomerId(customerId);
+        job.setParameters(parameters);
+        job.setStatus(Job.Status.QUEUED);
+        job.setInstance(instance);
+        job.setCreated(new Date());
+        job.setHeartbeat(job.getCreated());
+        if (null != input) {
+            GridFSInputFile file = gridFs().createFile(input, type + "-" + job.getId());
+            file.save();
+            job.setInputFile(file.getId().toString());
+        }
+        mongoOps.insert(job);
+        log.debug("submitted {}", job);
+        enqueue(job);
+        return job;
+    }
+
+    /**
+     * @return the job, or null if there's no such job (or it finished more than RETENTION_MILLIS ago)
+     */
+    public Job find(String id) {
+        return mongoOps.findById(id, Job.class);
+    }
+
+    /**
+     * @return the job as it is after the request to cancel it, or null if there's no such job
+     */
+    public Job cancel(String id) {
+        Job job = mongoOps.findAndModify(query(where("_id").is(id).and("status").is(Job.Status.QUEUED)),
+                finish(Job.Status.CANCELLED, "Cancelled").set("cancelRequested", true), RETURN_NEW, Job.class);
+        if (null != job) {
+            removeFile(job.getInputFile());
+            return job;
+        }
+        job = mongoOps.findAndModify(query(where("_id").is(id).and("status").is(Job.Status.RUNNING)),
+                Update.update("cancelRequested", true), RETURN_NEW, Job.class);
+        return null != job ? job : find(id);
+    }
+
+    /**
+     * @return the file produced by the job, or null if it didn't produce one
+     */
+    public GridFSDBFile openOutput(Job job) {
+        return job.isOutputAvailable() ? gridFs().findOne(new ObjectId(job.getOutputFile())) : null;
+    }
+
+    private void enqueue(Job job) {
+        try {
+            executor.execute(() -> run(job.getId()));
+        } catch (RejectedExecutionException e) {
+            mongoOps.updateFirst(query(where("_id").is(job.getId())), finish(Job.Status.FAILED, "Too many jobs queued, try again later"), Job.class);
+            removeFile(job.getInputFile());
+            throw e;
+        }
+    }
+
+    private void run(String id) {
+        Date now = new Date();
+        // cancelled, or claimed by another instance, while it was queued
+        Job job = mongoOps.findAndModify(query(where("_id").is(id).and("status").is(Job.Status.QUEUED).and("instance").is(instance)),
+                new Update().set("status", Job.Status.RUNNING).set("started", now).set("heartbeat", now), RETURN_NEW, Job.class);
+        if (null == job) return;
+
+        JobHandler handler = handlers.get(job.getType());
+        if (null == handler) {
+            complete(job, finish(Job.Status.FAILED, "Unknown job type " + job.getType()));
+            return;
+        }
+        Timer runTimes = metricRegistry.timer(MetricRegistry.name("jobs", job.getType(), "run"));
+        long start = System.nanoTime();
+        try {
+            log.info("running {}", job);
+            Object result = handler.run(job, new Context(job));
+            complete(job, finish(Job.Status.SUCCEEDED, null).set("result", result));
+            log.info("finished {} in {}ms", job, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (CancellationException e) {
+            complete(job, finish(Job.Status.CANCELLED, "Cancelled"));
+            log.info("cancelled {}", job);
+        } catch (Exception e) {
+            failures.inc();
+            log.error("Job {} failed", job, e);
+            complete(job, finish(Job.Status.FAILED, null == e.getMessage() ? e.getClass().getSimpleName() : e.getMessage()));
+        } finally {
+            runTimes.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void complete(Job job, Update update) {
+        mongoOps.updateFirst(ownedRunning(job.getId()), update, Job.class);
+        removeFile(job.getInputFile());
+    }
+
+    private static Update finish(Job.Status status, String message) {
+        return new Update().set("status", status).set("message", message).set("finished", new Date());
+    }
+
+    private Query ownedRunning(String id) {
+        return query(where("_id").is(id).and("instance").is(instance).and("status").is(Job.Status.RUNNING));
+    }
+
+    private Query held() {
+        return query(where("instance").is(instance).and("status").in(Job.Status.QUEUED, Job.Status.RUNNING));
+    }
+
+    private void housekeeping() {
+        try {
+            mongoOps.updateMulti(held(), Update.update("heartbeat", new Date()), Job.class);
+            recover();
+            List<Job> expired = mongoOps.findAllAndRemove(query(where("finished").lt(new Date(System.currentTimeMillis() - RETENTION_MILLIS))), Job.class);
+            for (Job job : expired) removeFile(job.getOutputFile());
+        } catch (Exception e) {
+            log.error("Job housekeeping failed", e);
+        }
+    }
+
+    private void recover() {
+        Query abandoned = query(where("status").in(Job.Status.QUEUED, Job.Status.RUNNING)
+                .and("heartbeat").lt(new Date(System.currentTimeMillis() - ABANDONED_AFTER_MILLIS)));
+        Job job;
+        while (null != (job = mongoOps.findAndModify(abandoned, new Update().set("instance", instance).set("heartbeat", new Date()), RETURN_NEW, Job.class))) {
+            JobHandler handler = handlers.get(job.getType());
+            Update update;
+            if (job.isCancelRequested()) {
+                update = finish(Job.Status.CANCELLED, "Cancelled");
+            } else if (null == handler) {
+                update = finish(Job.Status.FAILED, "Unknown job type " + job.getType());
+            } else if (job.getStatus() == Job.Status.RUNNING && !handler.isRestartable()) {
+                update = finish(Job.Status.FAILED, "Interrupted, the instance running it went away");
+            } else {
+                log.info("picking up abandoned {}", job);
+                mongoOps.updateFirst(query(where("_id").is(job.getId())), Update.update("status", Job.Status.QUEUED), Job.class);
+                try {
+                    enqueue(job);
+                } catch (RejectedExecutionException e) {
+                    log.warn("Unable to pick up abandoned {}, the queue is full", job);
+                }
+                continue;
+            }
+            log.warn("abandoned {} -> {}", job, update);
+            mongoOps.updateFirst(query(where("_id").is(job.getId())), update, Job.class);
+            removeFile(job.getInputFile());
+        }
+    }
+
+    private GridFS gridFs() {
+        return new GridFS(dbFactory.getDb(), FILES);
+    }
+
+    private void removeFile(String fileId) {
+        if (null != fileId) gridFs().remove(new ObjectId(fileId));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name.endsWith("-") ? name + count.incrementAndGet() : name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private final class Context implements JobContext {
+        private final Job job;
+        private long lastProgress;
+
+        private Context(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public void progress(long done, long total) {
+            long now = System.currentTimeMillis();
+            if (now - lastProgress < PROGRESS_INTERVAL_MILLIS) return;
+            lastProgress = now;
+            Job current = mongoOps.findAndModify(ownedRunning(job.getId()),
+                    new Update().set("done", done).set("total", total).set("heartbeat", new Date(now)), RETURN_NEW, Job.class);
+            if (null == current || current.isCancelRequested()) throw new CancellationException();
+        }
+
+        @Override
+        public InputStream openInput() throws IOException {
+            GridFSDBFile file = null == job.getInputFile() ? null : gridFs().findOne(new ObjectId(job.getInputFile()));
+            if (null == file) throw new IOException("Job " + job.getId() + " has no input");
+            return file.getInputStream();
+        }
+
+        @Override
+        public OutputStream createOutput(String filename, String contentType) {
+            removeFile(job.getOutputFile());
+            GridFSInputFile file = gridFs().createFile(filename);
+            file.setContentType(contentType);
+            job.setOutputFile(file.getId().toString());
+            mongoOps.updateFirst(query(where("_id").is(job.getId())), Update.update("outputFile", job.getOutputFile()), Job.class);
+            return file.getOutputStream();
+        }
+    }
+}
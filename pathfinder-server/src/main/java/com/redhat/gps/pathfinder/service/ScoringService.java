@@ -0,0 +1,72 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.config.ApplicationProperties;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.repository.QuestionMetaDataRepository;
+import com.redhat.gps.pathfinder.web.api.CompiledSurvey;
+import com.redhat.gps.pathfinder.web.api.ScoringEngine;
+import com.redhat.gps.pathfinder.web.api.SurveyEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds the ScoringEngine compiled for the current survey, with the question weights from the questionmetadata
+ * collection and the thresholds from application.scoring.*
+ */
+@Service
+public class ScoringService {
+    private final Logger log = LoggerFactory.getLogger(ScoringService.class);
+
+    private final SurveyEngine surveyEngine;
+    private final QuestionMetaDataRepository questionRepository;
+    private final ApplicationProperties.Scoring thresholds;
+
+    private volatile ScoringEngine engine;
+
+    public ScoringService(SurveyEngine surveyEngine, QuestionMetaDataRepository questionRepository, ApplicationProperties properties) {
+        this.surveyEngine = surveyEngine;
+        this.questionRepository = questionRepository;
+        this.thresholds = properties.getScoring();
+    }
+
+    /**
+     * @return the engine for the current survey, compiled on first use
+     */
+    public ScoringEngine engine() {
+        CompiledSurvey current = surveyEngine.current().getCompiledSurvey();
+        ScoringEngine result = engine;
+        if (null == result || result.getSurvey() != current) {
+            result = ScoringEngine.compile(current, questionRepository.findAll(), thresholds.getAmberThreshold(), thresholds.getRedThreshold());
+            log.debug("Compiled scoring for survey {}", current.getVersion());
+            engine = result;
+        }
+        return result;
+    }
+
+    public ScoringEngine.Score score(Assessments assessment) {
+        return engine().score(assessment);
+    }
+}
@@ -0,0 +1,96 @@
+package com.redhat.gps.pathfinder.service.util;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out ObjectWriters/ObjectReaders built from the Spring managed Jackson 2 mapper (so with Afterburner and the
+ * spring.jackson settings applied), cached per target type so the serializer lookup is only paid the first time.
+ */
+@Component
+public class JsonCodec {
+
+    private final ObjectMapper mapper;
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public JsonCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, t -> mapper.writerFor(t).withDefaultPrettyPrinter());
+    }
+
+    public ObjectReader readerFor(Class<?> type) {
+        return readerFor(mapper.getTypeFactory().constructType(type));
+    }
+
+    public ObjectReader readerFor(TypeReference<?> type) {
+        return readerFor(mapper.getTypeFactory().constructType(type));
+    }
+
+    private ObjectReader readerFor(JavaType type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    /**
+     * @return a UTF-8 generator on the stream whose writeObject()/writeTree() use the shared mapper
+     */
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return mapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+    }
+
+    /**
+     * @return a parser on the stream whose readValueAs()/readValueAsTree() use the shared mapper
+     */
+    public JsonParser createParser(InputStream in) throws IOException {
+        return mapper.getFactory().createParser(in);
+    }
+
+    public ObjectNode valueToTree(Object value) {
+        return mapper.valueToTree(value);
+    }
+
+    public String writeValueAsString(Object value) throws JsonProcessingException {
+        if (null == value) return mapper.writeValueAsString(null);
+        return writerFor(value.getClass()).writeValueAsString(value);
+    }
+}
@@ -32,7 +32,12 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.stereotype.Component;
 
 import com.redhat.gps.pathfinder.domain.Member;
+import com.redhat.gps.pathfinder.repository.CustomerRepository;
+import com.redhat.gps.pathfinder.repository.IndexRegistry;
 import com.redhat.gps.pathfinder.repository.MembersRepository;
+import com.redhat.gps.pathfinder.service.AssessmentDigestService;
+import com.redhat.gps.pathfinder.service.CustomerSummaryService;
+import com.redhat.gps.pathfinder.service.JobService;
 
 @Component
 public class ApplicationStartup implements ApplicationListener<ApplicationReadyEvent> {
@@ -41,8 +46,25 @@ public class ApplicationStartup implements ApplicationListener<ApplicationReadyE
     @Autowired
     private MembersRepository membersRepo;
 
+    @Autowired
+    private CustomerRepository custRepo;
+
+    @Autowired
+    private CustomerSummaryService summaryService;
+
+    @Autowired
+    private IndexRegistry indexRegistry;
+
+    @Autowired
+    private AssessmentDigestService digestService;
+
+    @Autowired
+    private JobService jobService;
+
     @Override
     public void onApplicationEvent(final ApplicationReadyEvent event) {
+      indexRegistry.ensureIndexes();
+
       if (0==membersRepo.findAll().size()){
         log.debug("No users found in database, creating default \"admin\" user with username & password as \"admin\"");
         Member admin=new Member();
@@ -54,5 +76,11 @@ public class ApplicationStartup implements ApplicationListener<ApplicationReadyE
         
         membersRepo.save(admin);
       }
+
+      int linked = custRepo.linkApplicationsToCustomers();
+      if (linked > 0) log.info("Linked {} applications to their customer", linked);
+      digestService.backfillMissing();
+      summaryService.rebuildMissing();
+      jobService.start();
     }
  }
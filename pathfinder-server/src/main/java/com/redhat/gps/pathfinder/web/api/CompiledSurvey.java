@@ -0,0 +1,175 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-split view of the radiogroup questions in the survey json.
+ * Built once when the survey is generated so readers walk indexed arrays instead of re-parsing the json per call.
+ */
+public final class CompiledSurvey {
+
+    private final String version;
+    private final String[] names;
+    private final String[] titles;
+    private final String[][] ordinals;
+    private final String[][] ratings;
+    private final String[][] answerTexts;
+    private final Map<String, Integer> questionIndex;
+    private final int[] choiceOffsets;
+
+    private CompiledSurvey(String version, String[] names, String[] titles, String[][] ordinals, String[][] ratings, String[][] answerTexts) {
+        this.version = version;
+        this.names = names;
+        this.titles = titles;
+        this.ordinals = ordinals;
+        this.ratings = ratings;
+        this.answerTexts = answerTexts;
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < names.length; i++) index.put(names[i], i);
+        this.questionIndex = Collections.unmodifiableMap(index);
+        this.choiceOffsets = new int[names.length + 1];
+        for (int i = 0; i < names.length; i++) choiceOffsets[i + 1] = choiceOffsets[i] + ordinals[i].length;
+    }
+
+    /**
+     * @param surveyJson - the materialised survey (ie. the output of QuestionProcessor.GenerateSurveyPages)
+     * @return CompiledSurvey containing every radiogroup question in page order
+     */
+    public static CompiledSurvey compile(String surveyJson) {
+        List<String> names = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        List<String[]> ordinals = new ArrayList<>();
+        List<String[]> ratings = new ArrayList<>();
+        List<String[]> texts = new ArrayList<>();
+
+        mjson.Json surveyJs = mjson.Json.read(surveyJson);
+        for (mjson.Json page : surveyJs.at("pages").asJsonList()) {
+            for (mjson.Json question : page.at("questions").asJsonList()) {
+                // leave out non radiogroup items since it's things like "Select the app..." and page notes
+                if (!"radiogroup".equals(question.at("type").asString())) continue;
+
+                List<mjson.Json> choices = question.at("choices").asJsonList();
+                String[] o = new String[choices.size()];
+                String[] r = new String[choices.size()];
+                String[] t = new String[choices.size()];
+                for (int i = 0; i < choices.size(); i++) {
+                    // choice format is "<ordinal>-<rating>|<answer text>"
+                    String choice = choices.get(i).asString();
+                    int dash = choice.indexOf('-');
+                    int pipe = choice.indexOf('|', dash + 1);
+                    o[i] = choice.substring(0, dash);
+                    r[i] = pipe < 0 ? choice.substring(dash + 1) : choice.substring(dash + 1, pipe);
+                    t[i] = pipe < 0 ? "" : choice.substring(pipe + 1);
+                }
+                names.add(question.at("name").asString());
+                titles.add(question.has("title") ? question.at("title").asString() : "");
+                ordinals.add(o);
+                ratings.add(r);
+                texts.add(t);
+            }
+        }
+        return new CompiledSurvey(Hashing.murmur3_128().hashString(surveyJson, StandardCharsets.UTF_8).toString(),
+                names.toArray(new String[0]),
+                titles.toArray(new String[0]),
+                ordinals.toArray(new String[0][]),
+                ratings.toArray(new String[0][]),
+                texts.toArray(new String[0][]));
+    }
+
+    /**
+     * @return content hash of the survey json this was compiled from, so encoded answers can be matched to their survey
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @return position of the named question, or -1 if it's not part of this survey
+     */
+    public int indexOf(String questionName) {
+        Integer i = questionIndex.get(questionName);
+        return i == null ? -1 : i;
+    }
+
+    public String getName(int question) {
+        return names[question];
+    }
+
+    public String getTitle(int question) {
+        return titles[question];
+    }
+
+    public int getChoiceCount(int question) {
+        return ordinals[question].length;
+    }
+
+    /**
+     * @return position of the choice with the given ordinal (ie. the "3" in "3-AMBER"), or -1 if not found
+     */
+    public int choiceIndexOf(int question, String ordinal) {
+        String[] o = ordinals[question];
+        for (int i = 0; i < o.length; i++) {
+            if (o[i].equals(ordinal)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return a dense id, unique across the whole survey, for the given question/choice pair
+     */
+    public int getChoiceId(int question, int choice) {
+        return choiceOffsets[question] + choice;
+    }
+
+    /**
+     * @return the number of question/choice pairs in the survey, ie. the upper bound of getChoiceId()
+     */
+    public int getTotalChoices() {
+        return choiceOffsets[names.length];
+    }
+
+    public String getOrdinal(int question, int choice) {
+        return ordinals[question][choice];
+    }
+
+    public String getRating(int question, int choice) {
+        return ratings[question][choice];
+    }
+
+    public String getAnswerText(int question, int choice) {
+        return answerTexts[question][choice];
+    }
+}
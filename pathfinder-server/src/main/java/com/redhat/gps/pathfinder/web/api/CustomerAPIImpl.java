@@ -1,16 +1,29 @@
 package com.redhat.gps.pathfinder.web.api;
 
 import com.codahale.metrics.annotation.Timed;
-import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
+import com.google.common.collect.ImmutableMap;
 import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
 import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.AssessmentDigest;
 import com.redhat.gps.pathfinder.domain.Assessments;
 import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.CustomerSummary;
 import com.redhat.gps.pathfinder.repository.*;
+import com.redhat.gps.pathfinder.service.AdoptionPlan;
+import com.redhat.gps.pathfinder.service.AdoptionPlanService;
+import com.redhat.gps.pathfinder.service.ApplicationBulkService;
+import com.redhat.gps.pathfinder.service.ApplicationCopyService;
+import com.redhat.gps.pathfinder.service.AssessmentDigestService;
+import com.redhat.gps.pathfinder.service.CascadeDeleteService;
+import com.redhat.gps.pathfinder.service.CustomerSummaryService;
+import com.redhat.gps.pathfinder.service.DomainCacheService;
+import com.redhat.gps.pathfinder.service.DomainMetrics;
+import com.redhat.gps.pathfinder.service.ScoringService;
 import com.redhat.gps.pathfinder.service.util.Json;
-import com.redhat.gps.pathfinder.service.util.MapBuilder;
+import com.redhat.gps.pathfinder.service.util.JsonCodec;
 import com.redhat.gps.pathfinder.web.api.model.*;
+import com.redhat.gps.pathfinder.web.api.security.CurrentPrincipal;
+import com.redhat.gps.pathfinder.web.api.security.JwtUserDetailsCache;
 import io.swagger.annotations.ApiParam;
 import lombok.Getter;
 import lombok.Setter;
@@ -18,7 +31,8 @@ import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Example;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -32,15 +46,14 @@ import javax.validation.constraints.NotNull;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.InputStream;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 /*-
  * #%L
@@ -74,16 +87,40 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
     private final AssessmentsRepository assmRepo;
     private final ReviewsRepository reviewRepository;
     private final MembersRepository membersRepo;
+    private final CustomerSummaryService summaryService;
+    private final JsonCodec json;
+    private final JwtUserDetailsCache userDetailsCache;
+    private final AdoptionPlanService adoptionPlanService;
+    private final AssessmentDigestService digestService;
+    private final ScoringService scoringService;
+    private final DomainCacheService domainCache;
+    private final CascadeDeleteService cascadeDelete;
+    private final ApplicationCopyService copyService;
+    private final ApplicationBulkService bulkService;
+    private final DomainMetrics domainMetrics;
+    // swagger/api.yml converted to json, it only changes with a new build
+    private final StaticPayload docs;
 
     @Autowired
-    private SurveyPayload survey;
+    private SurveyEngine surveyEngine;
 
 
     public CustomerAPIImpl(CustomerRepository custRepo,
                            ApplicationsRepository appsRepo,
                            AssessmentsRepository assmRepo,
                            ReviewsRepository reviewRepository,
-                           MembersRepository membersRepository) throws IOException {
+                           MembersRepository membersRepository,
+                           CustomerSummaryService summaryService,
+                           JsonCodec json,
+                           JwtUserDetailsCache userDetailsCache,
+                           AdoptionPlanService adoptionPlanService,
+                           AssessmentDigestService digestService,
+                           ScoringService scoringService,
+                           DomainCacheService domainCache,
+                           CascadeDeleteService cascadeDelete,
+                           ApplicationCopyService copyService,
+                           ApplicationBulkService bulkService,
+                           DomainMetrics domainMetrics) throws IOException {
 
         super(membersRepository);
         this.custRepo = custRepo;
@@ -91,34 +128,47 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         this.assmRepo = assmRepo;
         this.reviewRepository = reviewRepository;
         this.membersRepo = membersRepository;
+        this.summaryService = summaryService;
+        this.json = json;
+        this.userDetailsCache = userDetailsCache;
+        this.adoptionPlanService = adoptionPlanService;
+        this.digestService = digestService;
+        this.scoringService = scoringService;
+        this.domainCache = domainCache;
+        this.cascadeDelete = cascadeDelete;
+        this.copyService = copyService;
+        this.bulkService = bulkService;
+        this.domainMetrics = domainMetrics;
+        try (InputStream api = getClass().getClassLoader().getResourceAsStream("swagger/api.yml")) {
+            this.docs = StaticPayload.of(Json.yamlToJson(IOUtils.toString(api, "UTF-8")),
+                    MediaType.valueOf("application/javascript"), CacheControl.maxAge(1, TimeUnit.DAYS).cachePublic());
+        }
     }
 
     // Non-Swagger api - returns the survey payload
     @RequestMapping(value = "/survey", method = GET, produces = {"application/javascript"})
-    public String getSurvey() throws IOException {
-        return survey.getSurveyJSPayload()
-                .replaceAll("\"SERVER_URL", "Utils.SERVER+\"")
-                .replaceAll("JWT_TOKEN", "\"+jwtToken+\"");
+    public ResponseEntity<byte[]> getSurvey() {
+        return surveyEngine.current().getSurveyScript().respond(request);
     }
 
     // Get Members
     // GET: /api/pathfinder/customers/{customerId}/member/
     public ResponseEntity<List<MemberType>> customersCustIdMembersGet(@ApiParam(required = true) @PathVariable("custId") String custId) {
-        return new MemberController(custRepo, membersRepo).getMembers(custId);
+        return new MemberController(custRepo, membersRepo, summaryService, userDetailsCache, domainCache).getMembers(custId);
     }
 
     // Create Member
     // POST: /api/pathfinder/customers/{customerId}/members/
     public ResponseEntity<String> customersCustIdMembersPost(@ApiParam(value = "Customer Identifier", required = true) @PathVariable("custId") String custId,
                                                              @ApiParam(value = "Member Details") @Valid @RequestBody MemberType body) {
-        return new MemberController(custRepo, membersRepo).createMember(custId, body);
+        return new MemberController(custRepo, membersRepo, summaryService, userDetailsCache, domainCache).createMember(custId, body);
     }
 
     // Get Member
     // GET: /api/pathfinder/customers/{customerId}/members/{memberId}
     public ResponseEntity<MemberType> customersCustIdMembersMemberIdGet(@ApiParam(value = "Customer Identifier", required = true) @PathVariable("custId") String custId,
                                                                         @ApiParam(value = "Member Identifier", required = true) @PathVariable("memberId") String memberId) {
-        return new MemberController(custRepo, membersRepo).getMember(custId, memberId);
+        return new MemberController(custRepo, membersRepo, summaryService, userDetailsCache, domainCache).getMember(custId, memberId);
     }
 
     // Update Member
@@ -126,142 +176,62 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
     public ResponseEntity<String> customersCustIdMembersMemberIdPost(@ApiParam(value = "Customer Identifier", required = true) @PathVariable("custId") String custId,
                                                                      @ApiParam(value = "Member Identifier", required = true) @PathVariable("memberId") String memberId,
                                                                      @ApiParam(value = "Member Details") @Valid @RequestBody MemberType body) {
-        return new MemberController(custRepo, membersRepo).updateMember(custId, memberId, body);
+        return new MemberController(custRepo, membersRepo, summaryService, userDetailsCache, domainCache).updateMember(custId, memberId, body);
     }
 
     // Delete Member(s)
     // POST: /customers/{custId}/members/
     public ResponseEntity<String> customersCustIdMembersDelete(@ApiParam(value = "Customer Identifier", required = true) @PathVariable("custId") String custId,
                                                                @ApiParam(value = "Target member IDs") @Valid @RequestBody IdentifierList body) {
-        return new MemberController(custRepo, membersRepo).deleteMembers(custId, body);
+        return new MemberController(custRepo, membersRepo, summaryService, userDetailsCache, domainCache).deleteMembers(custId, body);
     }
 
 
-    interface QuestionParser<T> {
+    public interface QuestionParser<T> {
         void parse(T result, String name, String answerOrdinal, String answerRating, String answerText, String questionText);
     }
 
     // Non-Swagger api - report page content
     @RequestMapping(value = "/customers/{custId}/report", method = GET, produces = MediaType.APPLICATION_JSON_VALUE)
     @CrossOrigin
-    public String getReport(@PathVariable("custId") String custId) throws IOException {
+    public ResponseEntity<String> getReport(@PathVariable("custId") String custId) throws IOException {
         log.debug("getReport for custID {}", custId);
 
-        class Risk {
-            @Getter
-            @Setter
-            String q;
-            @Getter
-            @Setter
-            String a;
-            @Getter
-            @Setter
-            String apps;
+        ScoringEngine scoring = scoringService.engine();
+        long version = domainCache.versionOf(custId);
+        String etag = ETags.of(version, scoring.getVersion());
+        if (ETags.matches(request, etag)) return ETags.notModified(etag);
 
-            public Risk(String q, String a, String apps) {
-                this.q = q;
-                this.a = a;
-                this.apps = apps;
-            }
-
-            public void addOffendingApp(String app) {
-                apps = Joiner.on(", ").join(apps, app);
-            }
-        }
-        class Report {
-            Map<String, Double> s;
-            List<Risk> risks;
-
-            public Map<String, Double> getAssessmentSummary() {
-                if (null == s) s = new HashMap<String, Double>();
-                return s;
-            }
-
-            public List<Risk> getRisks() {
-                if (null == risks) risks = new ArrayList<Risk>();
-                return risks;
-            }
-        }
-
-        Report result = new Report();
-        Customer customer = custRepo.findOne(custId);
-
-        Map<String, Integer> overallStatusCount = new HashMap<>();
-        overallStatusCount.put("GREEN", 0);
-        overallStatusCount.put("AMBER", 0);
-        overallStatusCount.put("RED", 0);
-        int assessmentTotal = 0;
-        Map<String, Risk> risks2 = new HashMap<>();
-
-        if (null != customer.getApplications()) {
-            for (Applications app : customer.getApplications()) {
-                if (null == app.getAssessments()) continue;
-                Assessments assessment = app.getAssessments().get(app.getAssessments().size() - 1);
-
-                Map<String, Map<String, String>> questionKeyToText = new QuestionReader<Map<String, Map<String, String>>>().read(new HashMap<>(),
-                        survey.getQNAPayload(),
-                        assessment,
-                        (result1, name, answerOrdinal, answerRating, answerText, questionText) -> result1.put(name, new MapBuilder<String, String>()
-                                .put("questionText", questionText)
-                                .put("answerText", answerText)
-                                .build()));
-
-                String assessmentOverallStatus = "GREEN";
-                int mediumCount = 0;
-                for (Entry<String, String> e : assessment.getResults().entrySet()) {
-
-                    //Skip processing notes
-                    if (e.getValue().contains("NOTESONPAGE"))
-                        continue;
-
-                    // If ANY answers were RED, then the status is RED
-                    if (e.getValue().contains("-RED")) {
-                        assessmentOverallStatus = "RED";
-                        // add the RED item to the risk list and add the app name against the risk
-                        String riskQuestionAnswerKey = e.getKey() + e.getValue();
-                        if (!risks2.containsKey(riskQuestionAnswerKey)) {
-                            try {
-                                String question = questionKeyToText.get(e.getKey()).get("questionText");
-                                String answer = questionKeyToText.get(e.getKey()).get("answerText");
-                                risks2.put(riskQuestionAnswerKey, new Risk(question, answer, app.getName()));
-                            } catch (NullPointerException ex) {
-                                log.warn("NPE thrown and caught when trying to map assessment results to risks using key {} ....probably due to CustomQuestions being used during assessment and then removed before displaying results", e.getKey());
-                            }
-                        } else {
-                            risks2.get(riskQuestionAnswerKey).addOffendingApp(app.getName());
-                        }
-                    }
-                    if (e.getValue().contains("-AMBER"))
-                        mediumCount = mediumCount + 1;
-
-                    // If more than 30% of answers were AMBER, then overall rating is AMBER
-                    double percentageOfAmbers = (double) mediumCount / (double) assessment.getResults().size();
-                    double threshold = 0.3;
-                    if ("GREEN".equals(assessmentOverallStatus) && percentageOfAmbers > threshold) {
-                        log.debug("getReport():: amber answer percentage is {} which is over the {}% threshold, therefore downgrading to AMBER rating", (percentageOfAmbers * 100), (threshold * 100));
-                        assessmentOverallStatus = "AMBER";
-                    }
-                }
-                assessmentTotal = assessmentTotal + 1;
-                overallStatusCount.put(assessmentOverallStatus, overallStatusCount.get(assessmentOverallStatus) + 1);
-            }
+        // timed from the load of the customer, which is most of the work when it isn't cached
+        long start = System.nanoTime();
+        Customer customer = domainCache.findOneWithLatestAssessments(custId, version);
+        if (customer == null) {
+            log.error("getReport....customer not found {}", custId);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-
-        result.risks = Lists.newArrayList(risks2.values());
-        result.getAssessmentSummary().put("Easy", (double) overallStatusCount.get("GREEN"));
-        result.getAssessmentSummary().put("Medium", (double) overallStatusCount.get("AMBER"));
-        result.getAssessmentSummary().put("Hard", (double) overallStatusCount.get("RED"));
-        result.getAssessmentSummary().put("Total", (double) assessmentTotal);
-        String output = Json.newObjectMapper(true).writeValueAsString(result);
+        ReportEngine.Report result = new ReportEngine(scoring).build(customer.getApplications());
+        domainMetrics.reportBuilt(null == customer.getApplications() ? 0 : customer.getApplications().size(), System.nanoTime() - start);
+        String output = json.writeValueAsString(result);
         log.trace("getReport for custID {} --> {}", custId, output);
-        return output;
+        return ETags.ok(etag, output);
+    }
+
+    // Non-Swagger api - adoption plan ordering for the report page, optionally restricted to the posted app ids
+    @RequestMapping(value = "/customers/{custId}/adoptionPlan", method = {GET, POST}, produces = APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<AdoptionPlan> getAdoptionPlan(@PathVariable("custId") String custId,
+                                                        @RequestBody(required = false) List<String> appIds) {
+        log.debug("getAdoptionPlan for custID {}", custId);
+        Customer customer = domainCache.findOneWithApplications(custId, domainCache.versionOf(custId));
+        if (customer == null) return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(adoptionPlanService.plan(customer, appIds), HttpStatus.OK);
     }
 
 
     // Non-Swagger api - returns the swagger docs
     @RequestMapping(value = "/docs", method = GET, produces = {"application/javascript"})
-    public String getDocs() throws IOException {
-        return Json.yamlToJson(IOUtils.toString(this.getClass().getClassLoader().getResourceAsStream("swagger/api.yml"), "UTF-8"));
+    public ResponseEntity<byte[]> getDocs() {
+        return docs.respond(request);
     }
 
 
@@ -299,11 +269,11 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         }
 
         List<ApplicationAssessmentSummary> result = new QuestionReader<List<ApplicationAssessmentSummary>>().read(new ArrayList<>(),
-                survey.getQNAPayload(),
+                surveyEngine.current().getCompiledSurvey(),
                 assessment,
                 (result1, name, answerOrdinal, answerRating, answerText, questionText) -> result1.add(new ApplicationAssessmentSummary(questionText, answerText, answerRating)));
 
-        String output = Json.newObjectMapper(true).writeValueAsString(result);
+        String output = json.writeValueAsString(result);
         log.debug("viewAssessmentSummary....CID {}, AID {} ASID {} -->{}", customerId, appId, assessmentId, output);
         return output;
     }
@@ -319,7 +289,7 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         result.putAll(assessment.getResults());
         result.put("DEPSINLIST", assessment.getDepsIN());
         result.put("DEPSOUTLIST", assessment.getDepsOUT());
-        String output = Json.newObjectMapper(true).writeValueAsString(result);
+        String output = json.writeValueAsString(result);
         log.debug("getAssessmentResults...{} --->{}", assessmentId, output);
         return output;
     }
@@ -336,75 +306,9 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         }
 
         try {
-            Customer currCust = custRepo.findOne(custId);
-            if (currCust == null) {
-                log.error("customersCustIdApplicationsAppIdAssessmentsPost....customer not found " + custId);
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-            }
-
-            Applications currApp = appsRepo.findOne(appId);
-            if (currApp == null) {
-                log.error("customersCustIdApplicationsAppIdAssessmentsPost....app not found " + appId);
-                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-            }
-
-            ApplicationAssessmentReview currReview = currApp.getReview();
-            if (currReview == null)
-                log.warn("customersCustIdApplicationsAppIdAssessmentsPost....no reviews for app " + appId);
-
-
-            List<Assessments> currAssessments = currApp.getAssessments();
-            if ((currAssessments == null) || (currAssessments.isEmpty()))
-                log.warn("customersCustIdApplicationsAppIdAssessmentsPost....no assessments for app " + appId);
-
-            Assessments latestAssessment = currAssessments == null ? null : currAssessments.get(currAssessments.size() - 1);
-
-            body.forEach((appName) -> {
-                log.debug("Creating application {}", appName);
-
-                //Create application
-                Applications newApp = new Applications();
-                newApp.setId(UUID.randomUUID().toString());
-                newApp.setName(appName);
-                newApp.setDescription(currApp.getDescription());
-                newApp.setStereotype(currApp.getStereotype());
-
-                //Copy Assessment (latest only)
-                if (latestAssessment != null) {
-                    Assessments newAssessment = new Assessments();
-                    newAssessment.setId(UUID.randomUUID().toString());
-                    newAssessment.setDatetime(latestAssessment.getDatetime());
-                    if (!latestAssessment.getDepsIN().isEmpty())
-                        newAssessment.setDepsIN(latestAssessment.getDepsIN());
-                    if (!latestAssessment.getDepsOUT().isEmpty())
-                        newAssessment.setDepsOUT(latestAssessment.getDepsOUT());
-                    newAssessment.setResults(latestAssessment.getResults());
-                    newAssessment = assmRepo.save(newAssessment);
-                    if (newApp.getAssessments() == null) newApp.setAssessments(new ArrayList<>());
-                    newApp.getAssessments().add(newAssessment);
-
-                    //Copy review
-                    if (currReview != null) {
-                        ApplicationAssessmentReview newReview = new ApplicationAssessmentReview(
-                                currReview.getReviewDate(),
-                                newAssessment,
-                                currReview.getReviewDecision(),
-                                currReview.getReviewEstimate(),
-                                currReview.getReviewNotes(),
-                                currReview.getWorkPriority(),
-                                currReview.getBusinessPriority());
-                        newReview.setId(UUID.randomUUID().toString());
-                        newReview = reviewRepository.insert(newReview);
-                        newApp.setReview(newReview);
-                    }
-                }
-
-                newApp = appsRepo.insert(newApp);
-                currCust.getApplications().add(newApp);
-                appIDS.add(newApp.getId());
-            });
-            custRepo.save(currCust);
-
+            List<String> copies = copyService.copy(custId, appId, body);
+            if (copies == null) return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            appIDS.addAll(copies);
         } catch (Exception ex) {
             log.error("customersCustIdApplicationsAppIdCopyPost...Unable to copy applications for customer ", ex.getMessage(), ex);
         }
@@ -479,16 +383,13 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
 
             Applications currApp = appsRepo.findOne(appId);
             if (currApp != null) {
-                HashMap<String,String> answerTxts = new HashMap<>();
-                body.getPayload().forEach((k,v) ->
-                        answerTxts.put(k,survey.getAnswerText(k,v)));
+                CustomerSummary before = CustomerSummaryService.contributionOf(currApp);
                 Assessments newitem = new Assessments();
                 newitem.setId(UUID.randomUUID().toString());
                 newitem.setResults(body.getPayload());
                 newitem.setDepsIN(body.getDepsIN());
                 newitem.setDepsOUT(body.getDepsOUT());
                 newitem.setDatetime(body.getDatetime());
-                newitem.setQanswers(answerTxts);
                 newitem = assmRepo.insert(newitem);
 
                 List<Assessments> assmList = currApp.getAssessments();
@@ -498,7 +399,11 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
 
                 assmList.add(newitem);
                 currApp.setAssessments(assmList);
+                currApp.setLatestAssessment(digestService.digestOf(newitem));
                 appsRepo.save(currApp);
+                summaryService.update(custId, before, CustomerSummaryService.contributionOf(currApp));
+                domainCache.changed(custId);
+                domainMetrics.assessmentSubmitted();
                 return new ResponseEntity<>(newitem.getId(), HttpStatus.OK);
             } else {
                 log.error("customersCustIdApplicationsAppIdAssessmentsPost....app not found {}", appId);
@@ -547,7 +452,7 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         log.debug("customersCustIdApplicationsAppIdGet cid {} app {}", custId, appId);
         ApplicationType response = new ApplicationType();
         //TODO : Check customer exists and owns application as well as application
-        Customer customer = custRepo.findOne(custId);
+        Customer customer = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
         if (customer == null) {
             log.error("customersCustIdApplicationsAppIdGet....customer not found {}", custId);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -617,57 +522,28 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
                                                                     @ApiParam(value = "Target Application Names") @Valid @RequestBody ApplicationNames body) {
         log.info("customersCustIdApplicationsDelete....CID {}, apps {}", custId, body.toString());
         try {
-            Customer currCust = custRepo.findOne(custId);
-            if (currCust == null) {
-                log.error("customersCustIdApplicationsDelete....customer not found {}", custId);
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-            }
-
-            for (String appId : body) {
-                try {
-                    Applications delApp = appsRepo.findOne(appId);
-                    if (delApp == null) {
-                        log.error("customersCustIdApplicationsDelete....application not found {}", appId);
-                        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-                    }
-
-                    List<Applications> currApps = currCust.getApplications();
-                    List<Applications> newApps = new ArrayList<>();
-                    boolean appFound = false;
-
-                    for (Applications x : currApps) {
-                        if (x.getId().equalsIgnoreCase(appId)) {
-                            appFound = true;
-                        } else {
-                            newApps.add(x);
-                        }
-                    }
-
-                    if (!appFound) {
-                        log.error("customersCustIdApplicationsAppIdDelete....application not found {} in customer list {}", appId, custId);
-                        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-                    }
-
-                    currCust.setApplications(newApps);
-                    custRepo.save(currCust);
-
-                    if (delApp.getReview() != null)
-                        reviewRepository.delete(delApp.getReview());
-
-                    if (delApp.getAssessments() != null)
-                        assmRepo.delete(delApp.getAssessments());
-
-                    appsRepo.delete(appId);
-                } catch (Exception ex) {
-                    log.error("Error while deleting application [" + appId + "]", ex.getMessage(), ex);
-                    return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-                }
-            }
+            return deleted(cascadeDelete.deleteApplications(currentUsername(), custId, body));
         } catch (Exception ex) {
             log.error("Error with customer [" + custId + "] while deleting application(s)", ex.getMessage(), ex);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    private static <T> ResponseEntity<T> deleted(CascadeDeleteService.Result result) {
+        switch (result.getOutcome()) {
+            case NOT_FOUND:
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            case ACCEPTED:
+                // the rest is being removed by a job, which the caller can follow
+                return ResponseEntity.status(HttpStatus.ACCEPTED).location(JobController.locationOf(result.getJob())).build();
+            default:
+                return new ResponseEntity<>(HttpStatus.OK);
+        }
+    }
+
+    private String currentUsername() {
+        CurrentPrincipal principal = getCurrentPrincipal();
+        return null == principal ? null : principal.getUsername();
     }
 
 
@@ -681,61 +557,14 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         log.info("customersCustIdApplicationsGet....CID {}", custId);
         ArrayList<ApplicationType> response = new ArrayList<>();
         try {
-            Customer customer = custRepo.findOne(custId);
+            Customer customer = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
             if (customer == null) {
                 log.error("customersCustIdApplicationsGet....[" + custId + "] customer not found");
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
             }
-            List<Applications> resp = customer.getApplications();
             if (isAuthorizedFor(customer)) {
-                if ((resp != null) && (!resp.isEmpty())) {
-                    for (Applications x : resp) {
-
-                        if (null != exclude && x.getId().equals(exclude)) continue;
-
-                        ApplicationType app = new ApplicationType();
-                        app.setName(x.getName());
-                        app.setId(x.getId());
-                        if (x.getReview() != null) app.setReview(x.getReview().getId());
-                        app.setDescription(x.getDescription());
-                        app.setOwner(x.getOwner());
-
-                        if (x.getStereotype() != null) {
-                            if (apptype != null) {
-                                switch (apptype) {
-                                    case "TARGETS":  //Explicit targets
-                                        if (x.getStereotype().equals(ApplicationType.StereotypeEnum.TARGETAPP.toString())) {
-                                            app.setStereotype(ApplicationType.StereotypeEnum.fromValue(x.getStereotype()));
-                                            response.add(app);
-                                        }
-                                        break;
-                                    case "DEPENDENCIES": //Dependencies - Everything but Profiles
-                                        if (!x.getStereotype().equals(ApplicationType.StereotypeEnum.DEPENDENCY.toString())) {
-                                            app.setStereotype(ApplicationType.StereotypeEnum.fromValue(x.getStereotype()));
-                                            response.add(app);
-                                        }
-                                        break;
-                                    case "PROFILES": //Explicit Profiles
-                                        if (x.getStereotype().equals(ApplicationType.StereotypeEnum.PROFILE.toString())) {
-                                            app.setStereotype(ApplicationType.StereotypeEnum.fromValue(x.getStereotype()));
-                                            response.add(app);
-                                        }
-                                        break;
-                                    default:
-                                        break;
-                                }
-                            } else {
-                                //maintain backward compatibility with initial api when no apptype is passed - All Dependencies
-                                if (!x.getStereotype().equals(ApplicationType.StereotypeEnum.PROFILE.toString())) {
-                                    app.setStereotype(ApplicationType.StereotypeEnum.fromValue(x.getStereotype()));
-                                    response.add(app);
-                                }
-                            }
-                        } else {
-                            response.add(app);
-                        }
-                    }
-                }
+                for (Applications x : custRepo.findApplicationsInListOrder(custId, applicationFilter(apptype, exclude)))
+                    response.add(toApplicationType(x));
             }
         } catch (Exception ex) {
             log.error("Unable to list applications for customer ", ex.getMessage(), ex);
@@ -744,6 +573,93 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    // Non-Swagger api - server side processing for the applications grid
+    @RequestMapping(value = "/customers/{custId}/applications/datatable", method = GET, produces = APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<DataTablesResponse<ApplicationType>> customersCustIdApplicationsDatatable(@PathVariable("custId") String custId,
+                                                                                                  @RequestParam(value = "apptype", required = false) String apptype,
+                                                                                                  @RequestParam(value = "exclude", required = false) String exclude,
+                                                                                                  @RequestParam Map<String, String> params) {
+        log.debug("customersCustIdApplicationsDatatable....CID {}", custId);
+        DataTablesRequest request;
+        KeysetRequest keyset;
+        try {
+            request = DataTablesRequest.of(params);
+            keyset = request.toKeyset(APPLICATION_SORTS, "Name");
+        } catch (IllegalArgumentException e) {
+            log.warn("customersCustIdApplicationsDatatable....{}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Customer customer = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
+        if (customer == null) return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        if (!isAuthorizedFor(customer)) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+
+        // unlike the plain list, no apptype means every application
+        Criteria filter = null != apptype ? applicationFilter(apptype, exclude) : null != exclude ? Criteria.where("_id").ne(exclude) : null;
+        Criteria search = request.searchOn(APPLICATION_NAME);
+        CustomerSummary summary = customer.getSummary() == null ? CustomerSummaryService.NONE : customer.getSummary();
+
+        DataTablesResponse<ApplicationType> response = new DataTablesResponse<>(request.getDraw());
+        response.setRecordsTotal(summary.getApplications());
+        response.setRecordsFiltered(null == filter && null == search ? summary.getApplications() : custRepo.countApplications(custId, and(filter, search)));
+        KeysetPage<Applications> page = custRepo.findApplications(custId, and(filter, search), keyset);
+        for (Applications app : page.getContent()) response.getData().add(toApplicationType(app));
+        response.setNext(page.getNext());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    private static final String APPLICATION_NAME = "name";
+    private static final String APPLICATION_STEREOTYPE = "stereotype";
+
+    // grid column -> mongo sort fields, each backed by an applications_customer_* index
+    private static final Map<String, List<String>> APPLICATION_SORTS = ImmutableMap.of(
+            "Name", Collections.singletonList(APPLICATION_NAME),
+            "Stereotype", Arrays.asList(APPLICATION_STEREOTYPE, APPLICATION_NAME));
+
+    /**
+     * The apptype filter of the applications list. Applications without a stereotype are always listed
+     */
+    private static Criteria applicationFilter(String apptype, String exclude) {
+        Criteria filter;
+        if (apptype == null) {
+            //maintain backward compatibility with initial api when no apptype is passed - All Dependencies
+            filter = Criteria.where(APPLICATION_STEREOTYPE).ne(ApplicationType.StereotypeEnum.PROFILE.toString());
+        } else {
+            switch (apptype) {
+                case "TARGETS":  //Explicit targets
+                    filter = Criteria.where(APPLICATION_STEREOTYPE).in(ApplicationType.StereotypeEnum.TARGETAPP.toString(), null);
+                    break;
+                case "DEPENDENCIES": //Dependencies - Everything but Profiles
+                    filter = Criteria.where(APPLICATION_STEREOTYPE).ne(ApplicationType.StereotypeEnum.DEPENDENCY.toString());
+                    break;
+                case "PROFILES": //Explicit Profiles
+                    filter = Criteria.where(APPLICATION_STEREOTYPE).in(ApplicationType.StereotypeEnum.PROFILE.toString(), null);
+                    break;
+                default:
+                    filter = Criteria.where(APPLICATION_STEREOTYPE).is(null);
+                    break;
+            }
+        }
+        return null == exclude ? filter : new Criteria().andOperator(filter, Criteria.where("_id").ne(exclude));
+    }
+
+    private static Criteria and(Criteria a, Criteria b) {
+        if (null == a) return b;
+        if (null == b) return a;
+        return new Criteria().andOperator(a, b);
+    }
+
+    private static ApplicationType toApplicationType(Applications x) {
+        ApplicationType app = new ApplicationType();
+        app.setName(x.getName());
+        app.setId(x.getId());
+        if (x.getReview() != null) app.setReview(x.getReview().getId());
+        app.setDescription(x.getDescription());
+        app.setOwner(x.getOwner());
+        if (x.getStereotype() != null) app.setStereotype(ApplicationType.StereotypeEnum.fromValue(x.getStereotype()));
+        return app;
+    }
+
     // Create Application
     // POST: /api/pathfinder/customers/{customerId}/applications/
     @Timed
@@ -753,6 +669,30 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         return createOrUpdateApplication(custId, null, body);
     }
 
+    // Non-Swagger api - create many applications from a CSV (text/csv, with a header row) or JSON array upload
+    // POST: /api/pathfinder/customers/{customerId}/applications/bulk
+    @RequestMapping(value = "/customers/{custId}/applications/bulk", method = POST, produces = APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<?> customersCustIdApplicationsBulkPost(@PathVariable("custId") String custId) {
+        log.debug("customersCustIdApplicationsBulkPost....CID {}", custId);
+        Customer customer = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
+        if (customer == null) return new ResponseEntity<>(custId, HttpStatus.BAD_REQUEST);
+        if (!isAuthorizedFor(customer)) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+
+        try {
+            MediaType contentType = null == request.getContentType() ? null : MediaType.parseMediaType(request.getContentType());
+            List<Map<String, String>> rows = bulkService.read(request.getInputStream(), contentType);
+            ApplicationNames appIDS = new ApplicationNames();
+            appIDS.addAll(bulkService.create(custId, rows));
+            return new ResponseEntity<>(appIDS, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            log.warn("customersCustIdApplicationsBulkPost....unreadable upload for customer {}", custId, e);
+            return new ResponseEntity<>("Unable to read the applications: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     // Update application
     // POST: /api/pathfinder/customers/{customerId}/applications/{applicationId}
     public ResponseEntity<String> customersCustIdApplicationsAppIdPost(@ApiParam(value = "Customer Identifier", required = true) @PathVariable("custId") String custId,
@@ -763,17 +703,20 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
     }
 
     public ResponseEntity<String> createOrUpdateApplication(String custId, String appId, ApplicationType body) {
-        Customer myCust = custRepo.findOne(custId);
-        if (myCust == null) {
+        if (!custRepo.exists(custId)) {
             return new ResponseEntity<>(custId, HttpStatus.BAD_REQUEST);
         } else {
 
             Applications app;
+            CustomerSummary before;
             if (appId == null) {
                 app = new Applications();
                 app.setId(UUID.randomUUID().toString());
+                app.setCustomerId(custId);
+                before = CustomerSummaryService.NONE;
             } else {
                 app = appsRepo.findOne(appId);
+                before = CustomerSummaryService.contributionOf(app);
             }
 
             app.setName(body.getName());
@@ -788,15 +731,10 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
             }
             app = appsRepo.save(app);
 
-            if (appId == null) {
-                List<Applications> appList = myCust.getApplications();
-                if (appList == null) {
-                    appList = new ArrayList<Applications>();
-                }
-                appList.add(app);
-                myCust.setApplications(appList);
-                custRepo.save(myCust);
-            }
+            // pushed rather than saving the customer, which would write back a summary read before concurrent $incs
+            if (appId == null) custRepo.addApplication(custId, app);
+            summaryService.update(custId, before, CustomerSummaryService.contributionOf(app));
+            domainCache.changed(custId);
             return new ResponseEntity<>(app.getId(), HttpStatus.OK);
         }
     }
@@ -807,7 +745,7 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
     @Timed
     public ResponseEntity<CustomerType> customersCustIdGet(@ApiParam(value = "Customer Identifier", required = true) @PathVariable("custId") String custId) {
         log.debug("customersCustIdGet....{}", custId);
-        Customer myCust = custRepo.findOne(custId);
+        Customer myCust = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
         if (myCust == null) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         } else {
@@ -845,18 +783,17 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         if (custId == null) {
             myCust = new Customer();
             myCust.setId(UUID.randomUUID().toString());
+            myCust.setSummary(new CustomerSummary());
 
             // check customer doesnt already exist with the same name
-            Customer example = new Customer();
-            example.setName(body.getCustomerName());
-            long count = custRepo.count(Example.of(example));
-            if (count > 0) {
+            if (custRepo.countByName(body.getCustomerName()) > 0) {
                 log.error("Customer already exists with name {}", body.getCustomerName());
                 return new ResponseEntity<>("Customer already exists with name " + body.getCustomerName(), HttpStatus.BAD_REQUEST);
             }
 
         } else {
-            myCust = custRepo.findOne(custId);
+            myCust = new Customer();
+            myCust.setId(custId);
         }
 
         myCust.setName(body.getCustomerName());
@@ -867,7 +804,13 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         myCust.setVertical(body.getCustomerVertical());
         myCust.setAssessor(body.getCustomerAssessor());
         try {
-            myCust = custRepo.save(myCust);
+            if (custId == null) {
+                myCust = custRepo.insert(myCust);
+            } else if (!custRepo.updateDetails(myCust)) {
+                // only the details are $set, so the summary and the lists maintained alongside it aren't overwritten
+                return new ResponseEntity<>(custId, HttpStatus.BAD_REQUEST);
+            }
+            domainCache.changed(myCust.getId());
         } catch (Exception ex) {
             log.error("Unable to Create customer ", ex.getMessage(), ex);
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -889,100 +832,95 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         if (customers == null) {
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         } else {
-            customers.stream().filter(c -> isAuthorizedFor(c)).forEach(customer -> {
-                // then add the customer to the response
-                CustomerType resp = new CustomerType();
-                resp.setCustomerId(customer.getId());
-                resp.setCustomerName(customer.getName());
-                resp.setCustomerDescription(customer.getDescription());
-                resp.setCustomerSize(customer.getSize());
-                resp.setCustomerVertical(customer.getVertical());
-                resp.setCustomerAssessor(customer.getAssessor());
-                resp.setCustomerRTILink(customer.getRtilink());
-                resp.setCustomerPercentageComplete(0);
-                resp.setCustomerAppCount(customer.getApplications() == null ? 0 : customer.getApplications().size());
-                resp.setCustomerMemberCount(customer.getMembers() == null ? 0 : customer.getMembers().size());
-
-                List<Applications> appList =
-                        Optional.ofNullable(customer.getApplications())
-                                .map(Collection::stream)
-                                .orElseGet(Stream::empty)
-                                .filter(ap -> ap.getStereotype().equalsIgnoreCase(ApplicationType.StereotypeEnum.TARGETAPP.toString()))
-                                .collect(Collectors.toList());
-
-                if (!appList.isEmpty()) {
-                    int totalAssessible = appList.size();
-                    AtomicInteger assessedCount = new AtomicInteger();
-                    AtomicInteger reviewedCount = new AtomicInteger();
-
-                    appList.forEach(app -> {
-                        ApplicationAssessmentReview review = app.getReview();
-                        // if review is null, then it's not been reviewed
-                        reviewedCount.addAndGet((review != null ? 1 : 0));
-
-                        List<Assessments> assmList = app.getAssessments();
-                        if ((assmList != null) && (!assmList.isEmpty())) {
-                            assessedCount.addAndGet(1);
-                        }
-                    });
-
-                    // reviewedCount + assessedCount / potential total (ie. total * 2)
-                    BigDecimal percentageComplete = new BigDecimal(100 * (double) (assessedCount.get() + reviewedCount.get()) / (double) (totalAssessible * 2));
-                    percentageComplete.setScale(0, BigDecimal.ROUND_DOWN);
-                    resp.setCustomerPercentageComplete(percentageComplete.intValue());// a merge of assessed & reviewed
-                }
-                response.add(resp);
-            });
+            customers.stream().filter(c -> isAuthorizedFor(c)).forEach(customer -> response.add(toCustomerType(customer)));
         }
         log.debug("customersGet....done");
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
-
+    // Non-Swagger api - server side processing for the customers grid
+    @RequestMapping(value = "/customers/datatable", method = GET, produces = APPLICATION_JSON_VALUE)
     @Timed
-    public ResponseEntity<Void> customersDelete(@ApiParam(value = "Target Customer Names") @Valid @RequestBody ApplicationNames body) {
-        log.debug("customersDelete....{}", body);
-
-        for (String customerId : body) {
-            log.info("customersDelete: deleting customer {}", customerId);
-            try {
-
-                Customer c = custRepo.findOne(customerId);
-                if (c == null) {
-                    log.error("customersDelete....customer not found {}", customerId);
-                    return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-                }
-
-                log.debug("customersDelete: customer [{}] had " + (c.getApplications() != null ? c.getApplications().size() : 0) + " apps", customerId);
-                if (null != c.getApplications()) {
-                    for (Applications app : c.getApplications()) {
-                        if (app == null) continue;  // TODO: Remove this MAT!!!!
-                        log.debug("customersDelete: deleting customer [{}] application [{}]", customerId, app.getId());
-
-                        if (null != app.getAssessments()) {
-                            for (Assessments ass : app.getAssessments()) {
-                                log.debug("customersDelete: deleting customer [{}] application [{}] assessment [{}]", customerId, app.getId(), ass.getId());
-
-                                assmRepo.delete(ass.getId());
-                            }
-                        }
+    public ResponseEntity<DataTablesResponse<CustomerType>> customersDatatable(@RequestParam Map<String, String> params) {
+        log.debug("customersDatatable....");
+        DataTablesRequest request;
+        KeysetRequest keyset;
+        try {
+            request = DataTablesRequest.of(params);
+            keyset = request.toKeyset(CUSTOMER_SORTS, "CustomerName");
+        } catch (IllegalArgumentException e) {
+            log.warn("customersDatatable....{}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        DataTablesResponse<CustomerType> response = new DataTablesResponse<>(request.getDraw());
+
+        // the same rule as isAuthorizedFor(), as a query
+        CurrentPrincipal principal = getCurrentPrincipal();
+        Criteria visible = null;
+        if (null == principal || (!principal.hasRole(CurrentPrincipal.ROLE_SUPER) && (!principal.hasRole(CurrentPrincipal.ROLE_ADMIN) || null == principal.getCustomerId())))
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        if (!principal.hasRole(CurrentPrincipal.ROLE_SUPER)) visible = Criteria.where("_id").is(principal.getCustomerId());
+
+        Criteria search = request.searchOn("name");
+        Criteria filter = and(visible, search);
+        // with no filter the count comes from the collection metadata
+        response.setRecordsTotal(null == visible ? custRepo.count() : custRepo.countCustomers(visible));
+        response.setRecordsFiltered(null == search ? response.getRecordsTotal() : custRepo.countCustomers(filter));
+        KeysetPage<Customer> page = custRepo.findCustomers(filter, keyset);
+        for (Customer customer : page.getContent()) response.getData().add(toCustomerType(customer));
+        response.setNext(page.getNext());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
 
-                        if (null != app.getReview()) {
-                            reviewRepository.delete(app.getReview().getId());
-                        }
+    // grid column -> mongo sort fields, each backed by a customer_* index
+    private static final Map<String, List<String>> CUSTOMER_SORTS = ImmutableMap.of(
+            "CustomerName", Collections.singletonList("name"),
+            "CustomerDescription", Collections.singletonList("description"),
+            "CustomerVertical", Collections.singletonList("vertical"));
+
+    private static CustomerType toCustomerType(Customer customer) {
+        CustomerType resp = new CustomerType();
+        resp.setCustomerId(customer.getId());
+        resp.setCustomerName(customer.getName());
+        resp.setCustomerDescription(customer.getDescription());
+        resp.setCustomerSize(customer.getSize());
+        resp.setCustomerVertical(customer.getVertical());
+        resp.setCustomerAssessor(customer.getAssessor());
+        resp.setCustomerRTILink(customer.getRtilink());
+
+        // counts come from the materialised summary so the applications are never loaded here
+        CustomerSummary summary = customer.getSummary() == null ? CustomerSummaryService.NONE : customer.getSummary();
+        resp.setCustomerAppCount(summary.getApplications());
+        resp.setCustomerMemberCount(summary.getMembers());
+        resp.setCustomerPercentageComplete(CustomerSummaryService.percentageComplete(summary));// a merge of assessed & reviewed
+        return resp;
+    }
 
-                        appsRepo.delete(app.getId());
-                    }
-                }
+    // Non-Swagger api - recompute the materialised portfolio summaries in case they have drifted
+    @RequestMapping(value = "/customers/summary/rebuild", method = POST)
+    @Timed
+    public ResponseEntity<Map<String, CustomerSummary>> rebuildCustomerSummaries() {
+        log.info("rebuildCustomerSummaries....");
+        Map<String, CustomerSummary> result = new HashMap<>();
+        custRepo.findAll().stream()
+                .filter(c -> isAuthorizedFor(c))
+                .forEach(c -> {
+                    result.put(c.getId(), summaryService.rebuild(c.getId()));
+                    domainCache.changed(c.getId());
+                });
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
 
-                custRepo.delete(customerId);
 
-            } catch (Exception e) {
-                log.error("Error deleting customer [" + customerId + "] ", e.getMessage(), e);
-                return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
-            }
+    @Timed
+    public ResponseEntity<Void> customersDelete(@ApiParam(value = "Target Customer Names") @Valid @RequestBody ApplicationNames body) {
+        log.debug("customersDelete....{}", body);
+        try {
+            return deleted(cascadeDelete.deleteCustomers(currentUsername(), body));
+        } catch (Exception e) {
+            log.error("Error deleting customer(s) " + body, e.getMessage(), e);
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @Timed
@@ -1033,6 +971,7 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
             }
 
+            CustomerSummary before = CustomerSummaryService.contributionOf(app);
             ApplicationAssessmentReview reviewData = new ApplicationAssessmentReview(
                     Long.toString(System.currentTimeMillis()),
                     assm,
@@ -1042,6 +981,10 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
                     body.getWorkPriority(),
                     body.getBusinessPriority());
 
+            ScoringEngine.Score score = scoringService.score(assm);
+            reviewData.setConfidence(score.getConfidence());
+            reviewData.setRag(score.getRag());
+
             if (app.getReview() != null) {
                 reviewData.setId(app.getReview().getId());
             } else {
@@ -1052,6 +995,9 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
             reviewData = reviewRepository.save(reviewData);
             app.setReview(reviewData);
             appsRepo.save(app);
+            summaryService.update(custId, before, CustomerSummaryService.contributionOf(app));
+            domainCache.changed(custId);
+            domainMetrics.reviewWritten();
 
             return new ResponseEntity<>(reviewData.getId(), HttpStatus.OK);
         } catch (Exception ex) {
@@ -1112,7 +1058,7 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
         ArrayList<ReviewType> resp = new ArrayList<>();
 
         try {
-            Customer currCust = custRepo.findOne(custId);
+            Customer currCust = domainCache.findOneWithApplications(custId, domainCache.versionOf(custId));
             if (currCust == null) {
                 log.error("customersCustIdReviewsGet....customer not found {}", custId);
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -1152,50 +1098,11 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
                                                                        @ApiParam(value = "Application Identifier", required = true) @PathVariable("appId") String appId) {
         log.debug("customersCustIdApplicationsAppIdDelete {} {}", custId, appId);
         try {
-            Customer currCust = custRepo.findOne(custId);
-            if (currCust == null) {
-                log.error("customersCustIdApplicationsAppIdDelete....customer not found {}", custId);
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-            }
-
-            Applications delApp = appsRepo.findOne(appId);
-            if (delApp == null) {
-                log.error("customersCustIdApplicationsAppIdDelete....application not found {}", appId);
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-            }
-            List<Applications> currApps = currCust.getApplications();
-            List<Applications> newApps = new ArrayList<>();
-            boolean appFound = false;
-            for (Applications x : currApps) {
-                if (x.getId().equalsIgnoreCase(appId)) {
-                    appFound = true;
-                } else {
-                    newApps.add(x);
-                }
-            }
-
-            if (!appFound) {
-                log.error("customersCustIdApplicationsAppIdDelete....application not found {} in customer list {}", appId, custId);
-                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-            }
-
-            currCust.setApplications(newApps);
-            custRepo.save(currCust);
-
-            if (delApp.getReview() != null)
-                reviewRepository.delete(delApp.getReview());
-
-            if (delApp.getAssessments() != null)
-                assmRepo.delete(delApp.getAssessments());
-
-            appsRepo.delete(appId);
-
+            return deleted(cascadeDelete.deleteApplications(currentUsername(), custId, Collections.singletonList(appId)));
         } catch (Exception ex) {
             log.error("Error while deleting application", ex.getMessage(), ex);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
-
-        return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @Timed
@@ -1216,8 +1123,11 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
             }
 
             if (currApp.getReview().getId().equalsIgnoreCase(reviewId)) {
+                CustomerSummary before = CustomerSummaryService.contributionOf(currApp);
                 currApp.setReview(null);
                 appsRepo.save(currApp);
+                summaryService.update(custId, before, CustomerSummaryService.contributionOf(currApp));
+                domainCache.changed(custId);
                 reviewRepository.delete(reviewId);
             } else {
                 log.error("customersCustIdApplicationsAppIdReviewReviewIdDelete....review {} not found for application", reviewId, appId);
@@ -1267,9 +1177,13 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
             }
 
             if (assmFound) {
+                CustomerSummary before = CustomerSummaryService.contributionOf(currApp);
                 assmRepo.delete(assessId);
                 currApp.setAssessments(newAssmLst);
+                currApp.setLatestAssessment(digestService.digestOfLatest(newAssmLst));
                 appsRepo.save(currApp);
+                summaryService.update(custId, before, CustomerSummaryService.contributionOf(currApp));
+                domainCache.changed(custId);
             } else {
                 log.error("customersCustIdApplicationsAppIdAssessmentsAssessIdDelete....assessment not found for app {}", appId);
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -1295,6 +1209,7 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
                 return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
             }
             custRepo.delete(custId);
+            domainCache.changed(custId);
         } catch (Exception ex) {
             log.error("Error while deleting customer", ex.getMessage(), ex);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -1303,68 +1218,18 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
     }
 
 
-    private Integer calculateConfidence(Assessments assessment, ApplicationAssessmentReview review) throws IOException {
-        double confidence = 0;
-
-        Map<String, Integer> weightMap = new MapBuilder<String, Integer>()
-                .put("RED", 1)
-                .put("UNKNOWN", 700)
-                .put("AMBER", 800)
-                .put("GREEN", 1000)
-                .build();
-
-
-        // Get the questions, answers, ratings etc...
-        Map<String, Map<String, String>> questionInfo = new QuestionReader<Map<String, Map<String, String>>>().read(new HashMap<String, Map<String, String>>(),
-                survey.getQNAPayload(),
-                assessment,
-                (result, name, answerOrdinal, answerRating, answerText, questionText) -> result.put(name, new MapBuilder<String, String>()
-                        .put("answerRating", answerRating)
-                        .build()));
-
-        List<String> ratings = new ArrayList<>();
-        for (Entry<String, String> qa : assessment.getResults().entrySet()) {
-            if (null != questionInfo.get(qa.getKey())) { //ie, an answered question with a missing question definition
-                String rating = questionInfo.get(qa.getKey()).get("answerRating");
-                ratings.add(rating);
-            }
-        }
-        Collections.sort(ratings,
-                (o1, o2) -> "RED".equals(o1) ? -1 : 0
-        );
-
-        int redCount = Collections.frequency(ratings, "RED");
-        int amberCount = Collections.frequency(ratings, "AMBER");
-
-        double adjuster = 1;
-
-        if (redCount > 0) adjuster = adjuster * Math.pow(0.5, redCount);
-        if (amberCount > 0) adjuster = adjuster * Math.pow(0.98, amberCount);
-
-        for (String rating : ratings) {
-            if ("RED".equals(rating)) confidence = confidence * 0.6;
-            if ("AMBER".equals(rating)) confidence = confidence * 0.95;
-
-
-            int questionWeight = 1; //not implemented yet
-//        if ("RED".equals(rating)) adjuster=adjuster/2;
-            confidence += weightMap.get(rating) * adjuster * questionWeight;
-        }
-        int answerCount = ratings.size();
-        int maxConfidence = weightMap.get("GREEN") * answerCount;
-        BigDecimal result = new BigDecimal(((double) confidence / (double) maxConfidence) * 100);
-        result.setScale(0, BigDecimal.ROUND_DOWN);
-        return result.intValue();
-    }
-
     // Get assessment summary data for UI's assessment summary screen
     // GET: /api/pathfinder/customers/{customerId}/applicationAssessmentSummary
     @Timed
     public ResponseEntity<List<ApplicationSummaryType>> customersCustIdApplicationAssessmentSummaryGet(@ApiParam(value = "Customer Identifier", required = true) @PathVariable("custId") String custId) {
         log.debug("customersCustIdApplicationAssessmentSummaryGet {}", custId);
+        long version = domainCache.versionOf(custId);
+        String etag = ETags.of(version);
+        if (ETags.matches(request, etag)) return ETags.notModified(etag);
+
         List<ApplicationSummaryType> resp = new ArrayList<>();
         try {
-            Customer currCust = custRepo.findOne(custId);
+            Customer currCust = domainCache.findOneWithApplications(custId, version);
             if (currCust == null) {
                 log.error("customersCustIdApplicationAssessmentSummaryGet....customer not found {}", custId);
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -1376,41 +1241,75 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
             } else {
                 for (Applications app : applications) {
                     if (app == null) continue; //TODO Mat fix this!!!
-                    if (app.getStereotype().equals(ApplicationType.StereotypeEnum.TARGETAPP.toString())) {
-                        ApplicationSummaryType item = new ApplicationSummaryType();
-                        item.setId(app.getId());
-                        item.setName(app.getName());
-                        ApplicationAssessmentReview review = app.getReview();
-                        List<Assessments> assmList = app.getAssessments();
-                        Assessments assessment = null;
-                        if ((assmList != null) && (!assmList.isEmpty())) assessment = assmList.get(assmList.size() - 1);
-                        item.assessed(assessment != null);
-                        if (item.getAssessed()) {
-                            item.setLatestAssessmentId(assessment.getId());
-                            item.setIncompleteAnswersCount(Collections.frequency(assessment.getResults().values(), "0-UNKNOWN"));
-                            item.setCompleteAnswersCount(assessment.getResults().size() - item.getIncompleteAnswersCount());
-                            item.setOutboundDeps(assessment.getDepsOUT());
-                        }
-                        if (review != null) {
-                            item.setReviewDate(review.getReviewDate());
-                            item.setDecision(review.getReviewDecision());
-                            item.setWorkEffort(review.getReviewEstimate());
-                            item.setWorkPriority(Integer.parseInt(null == review.getWorkPriority() ? "0" : review.getWorkPriority()));
-                            item.setBusinessPriority(Integer.parseInt(null == review.getBusinessPriority() ? "0" : review.getBusinessPriority()));
-
-                        }
-                        if (item.getAssessed() && review != null) {
-                            item.setConfidence(!item.getAssessed() ? 0 : calculateConfidence(assessment, review));
-                        }
-                        resp.add(item);
-                    }
+                    if (app.getStereotype().equals(ApplicationType.StereotypeEnum.TARGETAPP.toString())) resp.add(toApplicationSummary(app));
                 }
             }
         } catch (Exception ex) {
             log.error("Error while processing customersCustIdApplicationAssessmentSummaryGet", ex.getMessage(), ex);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return new ResponseEntity<>(resp, HttpStatus.OK);
+        return ETags.ok(etag, resp);
+    }
+
+    // Non-Swagger api - server side processing for the assessment summary grid, with the progress from the customer's summary
+    @RequestMapping(value = "/customers/{custId}/applicationAssessmentSummary/datatable", method = GET, produces = APPLICATION_JSON_VALUE)
+    @Timed
+    public ResponseEntity<DataTablesResponse<ApplicationSummaryType>> customersCustIdApplicationAssessmentSummaryDatatable(@PathVariable("custId") String custId,
+                                                                                                                         @RequestParam Map<String, String> params) {
+        log.debug("customersCustIdApplicationAssessmentSummaryDatatable {}", custId);
+        DataTablesRequest request;
+        KeysetRequest keyset;
+        try {
+            request = DataTablesRequest.of(params);
+            keyset = request.toKeyset(ImmutableMap.of("Name", Collections.singletonList(APPLICATION_NAME)), "Name");
+        } catch (IllegalArgumentException e) {
+            log.warn("customersCustIdApplicationAssessmentSummaryDatatable....{}", e.getMessage());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        Customer customer = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
+        if (customer == null) return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        if (!isAuthorizedFor(customer)) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+
+        Criteria targets = Criteria.where(APPLICATION_STEREOTYPE).is(ApplicationType.StereotypeEnum.TARGETAPP.toString());
+        Criteria search = request.searchOn(APPLICATION_NAME);
+        CustomerSummary summary = customer.getSummary() == null ? CustomerSummaryService.NONE : customer.getSummary();
+
+        DataTablesResponse<ApplicationSummaryType> response = new DataTablesResponse<>(request.getDraw());
+        response.setRecordsTotal(summary.getTargetApplications());
+        response.setRecordsFiltered(null == search ? summary.getTargetApplications() : custRepo.countApplications(custId, and(targets, search)));
+        KeysetPage<Applications> page = custRepo.findApplications(custId, and(targets, search), keyset);
+        for (Applications app : page.getContent()) response.getData().add(toApplicationSummary(app));
+        response.setNext(page.getNext());
+        response.setSummary(summary);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    private ApplicationSummaryType toApplicationSummary(Applications app) {
+        ApplicationSummaryType item = new ApplicationSummaryType();
+        item.setId(app.getId());
+        item.setName(app.getName());
+        ApplicationAssessmentReview review = app.getReview();
+        AssessmentDigest assessment = digestService.latestOf(app);
+        item.assessed(assessment != null);
+        if (item.getAssessed()) {
+            item.setLatestAssessmentId(assessment.getAssessmentId());
+            item.setIncompleteAnswersCount(assessment.getIncomplete());
+            item.setCompleteAnswersCount(assessment.getAnswered() - item.getIncompleteAnswersCount());
+            item.setOutboundDeps(assessment.getDepsOUT());
+        }
+        if (review != null) {
+            item.setReviewDate(review.getReviewDate());
+            item.setDecision(review.getReviewDecision());
+            item.setWorkEffort(review.getReviewEstimate());
+            item.setWorkPriority(Integer.parseInt(null == review.getWorkPriority() ? "0" : review.getWorkPriority()));
+            item.setBusinessPriority(Integer.parseInt(null == review.getBusinessPriority() ? "0" : review.getBusinessPriority()));
+
+        }
+        if (item.getAssessed() && review != null) {
+            // as scored when the review was written, reviews that predate that take the latest assessment's
+            item.setConfidence(null != review.getConfidence() ? review.getConfidence() : assessment.getConfidence());
+        }
+        return item;
     }
 
     @Timed
@@ -1437,7 +1336,7 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
 
                 for (Applications currApp : apps) {
                     reviewedCount = reviewedCount + (currApp.getReview() != null ? 1 : 0);
-                    assessedCount = assessedCount + ((currApp.getAssessments() != null) && (!currApp.getAssessments().isEmpty()) ? 1 : 0);
+                    assessedCount = assessedCount + (currApp.isAssessed() ? 1 : 0);
                 }
             }
         } catch (Exception ex) {
@@ -1456,10 +1355,14 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
                                                                                  @NotNull @ApiParam(value = "Specify the depedency direction from the applications persepctive NORTHBOUND = incoming to, SOUTHBOUND = outgoing from",
                                                                                          required = true, allowableValues = "NORTHBOUND, SOUTHBOUND") @RequestParam(value = "direction", required = true) String direction) {
         log.debug("customersCustIdDependencyTreeGet CID {}, DIR {}", custId, direction);
+        long version = domainCache.versionOf(custId);
+        String etag = ETags.of(version);
+        if (ETags.matches(request, etag)) return ETags.notModified(etag);
+
         DependenciesListType respDeps = new DependenciesListType();
 
         try {
-            Customer currCust = custRepo.findOne(custId);
+            Customer currCust = domainCache.findOneWithApplications(custId, version);
             if (currCust == null) {
                 log.error("customersCustIdDependencyTreeGet....customer not found {}", custId);
                 return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -1469,14 +1372,12 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
                 log.warn("Customer {} has no applications...", custId);
             } else {
                 for (Applications currApp : apps) {
-                    List<Assessments> currAssmList = currApp.getAssessments();
+                    AssessmentDigest currAssm = digestService.latestOf(currApp);
 
-                    if (currAssmList == null || currAssmList.size() == 0) {
+                    if (currAssm == null) {
                         log.info("Application {} has no assessments...", currApp.getId());
                     } else {
 
-                        String assmID = currAssmList.get(currAssmList.size() - 1).getId();
-                        Assessments currAssm = assmRepo.findOne(assmID);
                         List<String> depList;
 
                         if (direction.equals("NORTHBOUND")) {
@@ -1511,6 +1412,6 @@ public class CustomerAPIImpl extends SecureAPIImpl implements CustomersApi {
             log.error("Error while processing customersCustIdDependencyTreeGet", ex.getMessage(), ex);
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
-        return new ResponseEntity<>(respDeps, HttpStatus.OK);
+        return ETags.ok(etag, respDeps);
     }
 }
@@ -0,0 +1,113 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.repository.KeysetRequest;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The parameters a DataTables grid sends when "serverSide" is on, see https://datatables.net/manual/server-side
+ * <p>
+ * Only the first order column is honoured, and only if it's one the endpoint can sort on in mongo. The grids also
+ * send "after", the cursor returned with the previous page, so paging forward doesn't skip over the earlier rows.
+ */
+public final class DataTablesRequest {
+
+    static final int DEFAULT_LENGTH = 10;
+
+    private final int draw;
+    private final int start;
+    private final int length;
+    private final String search;
+    private final String orderColumn;
+    private final boolean ascending;
+    private final String after;
+
+    private DataTablesRequest(int draw, int start, int length, String search, String orderColumn, boolean ascending, String after) {
+        this.draw = draw;
+        this.start = start;
+        this.length = length;
+        this.search = search;
+        this.orderColumn = orderColumn;
+        this.ascending = ascending;
+        this.after = after;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a numeric parameter (draw, start, length) isn't a number
+     */
+    public static DataTablesRequest of(Map<String, String> params) {
+        String orderIndex = params.get("order[0][column]");
+        String orderColumn = null == orderIndex ? null : params.get("columns[" + orderIndex + "][data]");
+        return new DataTablesRequest(
+                intParam(params, "draw", 0),
+                intParam(params, "start", 0),
+                intParam(params, "length", DEFAULT_LENGTH),
+                StringUtils.trimWhitespace(params.get("search[value]")),
+                orderColumn,
+                !"desc".equalsIgnoreCase(params.get("order[0][dir]")),
+                StringUtils.hasText(params.get("after")) ? params.get("after") : null);
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (!StringUtils.hasText(value)) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " parameter " + value);
+        }
+    }
+
+    public int getDraw() {
+        return draw;
+    }
+
+    public boolean hasSearch() {
+        return StringUtils.hasLength(search);
+    }
+
+    /**
+     * @return case insensitive "contains" match of the search box text on the given field, or null if there's no search
+     */
+    public Criteria searchOn(String field) {
+        if (!hasSearch()) return null;
+        return Criteria.where(field).regex(Pattern.quote(search), "i");
+    }
+
+    /**
+     * @param sortable - grid column (ie. columns[i][data]) to the mongo fields it sorts on
+     * @param defaultColumn - used when the grid asks for a column that isn't sortable
+     * @throws IllegalArgumentException if the after cursor is malformed or was made for another sort order
+     */
+    public KeysetRequest toKeyset(Map<String, List<String>> sortable, String defaultColumn) {
+        boolean known = null != orderColumn && sortable.containsKey(orderColumn);
+        List<String> fields = sortable.get(known ? orderColumn : defaultColumn);
+        return KeysetRequest.of(fields, !known || ascending, after, start, length);
+    }
+}
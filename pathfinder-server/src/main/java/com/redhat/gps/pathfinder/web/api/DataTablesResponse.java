@@ -0,0 +1,100 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.domain.CustomerSummary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reply to a DataTablesRequest. recordsTotal is the size of the grid before the search box is applied and
+ * recordsFiltered after it; next is the cursor the grid sends back as "after" to fetch the following page.
+ */
+public class DataTablesResponse<T> {
+
+    private int draw;
+    private long recordsTotal;
+    private long recordsFiltered;
+    private List<T> data = new ArrayList<>();
+    private String next;
+    private CustomerSummary summary;
+
+    public DataTablesResponse() {
+    }
+
+    public DataTablesResponse(int draw) {
+        this.draw = draw;
+    }
+
+    public int getDraw() {
+        return draw;
+    }
+
+    public void setDraw(int draw) {
+        this.draw = draw;
+    }
+
+    public long getRecordsTotal() {
+        return recordsTotal;
+    }
+
+    public void setRecordsTotal(long recordsTotal) {
+        this.recordsTotal = recordsTotal;
+    }
+
+    public long getRecordsFiltered() {
+        return recordsFiltered;
+    }
+
+    public void setRecordsFiltered(long recordsFiltered) {
+        this.recordsFiltered = recordsFiltered;
+    }
+
+    public List<T> getData() {
+        return data;
+    }
+
+    public void setData(List<T> data) {
+        this.data = data;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
+    /**
+     * @return the customer's materialised summary, for grids that show progress alongside the current page
+     */
+    public CustomerSummary getSummary() {
+        return summary;
+    }
+
+    public void setSummary(CustomerSummary summary) {
+        this.summary = summary;
+    }
+}
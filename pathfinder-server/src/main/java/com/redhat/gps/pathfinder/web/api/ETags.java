@@ -0,0 +1,80 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Enumeration;
+
+/**
+ * Strong ETags for the customer read endpoints, built from the customer's version (see DomainCacheService.changed)
+ * so a matching If-None-Match is answered before anything is loaded or serialized.
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    /**
+     * @param qualifiers - anything else the response depends on, eg. the survey version for the report
+     */
+    public static String of(long version, String... qualifiers) {
+        StringBuilder result = new StringBuilder("\"").append(version);
+        for (String q : qualifiers) result.append('-').append(q);
+        return result.append('"').toString();
+    }
+
+    /**
+     * @return true if one of the request's If-None-Match entries is the given etag (or "*")
+     */
+    public static boolean matches(HttpServletRequest request, String etag) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        if (null == headers) return false;
+        while (headers.hasMoreElements()) {
+            for (String candidate : headers.nextElement().split(",")) {
+                candidate = candidate.trim();
+                // If-None-Match compares weakly
+                if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+                if (candidate.equals("*") || candidate.equals(etag)) return true;
+            }
+        }
+        return false;
+    }
+
+    public static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(revalidate()).build();
+    }
+
+    public static <T> ResponseEntity<T> ok(String etag, T body) {
+        return ResponseEntity.ok().eTag(etag).cacheControl(revalidate()).body(body);
+    }
+
+    // let the browser keep the response, but have it check back with the etag every time
+    private static CacheControl revalidate() {
+        return CacheControl.noCache().cachePrivate();
+    }
+}
@@ -0,0 +1,173 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.redhat.gps.pathfinder.domain.Job;
+import com.redhat.gps.pathfinder.repository.MembersRepository;
+import com.redhat.gps.pathfinder.service.ApplicationCopyService;
+import com.redhat.gps.pathfinder.service.CustomerExportService;
+import com.redhat.gps.pathfinder.service.CustomerImportService;
+import com.redhat.gps.pathfinder.service.JobService;
+import com.redhat.gps.pathfinder.web.api.security.CurrentPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import static org.springframework.web.bind.annotation.RequestMethod.DELETE;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+
+/**
+ * Submits long running work (import, export, copy) as jobs and lets the caller follow, cancel and collect them.
+ * A submitted job answers 202 with the job and its Location, which is polled until the job is finished.
+ */
+@RestController
+@RequestMapping("/api/pathfinder")
+public class JobController extends SecureAPIImpl {
+    private final Logger log = LoggerFactory.getLogger(JobController.class);
+    private final JobService jobs;
+
+    public JobController(MembersRepository membersRepository, JobService jobs) {
+        super(membersRepository);
+        this.jobs = jobs;
+    }
+
+    public static URI locationOf(Job job) {
+        return URI.create("/api/pathfinder/jobs/" + job.getId());
+    }
+
+    // Non-Swagger api - jobs
+    @RequestMapping(value = "/jobs/{id}", method = GET)
+    public ResponseEntity<Job> getJob(@PathVariable("id") String id) {
+        Job job = jobs.find(id);
+        if (null == job) return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        if (!isAuthorizedFor(job)) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    // Non-Swagger api - jobs
+    @RequestMapping(value = "/jobs/{id}", method = DELETE)
+    public ResponseEntity<Job> cancelJob(@PathVariable("id") String id) {
+        Job job = jobs.find(id);
+        if (null == job) return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        if (!isAuthorizedFor(job)) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        log.debug("cancelJob....{}", id);
+        return new ResponseEntity<>(jobs.cancel(id), HttpStatus.OK);
+    }
+
+    // Non-Swagger api - jobs
+    @RequestMapping(value = "/jobs/{id}/output", method = GET)
+    public void getJobOutput(@PathVariable("id") String id, HttpServletResponse response) throws IOException {
+        Job job = jobs.find(id);
+        if (null == job) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (!isAuthorizedFor(job)) {
+            response.sendError(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+        GridFSDBFile output = jobs.openOutput(job);
+        if (null == output) {
+            // not finished yet, or it doesn't produce a file
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setContentType(output.getContentType());
+        response.setContentLengthLong(output.getLength());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + output.getFilename());
+        output.writeTo(response.getOutputStream());
+    }
+
+    // Non-Swagger api - jobs
+    @RequestMapping(value = "/jobs/import", method = POST)
+    public ResponseEntity<Job> importCustomers(HttpServletRequest request) throws IOException {
+        CurrentPrincipal principal = getCurrentPrincipal();
+        if (null == principal) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        InputStream input = request.getInputStream();
+        return submitted(() -> jobs.submit(CustomerImportService.JOB_TYPE, principal.getUsername(), null,
+                Collections.emptyMap(), input));
+    }
+
+    // Non-Swagger api - jobs
+    @RequestMapping(value = "/jobs/export", method = POST)
+    public ResponseEntity<Job> exportCustomers(@RequestBody List<String> custIds) {
+        CurrentPrincipal principal = getCurrentPrincipal();
+        if (null == principal || !custIds.stream().allMatch(principal::isAuthorizedFor))
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        return submitted(() -> jobs.submit(CustomerExportService.JOB_TYPE, principal.getUsername(), null,
+                ImmutableMap.of(CustomerExportService.CUSTOMER_IDS, custIds)));
+    }
+
+    // Non-Swagger api - jobs
+    @RequestMapping(value = "/jobs/customers/{custId}/applications/{appId}/copy", method = POST)
+    public ResponseEntity<Job> copyApplication(@PathVariable("custId") String custId,
+                                               @PathVariable("appId") String appId,
+                                               @RequestBody List<String> names) {
+        CurrentPrincipal principal = getCurrentPrincipal();
+        if (null == principal || !principal.isAuthorizedFor(custId)) return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        if (names.isEmpty()) return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        Map<String, Object> parameters = ImmutableMap.of(ApplicationCopyService.APPLICATION_ID, appId, ApplicationCopyService.NAMES, names);
+        return submitted(() -> jobs.submit(ApplicationCopyService.JOB_TYPE, principal.getUsername(), custId, parameters));
+    }
+
+    private ResponseEntity<Job> submitted(Supplier<Job> submission) {
+        try {
+            Job job = submission.get();
+            return ResponseEntity.status(HttpStatus.ACCEPTED).location(locationOf(job)).body(job);
+        } catch (RejectedExecutionException e) {
+            log.warn("job queue is full", e);
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Jobs are visible to whoever submitted them, and to super users
+     */
+    private boolean isAuthorizedFor(Job job) {
+        CurrentPrincipal principal = getCurrentPrincipal();
+        return null != principal
+                && (principal.hasRole(CurrentPrincipal.ROLE_SUPER) || principal.getUsername().equals(job.getOwner()));
+    }
+}
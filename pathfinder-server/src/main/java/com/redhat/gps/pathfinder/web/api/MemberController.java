@@ -4,8 +4,11 @@ import com.redhat.gps.pathfinder.domain.Customer;
 import com.redhat.gps.pathfinder.domain.Member;
 import com.redhat.gps.pathfinder.repository.CustomerRepository;
 import com.redhat.gps.pathfinder.repository.MembersRepository;
+import com.redhat.gps.pathfinder.service.CustomerSummaryService;
+import com.redhat.gps.pathfinder.service.DomainCacheService;
 import com.redhat.gps.pathfinder.web.api.model.IdentifierList;
 import com.redhat.gps.pathfinder.web.api.model.MemberType;
+import com.redhat.gps.pathfinder.web.api.security.JwtUserDetailsCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -47,11 +50,18 @@ public class MemberController extends SecureAPIImpl {
     private final Logger log = LoggerFactory.getLogger(MemberController.class);
     private final CustomerRepository custRepo;
     private final MembersRepository membersRepo;
+    private final CustomerSummaryService summaryService;
+    private final JwtUserDetailsCache userDetailsCache;
+    private final DomainCacheService domainCache;
 
-    public MemberController(CustomerRepository custRepo, MembersRepository membersRepository) {
+    public MemberController(CustomerRepository custRepo, MembersRepository membersRepository, CustomerSummaryService summaryService, JwtUserDetailsCache userDetailsCache,
+                            DomainCacheService domainCache) {
         super(membersRepository);
         this.custRepo = custRepo;
         this.membersRepo = membersRepository;
+        this.summaryService = summaryService;
+        this.userDetailsCache = userDetailsCache;
+        this.domainCache = domainCache;
     }
 
     private static MemberType populate(Member member, MemberType result) {
@@ -66,16 +76,15 @@ public class MemberController extends SecureAPIImpl {
     public ResponseEntity<List<MemberType>> getMembers(String custId) {
         log.info("getMembers...CID {}", custId);
         List<MemberType> result = new ArrayList<MemberType>();
-        Customer customer = custRepo.findOne(custId);
+        Customer customer = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
         if (customer == null) {
             log.error("customersCustIdMembersGet....customer not found " + custId);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        if (null == customer.getMembers())
-            customer.setMembers(new ArrayList<>());
-
-        for (Member m : customer.getMembers()) {
+        // the customer is shared through the cache, so leave it as it is
+        List<Member> members = null == customer.getMembers() ? new ArrayList<>() : customer.getMembers();
+        for (Member m : members) {
             MemberType member = new MemberType();
             member.setUsername(m.getUsername());
             member.setDisplayName(m.getDisplayName());
@@ -99,7 +108,7 @@ public class MemberController extends SecureAPIImpl {
     // GET: /api/pathfinder/customers/{customerId}/members/{memberId}
     public ResponseEntity<MemberType> getMember(String custId, String memberId) {
         log.info("getMember...CID {}, MEMID {}",custId,memberId);
-        Customer customer = custRepo.findOne(custId);
+        Customer customer = domainCache.findOneWithoutApplications(custId, domainCache.versionOf(custId));
         if (customer == null) {
             log.error("customersCustIdMembersMemberIdGet....customer not found {}", custId);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
@@ -128,9 +137,7 @@ public class MemberController extends SecureAPIImpl {
     }
 
     private ResponseEntity<String> createOrUpdateMember(String custId, String existingUsername, MemberType body) {
-        Customer customer = custRepo.findOne(custId);
-
-        if (customer == null) {
+        if (!custRepo.exists(custId)) {
             log.error("createOrUpdateMember....customer not found " + custId);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -154,16 +161,15 @@ public class MemberController extends SecureAPIImpl {
         member.setRoles(Arrays.asList("ADMIN")); // SUPER, ADMIN OR USER
         member.setPrivileges(Arrays.asList("ALL")); // can add apps etc... not currently used
 
-        member.setCustomerId(customer.getId());
+        member.setCustomerId(custId);
         membersRepo.save(member);
+        userDetailsCache.invalidate(member.getUsername());
 
-        if (existingUsername == null) {
-            if (null == customer.getMembers())
-                customer.setMembers(new ArrayList<>());
-
-            customer.getMembers().add(member);
-            custRepo.save(customer);
+        // $push rather than saving the customer back, which would undo concurrent changes to its summary and applications
+        if (existingUsername == null && custRepo.addMember(custId, member)) {
+            summaryService.membersChanged(custId, 1);
         }
+        domainCache.changed(custId);
 
         return new ResponseEntity<String>(HttpStatus.OK);
     }
@@ -173,26 +179,18 @@ public class MemberController extends SecureAPIImpl {
 //  public ResponseEntity<String> customersCustIdMembersDelete(@ApiParam(value = "Customer Identifier",required=true ) @PathVariable("custId") String custId,@ApiParam(value = "Target member IDs"  )  @Valid @RequestBody IdentifierList body) {
     public ResponseEntity<String> deleteMembers(String custId, IdentifierList body) {
         log.info("customersCustIdMembersDelete...");
-        Customer customer = custRepo.findOne(custId);
-
-        if (customer == null) {
+        if (!custRepo.exists(custId)) {
             log.error("customersCustIdMembersPost....customer not found " + custId);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        if (null == customer.getMembers())
-            customer.setMembers(new ArrayList<>());
-
         body.forEach((id) -> {
             log.debug("Deleting Member " + id);
-            List<Member> newMembers = new ArrayList<>();
-            for (Member m : customer.getMembers()) {
-                if (!m.getUsername().equals(id))
-                    newMembers.add(m);
-            }
-            customer.setMembers(newMembers);
+            userDetailsCache.invalidate(id);
         });
-        custRepo.save(customer);
+        int removed = custRepo.removeMembers(custId, body);
+        summaryService.membersChanged(custId, -removed);
+        domainCache.changed(custId);
 
         return new ResponseEntity<String>(HttpStatus.OK);
     }
@@ -22,53 +22,51 @@ package com.redhat.gps.pathfinder.web.api;
  * #L%
  */
 
+import com.redhat.gps.pathfinder.domain.AssessmentAnswers;
 import com.redhat.gps.pathfinder.domain.Assessments;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
 
 public class QuestionReader<T> {
 
     private final Logger log = LoggerFactory.getLogger(QuestionReader.class);
 
-    public T read(T result, String survey, Assessments assessment, CustomerAPIImpl.QuestionParser<T> parser) {
-        mjson.Json surveyJson = mjson.Json.read(survey);
-        mjson.Json pages = surveyJson.at("pages");
-        for (mjson.Json page : pages.asJsonList()) {
-            for (mjson.Json question : page.at("questions").asJsonList()) {
-
-                if (question.at("type").asString().equals("radiogroup")) {
-
-                    Map<String, String> answerRankingMap = new HashMap<>();
-                    for (mjson.Json a : question.at("choices").asJsonList()) {
-                        String answer = a.asString();
-                        answerRankingMap.put(answer.substring(0, answer.indexOf("-")), answer.substring(answer.indexOf("-") + 1)); // answer id to ranking map
-                    }
-
-                    try {
-                        if (assessment.getResults().containsKey(question.at("name").asString())) {
-
-                            String name = question.at("name").asString();
-                            String answerOrdinal = ((String) assessment.getResults().get(question.at("name").asString())).split("-")[0]; // should return integer of the value chosen
-                            String answerRating = answerRankingMap.get(answerOrdinal).split("\\|")[0];
-                            String answerText = answerRankingMap.get(answerOrdinal).split("\\|")[1];
-                            String questionText = question.at("title").asString();
-                            parser.parse(result, name, answerOrdinal, answerRating, answerText, questionText);
-                        }
+    public T read(T result, CompiledSurvey survey, Assessments assessment, CustomerAPIImpl.QuestionParser<T> parser) {
+        AssessmentAnswers answers = assessment.getAnswers();
+        if (null != answers && null != answers.getSurvey()) {
+            // read against the survey it was answered with, which is not necessarily the current one
+            CompiledSurvey answeredWith = answers.getSurvey();
+            for (int q = 0; q < answeredWith.size(); q++) {
+                int choice = answers.getChoice(q);
+                if (choice < 0) continue;
+                parser.parse(result, answeredWith.getName(q), answeredWith.getOrdinal(q, choice), answeredWith.getRating(q, choice), answeredWith.getAnswerText(q, choice), answeredWith.getTitle(q));
+            }
+            return result;
+        }
 
-                    } catch (Exception e) {
-                        log.error(e.getMessage(), e);
-                        log.error("Error on: assessment.results=" + assessment.getResults());
-                        log.error("Error on: assessment.results.containsKey(" + question.at("name").asString() + ")=" + assessment.getResults().containsKey(question.at("name").asString()));
-                        log.error("Error on: question.name=" + question.at("name").asString());
-                        log.error("Error on: assessment.results[" + question.at("name").asString() + "]=" + assessment.getResults().get(question.at("name").asString()));
-                    }
+        Map<String, String> results = assessment.getResults();
+        for (int q = 0; q < survey.size(); q++) {
+            String name = survey.getName(q);
+            String value = results.get(name);
+            if (value == null) continue;
 
-                } else  {
-                    // leave this out since it's things like "Select the app..."
+            try {
+                int dash = value.indexOf('-');
+                String answerOrdinal = dash < 0 ? value : value.substring(0, dash); // should return integer of the value chosen
+                int choice = survey.choiceIndexOf(q, answerOrdinal);
+                if (choice < 0) {
+                    log.error("Error on: assessment.results[" + name + "]=" + value + " does not match any answer in the survey");
+                    continue;
                 }
+                parser.parse(result, name, answerOrdinal, survey.getRating(q, choice), survey.getAnswerText(q, choice), survey.getTitle(q));
+
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                log.error("Error on: assessment.results=" + results);
+                log.error("Error on: question.name=" + name);
+                log.error("Error on: assessment.results[" + name + "]=" + value);
             }
         }
         return result;
@@ -26,7 +26,7 @@ import com.codahale.metrics.annotation.Timed;
 import com.redhat.gps.pathfinder.domain.Assessments;
 import com.redhat.gps.pathfinder.domain.QuestionMetaData;
 import com.redhat.gps.pathfinder.repository.AssessmentsRepository;
-import com.redhat.gps.pathfinder.repository.QuestionMetaDataRepository;
+import com.redhat.gps.pathfinder.service.DomainCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -47,11 +47,11 @@ public class QuestionsMetaDataAPI {
 
     private static final String ENTITY_NAME = "customer";
 
-    private final QuestionMetaDataRepository questionRepository;
+    private final DomainCacheService domainCache;
     private final AssessmentsRepository assmRepository;
 
-    public QuestionsMetaDataAPI(QuestionMetaDataRepository questionRepository,AssessmentsRepository assmRepo) {
-        this.questionRepository = questionRepository;
+    public QuestionsMetaDataAPI(DomainCacheService domainCache,AssessmentsRepository assmRepo) {
+        this.domainCache = domainCache;
         this.assmRepository = assmRepo;
     }
 
@@ -65,7 +65,7 @@ public class QuestionsMetaDataAPI {
     @Timed
     public List<QuestionMetaData> getAllQuestionMetadata() {
         log.debug("REST request to get question metadata ");
-        return questionRepository.findAll();
+        return domainCache.findAllQuestionMetaData();
     }
 
     @GetMapping(value= "/minimum",produces = "application/json")
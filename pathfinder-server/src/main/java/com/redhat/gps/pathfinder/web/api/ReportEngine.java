@@ -0,0 +1,234 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.AssessmentAnswers;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the portfolio report (assessment difficulty split plus the list of RED risks and the apps that raised them)
+ * in a single pass over the latest assessment of each application.
+ * Risks are keyed on the dense question/choice id of the compiled survey, and the offending apps are held as
+ * indexes into the application list until the report is serialized.
+ * Assessments answered against an earlier survey are rated with that survey. Their RED answers count towards the
+ * same risk as today's survey when the question and answer are unchanged, otherwise they're reported on their own.
+ */
+public class ReportEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportEngine.class);
+
+    private final CompiledSurvey survey;
+    private final ScoringEngine scoring;
+
+    public ReportEngine(CompiledSurvey survey) {
+        this(ScoringEngine.unweighted(survey));
+    }
+
+    /**
+     * @param scoring - decides the overall RAG status of each assessment, and supplies the survey
+     */
+    public ReportEngine(ScoringEngine scoring) {
+        this.survey = scoring.getSurvey();
+        this.scoring = scoring;
+    }
+
+    public Report build(List<Applications> applications) {
+        Report report = new Report();
+        if (null == applications) return report;
+
+        Risk[] risksById = new Risk[survey.getTotalChoices()];
+        Map<String, Risk> earlierRisks = new HashMap<>();
+        for (int appIndex = 0; appIndex < applications.size(); appIndex++) {
+            Applications app = applications.get(appIndex);
+            if (null == app.getAssessments() || app.getAssessments().isEmpty()) continue;
+            Assessments assessment = app.getAssessments().get(app.getAssessments().size() - 1);
+
+            int reds = 0;
+            int ambers = 0;
+            int answers;
+            Map<String, String> results;
+            AssessmentAnswers encoded = assessment.getAnswers();
+            if (null != encoded && null != encoded.getSurvey()) {
+                // compact form, the ratings are read straight off the choice positions of the survey it was answered with
+                CompiledSurvey answeredWith = encoded.getSurvey();
+                boolean current = encoded.isEncodedWith(survey);
+                for (int q = 0; q < answeredWith.size(); q++) {
+                    int choice = encoded.getChoice(q);
+                    if (choice < 0) continue;
+                    String rating = answeredWith.getRating(q, choice);
+                    if ("AMBER".equals(rating)) {
+                        ambers++;
+                    } else if ("RED".equals(rating)) {
+                        reds++;
+                        if (current) {
+                            addRisk(report, risksById, applications, appIndex, q, choice);
+                        } else {
+                            addEarlierRisk(report, risksById, earlierRisks, applications, appIndex, answeredWith, q, choice);
+                        }
+                    }
+                }
+                answers = encoded.size();
+                results = encoded.getExtras();
+            } else {
+                results = assessment.getResults();
+                if (null == results) results = new LinkedHashMap<>();
+                answers = results.size();
+            }
+
+            for (Map.Entry<String, String> e : results.entrySet()) {
+                String value = e.getValue();
+                //Skip processing notes
+                if (null == value || value.contains("NOTESONPAGE")) continue;
+
+                if (value.contains("-AMBER")) {
+                    ambers++;
+                } else if (value.contains("-RED")) {
+                    reds++;
+                    int q = survey.indexOf(e.getKey());
+                    int dash = value.indexOf('-');
+                    int choice = q < 0 ? -1 : survey.choiceIndexOf(q, value.substring(0, dash));
+                    if (choice < 0) {
+                        log.warn("Unable to map assessment result {} to a risk ....probably due to CustomQuestions being used during assessment and then removed before displaying results", e.getKey());
+                        continue;
+                    }
+                    addRisk(report, risksById, applications, appIndex, q, choice);
+                }
+            }
+
+            report.total++;
+            switch (scoring.ragOf(reds, ambers, answers)) {
+                case ScoringEngine.RED:
+                    report.hard++;
+                    break;
+                case ScoringEngine.AMBER:
+                    report.medium++;
+                    break;
+                default:
+                    report.easy++;
+                    break;
+            }
+        }
+        return report;
+    }
+
+    private void addRisk(Report report, Risk[] risksById, List<Applications> applications, int appIndex, int q, int choice) {
+        int riskId = survey.getChoiceId(q, choice);
+        Risk risk = risksById[riskId];
+        if (null == risk) {
+            risk = risksById[riskId] = new Risk(survey, q, choice, applications);
+            report.risks.add(risk);
+        }
+        risk.addOffendingApp(appIndex);
+    }
+
+    private void addEarlierRisk(Report report, Risk[] risksById, Map<String, Risk> earlierRisks, List<Applications> applications,
+                                int appIndex, CompiledSurvey answeredWith, int q, int choice) {
+        String title = answeredWith.getTitle(q);
+        String answer = answeredWith.getAnswerText(q, choice);
+        // custom questions are named by position, so the name alone doesn't say it's the same question
+        int current = survey.indexOf(answeredWith.getName(q));
+        int currentChoice = current < 0 ? -1 : survey.choiceIndexOf(current, answeredWith.getOrdinal(q, choice));
+        if (currentChoice >= 0 && title.equals(survey.getTitle(current)) && answer.equals(survey.getAnswerText(current, currentChoice))) {
+            addRisk(report, risksById, applications, appIndex, current, currentChoice);
+            return;
+        }
+
+        String key = title + '\n' + answer;
+        Risk risk = earlierRisks.get(key);
+        if (null == risk) {
+            risk = new Risk(answeredWith, q, choice, applications);
+            earlierRisks.put(key, risk);
+            report.risks.add(risk);
+        }
+        risk.addOffendingApp(appIndex);
+    }
+
+    public class Report {
+        private int easy;
+        private int medium;
+        private int hard;
+        private int total;
+        private final List<Risk> risks = new ArrayList<>();
+
+        public Map<String, Double> getAssessmentSummary() {
+            Map<String, Double> s = new LinkedHashMap<>();
+            s.put("Easy", (double) easy);
+            s.put("Medium", (double) medium);
+            s.put("Hard", (double) hard);
+            s.put("Total", (double) total);
+            return s;
+        }
+
+        public List<Risk> getRisks() {
+            return risks;
+        }
+    }
+
+    public class Risk {
+        private final CompiledSurvey survey;
+        private final int question;
+        private final int choice;
+        private final List<Applications> applications;
+        private int[] apps = new int[4];
+        private int appCount;
+
+        private Risk(CompiledSurvey survey, int question, int choice, List<Applications> applications) {
+            this.survey = survey;
+            this.question = question;
+            this.choice = choice;
+            this.applications = applications;
+        }
+
+        private void addOffendingApp(int appIndex) {
+            if (appCount == apps.length) apps = Arrays.copyOf(apps, appCount * 2);
+            apps[appCount++] = appIndex;
+        }
+
+        public String getQ() {
+            return survey.getTitle(question);
+        }
+
+        public String getA() {
+            return survey.getAnswerText(question, choice);
+        }
+
+        public String getApps() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < appCount; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append(applications.get(apps[i]).getName());
+            }
+            return sb.toString();
+        }
+    }
+}
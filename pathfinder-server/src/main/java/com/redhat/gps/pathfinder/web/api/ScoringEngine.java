@@ -0,0 +1,313 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.redhat.gps.pathfinder.domain.AssessmentAnswers;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.QuestionMetaData;
+import com.redhat.gps.pathfinder.domain.QuestionWeights;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Confidence and overall RAG status of an assessment, evaluated against per-question weight tables compiled from
+ * the survey and the question metadata. Questions without metadata weigh 1.
+ * <p>
+ * Confidence starts from a score per answer (GREEN 1000, AMBER 800, UNKNOWN 700, RED 1) scaled by the question's
+ * weight. The REDs are applied first, each one keeping 60% of the confidence gathered so far, then the remaining
+ * answers in order with each AMBER keeping 95%. The total is then adjusted by 0.5 per RED and 0.98 per AMBER and
+ * expressed as a percentage of an all GREEN assessment.
+ * Since every step is linear, the RED and non-RED runs are accumulated separately in one pass and combined at the end.
+ */
+public final class ScoringEngine {
+
+    public static final double DEFAULT_AMBER_THRESHOLD = 0.3;
+    public static final int DEFAULT_RED_THRESHOLD = 1;
+
+    public static final String RED = "RED";
+    public static final String AMBER = "AMBER";
+    public static final String GREEN = "GREEN";
+
+    // rank codes, as QuestionWeights.QuestionRank
+    private static final byte UNRATED = -1;
+    private static final byte UNKNOWN_RANK = 0;
+    private static final byte RED_RANK = 1;
+    private static final byte AMBER_RANK = 2;
+    private static final byte GREEN_RANK = 3;
+
+    // score of a single answer, indexed by rank code
+    private static final double[] RANK_SCORE = {700, 1, 800, 1000};
+    private static final double MAX_SCORE = RANK_SCORE[GREEN_RANK];
+    private static final double RED_DECAY = 0.6;
+    private static final double AMBER_DECAY = 0.95;
+    private static final double RED_ADJUSTER = 0.5;
+    private static final double AMBER_ADJUSTER = 0.98;
+
+    private final CompiledSurvey survey;
+    private final byte[][] ranks;
+    private final int[][] weights;
+    private final double amberThreshold;
+    private final int redThreshold;
+    // RED_ADJUSTER^n etc. for n up to the number of questions
+    private final double[] redAdjusters;
+    private final double[] amberAdjusters;
+    private final double[] amberDecays;
+    private final String version;
+
+    private ScoringEngine(CompiledSurvey survey, byte[][] ranks, int[][] weights, double amberThreshold, int redThreshold) {
+        this.survey = survey;
+        this.ranks = ranks;
+        this.weights = weights;
+        this.amberThreshold = amberThreshold;
+        this.redThreshold = Math.max(1, redThreshold);
+        this.redAdjusters = powers(RED_ADJUSTER, survey.size());
+        this.amberAdjusters = powers(AMBER_ADJUSTER, survey.size());
+        this.amberDecays = powers(AMBER_DECAY, survey.size());
+        this.version = versionOf(survey, weights, this.amberThreshold, this.redThreshold);
+    }
+
+    private static String versionOf(CompiledSurvey survey, int[][] weights, double amberThreshold, int redThreshold) {
+        Hasher hasher = Hashing.murmur3_32().newHasher()
+                .putString(survey.getVersion(), StandardCharsets.UTF_8)
+                .putDouble(amberThreshold)
+                .putInt(redThreshold);
+        for (int[] question : weights) {
+            for (int weight : question) hasher.putInt(weight);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @param metadata - per-question weights, keyed on question name with one entry per choice ordinal
+     */
+    public static ScoringEngine compile(CompiledSurvey survey, List<QuestionMetaData> metadata, double amberThreshold, int redThreshold) {
+        Map<String, List<QuestionWeights>> weightsByQuestion = new HashMap<>();
+        if (null != metadata) {
+            for (QuestionMetaData m : metadata) {
+                if (null != m.getId() && null != m.getMetaData()) weightsByQuestion.put(m.getId(), m.getMetaData());
+            }
+        }
+
+        byte[][] ranks = new byte[survey.size()][];
+        int[][] weights = new int[survey.size()][];
+        for (int q = 0; q < survey.size(); q++) {
+            List<QuestionWeights> questionWeights = weightsByQuestion.getOrDefault(survey.getName(q), Collections.emptyList());
+            ranks[q] = new byte[survey.getChoiceCount(q)];
+            weights[q] = new int[survey.getChoiceCount(q)];
+            for (int c = 0; c < survey.getChoiceCount(q); c++) {
+                ranks[q][c] = rankOf(survey.getRating(q, c));
+                int ordinal = ordinalOf(survey.getOrdinal(q, c));
+                weights[q][c] = ordinal >= 0 && ordinal < questionWeights.size() && null != questionWeights.get(ordinal)
+                        ? Math.max(0, questionWeights.get(ordinal).getWeight()) : 1;
+            }
+        }
+        return new ScoringEngine(survey, ranks, weights, amberThreshold, redThreshold);
+    }
+
+    public static ScoringEngine unweighted(CompiledSurvey survey) {
+        return compile(survey, Collections.emptyList(), DEFAULT_AMBER_THRESHOLD, DEFAULT_RED_THRESHOLD);
+    }
+
+    public CompiledSurvey getSurvey() {
+        return survey;
+    }
+
+    /**
+     * @return content hash of the survey, weights and thresholds, ie. it changes whenever the same answers could score differently
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public Score score(Assessments assessment) {
+        Score score = new Score();
+        AssessmentAnswers encoded = assessment.getAnswers();
+        if (null != encoded && encoded.isEncodedWith(survey)) {
+            for (int q = 0; q < survey.size(); q++) {
+                int choice = encoded.getChoice(q);
+                if (choice >= 0) add(score, q, choice);
+            }
+            score.answered = encoded.size();
+        } else if (null != encoded && null != encoded.getSurvey()) {
+            // answered against an earlier survey, so rated as it was then and weighted as the same question is now
+            CompiledSurvey answeredWith = encoded.getSurvey();
+            for (int q = 0; q < answeredWith.size(); q++) {
+                int choice = encoded.getChoice(q);
+                if (choice >= 0) add(score, rankOf(answeredWith.getRating(q, choice)), weightOf(answeredWith, q, choice));
+            }
+            score.answered = encoded.size();
+        } else if (null != assessment.getResults()) {
+            for (Map.Entry<String, String> e : assessment.getResults().entrySet()) {
+                String value = e.getValue();
+                int q = survey.indexOf(e.getKey());
+                int dash = null == value ? -1 : value.indexOf('-');
+                if (q < 0 || dash < 0) continue;
+                int choice = survey.choiceIndexOf(q, value.substring(0, dash));
+                if (choice >= 0) add(score, q, choice);
+            }
+            score.answered = assessment.getResults().size();
+        }
+
+        if (score.maxScore > 0) {
+            int reds = score.red;
+            int ambers = score.amber;
+            double total = score.redRun * power(amberDecays, AMBER_DECAY, ambers) + score.otherRun;
+            double adjuster = power(redAdjusters, RED_ADJUSTER, reds) * power(amberAdjusters, AMBER_ADJUSTER, ambers);
+            score.confidence = (int) (total * adjuster / score.maxScore * 100);
+        }
+        score.rag = ragOf(score.red, score.amber, score.answered);
+        return score;
+    }
+
+    /**
+     * @param answers - every answer given, including those that don't carry a rating
+     */
+    public String ragOf(int reds, int ambers, int answers) {
+        if (reds >= redThreshold) return RED;
+        if (answers > 0 && (double) ambers / (double) answers > amberThreshold) return AMBER;
+        return GREEN;
+    }
+
+    private void add(Score score, int q, int choice) {
+        add(score, ranks[q][choice], weights[q][choice]);
+    }
+
+    private int weightOf(CompiledSurvey answeredWith, int q, int choice) {
+        int current = survey.indexOf(answeredWith.getName(q));
+        int currentChoice = current < 0 ? -1 : survey.choiceIndexOf(current, answeredWith.getOrdinal(q, choice));
+        return currentChoice < 0 ? 1 : weights[current][currentChoice];
+    }
+
+    private void add(Score score, byte rank, int weight) {
+        if (rank == UNRATED) return;
+        double points = RANK_SCORE[rank] * weight;
+        score.maxScore += MAX_SCORE * weight;
+        switch (rank) {
+            case RED_RANK:
+                score.red++;
+                score.redRun = score.redRun * RED_DECAY + points;
+                break;
+            case AMBER_RANK:
+                score.amber++;
+                score.otherRun = score.otherRun * AMBER_DECAY + points;
+                break;
+            case GREEN_RANK:
+                score.green++;
+                score.otherRun += points;
+                break;
+            default:
+                score.unknown++;
+                score.otherRun += points;
+                break;
+        }
+    }
+
+    private static byte rankOf(String rating) {
+        if ("UNKNOWN".equals(rating)) return UNKNOWN_RANK;
+        if (RED.equals(rating)) return RED_RANK;
+        if (AMBER.equals(rating)) return AMBER_RANK;
+        if (GREEN.equals(rating)) return GREEN_RANK;
+        return UNRATED;
+    }
+
+    private static int ordinalOf(String ordinal) {
+        try {
+            return Integer.parseInt(ordinal);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static double[] powers(double base, int max) {
+        double[] result = new double[max + 1];
+        result[0] = 1;
+        for (int i = 1; i <= max; i++) result[i] = result[i - 1] * base;
+        return result;
+    }
+
+    private static double power(double[] table, double base, int n) {
+        return n < table.length ? table[n] : Math.pow(base, n);
+    }
+
+    /**
+     * Outcome of scoring one assessment
+     */
+    public static final class Score {
+        private int red;
+        private int amber;
+        private int green;
+        private int unknown;
+        private int answered;
+        private int confidence;
+        private String rag;
+        private double redRun;
+        private double otherRun;
+        private double maxScore;
+
+        private Score() {
+        }
+
+        public int getRed() {
+            return red;
+        }
+
+        public int getAmber() {
+            return amber;
+        }
+
+        public int getGreen() {
+            return green;
+        }
+
+        public int getUnknown() {
+            return unknown;
+        }
+
+        /**
+         * @return number of answers given, including those that don't carry a rating (ie. notes)
+         */
+        public int getAnswered() {
+            return answered;
+        }
+
+        /**
+         * @return 0 to 100, or 0 if none of the answers carry a rating
+         */
+        public int getConfidence() {
+            return confidence;
+        }
+
+        /**
+         * @return RED, AMBER or GREEN
+         */
+        public String getRag() {
+            return rag;
+        }
+    }
+}
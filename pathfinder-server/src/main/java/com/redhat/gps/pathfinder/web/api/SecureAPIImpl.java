@@ -25,9 +25,12 @@ package com.redhat.gps.pathfinder.web.api;
 import com.redhat.gps.pathfinder.domain.Customer;
 import com.redhat.gps.pathfinder.domain.Member;
 import com.redhat.gps.pathfinder.repository.MembersRepository;
+import com.redhat.gps.pathfinder.web.api.security.CurrentPrincipal;
+import com.redhat.gps.pathfinder.web.api.security.MemberUserDetails;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import javax.servlet.http.HttpServletRequest;
@@ -45,28 +48,31 @@ public class SecureAPIImpl {
     private MembersRepository membersRepo;
 
     /**
-     * Lazy init current user because I expect it to be called multiple times per request and don't want to repeatedly hit the datastore
+     * The member making the current request. Normally bound once by JwtAuthorizationTokenFilter; for requests
+     * authenticated some other way it's loaded here and bound to the request, so the datastore is hit at most once per request.
+     * Nothing is kept on the controller itself since controllers are shared between concurrent requests.
      */
-    private Member _currentUser = null;
-
-    private Member getCurrentUser() {
-        if (null == _currentUser || !SecurityContextHolder.getContext().getAuthentication().getName().equals(_currentUser.getUsername())) {
-            String username = SecurityContextHolder.getContext().getAuthentication().getName();
-            // Shouldnt be possible to have a null username, otherwise Spring Security's filter chain has messed up again
-            _currentUser = membersRepo.findOne(username);
-            log.debug("_currentUser is {}", _currentUser);
+    protected CurrentPrincipal getCurrentPrincipal() {
+        CurrentPrincipal principal = CurrentPrincipal.current();
+        if (null == principal) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (null == authentication) return null;
+            if (authentication.getPrincipal() instanceof MemberUserDetails) {
+                principal = ((MemberUserDetails) authentication.getPrincipal()).getPrincipal();
+            } else {
+                Member member = membersRepo.findOne(authentication.getName());
+                if (null == member) return null;
+                principal = CurrentPrincipal.of(member);
+            }
+            log.debug("current principal is {}", principal);
+            CurrentPrincipal.bind(principal);
         }
-        return _currentUser;
+        return principal;
     }
 
     public boolean isAuthorizedFor(Customer c) {
-        Member currentUser = getCurrentUser();
-        boolean result = currentUser.getRoles().contains("SUPER")
-                ||
-                (currentUser.getRoles().contains("ADMIN")
-                        && currentUser.getCustomerId() != null
-                        && currentUser.getCustomerId().equals(c.getId()));
-        return result;
+        CurrentPrincipal currentUser = getCurrentPrincipal();
+        return null != currentUser && currentUser.isAuthorizedFor(c.getId());
     }
 
 }
@@ -0,0 +1,109 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.hash.Hashing;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body that never changes for the life of its owner (eg. the survey script), encoded and gzipped once
+ * up front so serving it is only a header check and a copy of the bytes.
+ */
+public final class StaticPayload {
+
+    private final MediaType contentType;
+    private final CacheControl cacheControl;
+    private final byte[] content;
+    private final byte[] gzipped;
+    private final String etag;
+
+    private StaticPayload(MediaType contentType, CacheControl cacheControl, byte[] content) {
+        this.contentType = contentType;
+        this.cacheControl = cacheControl;
+        this.content = content;
+        this.gzipped = gzip(content);
+        this.etag = "\"" + Hashing.murmur3_128().hashBytes(content).toString() + "\"";
+    }
+
+    public static StaticPayload of(String content, MediaType contentType, CacheControl cacheControl) {
+        return new StaticPayload(contentType, cacheControl, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String getETag() {
+        return etag;
+    }
+
+    /**
+     * @return 304 if the client already has this content, otherwise the content, gzipped when the client accepts it
+     */
+    public ResponseEntity<byte[]> respond(HttpServletRequest request) {
+        if (ETags.matches(request, etag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(request)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").contentLength(gzipped.length).body(gzipped);
+        }
+        return response.contentLength(content.length).body(content);
+    }
+
+    static boolean acceptsGzip(HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        if (null == headers) return false;
+        while (headers.hasMoreElements()) {
+            for (String coding : headers.nextElement().split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (!"gzip".equalsIgnoreCase(parts[0].trim())) continue;
+                // gzip;q=0 means the client refuses it
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // can't happen writing to memory
+        }
+        return out.toByteArray();
+    }
+}
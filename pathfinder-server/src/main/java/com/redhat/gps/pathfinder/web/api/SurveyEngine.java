@@ -22,16 +22,15 @@ package com.redhat.gps.pathfinder.web.api;
  * #L%
  */
 
-
+import com.google.common.hash.Hashing;
 import com.redhat.gps.pathfinder.QuestionProcessor;
+import com.redhat.gps.pathfinder.repository.SurveyRegistry;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
 import org.json.JSONException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
@@ -39,43 +38,48 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 
+/**
+ * Builds the survey from the base questions plus the optional CUSTOM_QUESTIONS file and publishes it as an immutable
+ * SurveyPayload. reload() rebuilds it from the file (see SurveyReloader) and swaps the published survey in one
+ * volatile write, so readers see either the old or the new survey, never a mix.
+ * Every published survey is registered in the SurveyRegistry so assessments stay readable against the survey they
+ * were answered with.
+ */
 @Component
 public class SurveyEngine {
     private final Logger log = LoggerFactory.getLogger(SurveyEngine.class);
-    private String SurveyQuestionsJSON;
-    private String finalJScriptDefn;
-    private HashMap<String, List<String>> QNAStore;
 
     @Value("${CUSTOM_QUESTIONS:}")
     private String customQuestionsFileLocation;
 
+    private String surveyTemplate;
 
+    private volatile SurveyPayload current;
+    private String currentCustomQuestionsHash;
 
-    @PostConstruct
-    public void init() throws IOException, JSONException {
-        this.getSurveyContent();
-        this.QNAStore = new QuestionProcessor().GenerateSurveyQA(this.SurveyQuestionsJSON);
-    }
+    private final SurveyRegistry surveyRegistry;
 
-    @Bean
-    @Scope("singleton")
-    public SurveyPayload surveySingleton() {
-        return new SurveyPayload(this.finalJScriptDefn,this.SurveyQuestionsJSON,this.QNAStore);
+    public SurveyEngine(SurveyRegistry surveyRegistry) {
+        this.surveyRegistry = surveyRegistry;
     }
 
+    @PostConstruct
+    public void init() throws IOException, JSONException {
+        try (InputStream is4 = CustomerAPIImpl.class.getClassLoader().getResourceAsStream("questions/application-survey.js");) {
+            this.surveyTemplate = getResourceAsString(is4);
+        } catch (Exception ex) {
+            log.error("Unable to process and enrich the question template....FATAL ERROR ", ex);
+            System.exit(42);
+        }
 
-    private void getSurveyContent() throws IOException {
-        String rawQuestionsJson = "";
-        String questionsJsonSchema = "";
         String customQuestionsJson = "";
-
-        if ((customQuestionsFileLocation != null) && (!customQuestionsFileLocation.isEmpty())) {
-            File customQuestionsFile = new File(customQuestionsFileLocation);
-            try (InputStream cqis = new FileInputStream(customQuestionsFile);) {
-                customQuestionsJson = getResourceAsString(cqis);
+        if (isCustomised()) {
+            try {
+                customQuestionsJson = readCustomQuestions();
                 log.info("Successfully read custom questions file {}", customQuestionsFileLocation);
             } catch (Exception ex) {
                 log.error("Unable to load custom questions file {}", customQuestionsFileLocation);
@@ -83,31 +87,93 @@ public class SurveyEngine {
             }
         }
 
+        String surveyQuestionsJson;
+        try {
+            surveyQuestionsJson = generateSurveyPages(customQuestionsJson, false);
+            log.info("Successfully generated Survey Questions");
+        } catch (Exception e) {
+            try (InputStream is3 = CustomerAPIImpl.class.getClassLoader().getResourceAsStream("questions/default-survey-materialised.json")) {
+                surveyQuestionsJson = getResourceAsString(is3);
+            }
+            log.error("Unable to find/parse question-data-default...using default-survey...turn on debug for more info", e);
+        }
+        publish(surveyQuestionsJson, customQuestionsJson);
+    }
+
+    /**
+     * @return the published survey, hold on to it rather than calling this again to see a consistent survey
+     */
+    public SurveyPayload current() {
+        return current;
+    }
+
+    /**
+     * @return the compiled survey with the given version, or null if it was never published
+     */
+    public CompiledSurvey find(String version) {
+        SurveyPayload payload = current;
+        if (null != payload && payload.getCompiledSurvey().getVersion().equals(version)) return payload.getCompiledSurvey();
+        return surveyRegistry.find(version);
+    }
+
+    public boolean isCustomised() {
+        return (customQuestionsFileLocation != null) && (!customQuestionsFileLocation.isEmpty());
+    }
+
+    public String getCustomQuestionsFileLocation() {
+        return customQuestionsFileLocation;
+    }
+
+    /**
+     * Rebuild the survey from the custom questions file and publish it. Unlike at startup the custom questions have
+     * to validate against the question schema, otherwise the published survey is left as it is.
+     *
+     * @return the newly published survey, or null if there's no custom questions file or it hasn't changed since the last one
+     * @throws IOException if the file can't be read
+     * @throws org.everit.json.schema.ValidationException if the custom questions don't match the question schema
+     */
+    public synchronized SurveyPayload reload() throws IOException {
+        if (!isCustomised()) return null;
+        String customQuestionsJson = readCustomQuestions();
+        if (hashOf(customQuestionsJson).equals(currentCustomQuestionsHash)) return null;
+        return publish(generateSurveyPages(customQuestionsJson, true), customQuestionsJson);
+    }
+
+    private SurveyPayload publish(String surveyQuestionsJson, String customQuestionsJson) {
+        HashMap<String, List<String>> qnaStore = QuestionProcessor.GenerateSurveyQA(surveyQuestionsJson);
+        CompiledSurvey compiledSurvey = CompiledSurvey.compile(surveyQuestionsJson);
+        SurveyPayload result = new SurveyPayload(surveyTemplate.replace("$$QUESTIONS_JSON$$", surveyQuestionsJson), surveyQuestionsJson, qnaStore, compiledSurvey);
+
+        surveyRegistry.register(compiledSurvey, surveyQuestionsJson);
+        currentCustomQuestionsHash = hashOf(customQuestionsJson);
+        current = result;
+        log.info("Compiled survey {} with {} questions", compiledSurvey.getVersion(), compiledSurvey.size());
+        return result;
+    }
+
+    private String generateSurveyPages(String customQuestionsJson, boolean strict) throws IOException {
         try (InputStream is1 = CustomerAPIImpl.class.getClassLoader().getResourceAsStream("questions/base-questions-data-default.json");
              InputStream is2 = CustomerAPIImpl.class.getClassLoader().getResourceAsStream("questions/question-schema.json");
         ) {
-            rawQuestionsJson = getResourceAsString(is1);
-            questionsJsonSchema = getResourceAsString(is2);
-            this.SurveyQuestionsJSON = new QuestionProcessor().GenerateSurveyPages(rawQuestionsJson, customQuestionsJson, questionsJsonSchema);
-            log.info("Successfully generated Survey Questions");
-        } catch (Exception e) {
-            InputStream is3 = CustomerAPIImpl.class.getClassLoader().getResourceAsStream("questions/default-survey-materialised.json");
-            this.SurveyQuestionsJSON = getResourceAsString(is3);
-            if (is3 != null) is3.close();
-            log.error("Unable to find/parse question-data-default...using default-survey...turn on debug for more info");
-            log.trace("getSurveyContent raw {} schema {}", rawQuestionsJson, questionsJsonSchema);
-            e.printStackTrace();
+            String rawQuestionsJson = getResourceAsString(is1);
+            String questionsJsonSchema = getResourceAsString(is2);
+            // GenerateSurveyPages skips custom questions that don't validate, a reload has to refuse them instead
+            if (strict && !customQuestionsJson.isEmpty())
+                QuestionProcessor.ValidateQuestionData(customQuestionsJson, questionsJsonSchema);
+            return new QuestionProcessor().GenerateSurveyPages(rawQuestionsJson, customQuestionsJson, questionsJsonSchema);
         }
+    }
 
-        try (InputStream is4 = CustomerAPIImpl.class.getClassLoader().getResourceAsStream("questions/application-survey.js");) {
-            String surveyJs = getResourceAsString(is4);
-            this.finalJScriptDefn = (surveyJs.replace("$$QUESTIONS_JSON$$", this.SurveyQuestionsJSON));
-        } catch (Exception ex) {
-            log.error("Unable to process and enrich the question template....FATAL ERROR ", ex);
-            System.exit(42);
+    private String readCustomQuestions() throws IOException {
+        try (InputStream cqis = new FileInputStream(new File(customQuestionsFileLocation))) {
+            return getResourceAsString(cqis);
         }
     }
 
+    private static String hashOf(String content) {
+        return Hashing.murmur3_128().hashString(content, StandardCharsets.UTF_8).toString();
+    }
+
     private static String getResourceAsString(InputStream is) throws IOException {
         Validate.notNull(is);
         return IOUtils.toString(is, "UTF-8");
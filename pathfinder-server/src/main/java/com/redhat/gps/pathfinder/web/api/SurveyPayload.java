@@ -22,6 +22,9 @@ package com.redhat.gps.pathfinder.web.api;
  * #L%
  */
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+
 import java.util.HashMap;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -31,22 +34,42 @@ public class SurveyPayload {
     private HashMap<String, List<String>> surveyQuestionAnswerMap;
     private String CompleteJSSurvey;
     private Pattern ragPattern;
+    private CompiledSurvey compiledSurvey;
+    private StaticPayload surveyScript;
 
-    public SurveyPayload(String jsSurvey,String jsonPayload, HashMap<String, List<String>> surveyQuestionAnswerMap) {
+    public SurveyPayload(String jsSurvey,String jsonPayload, HashMap<String, List<String>> surveyQuestionAnswerMap, CompiledSurvey compiledSurvey) {
         this.jsonQNAPayload = jsonPayload;
+        this.compiledSurvey = compiledSurvey;
         this.surveyQuestionAnswerMap = surveyQuestionAnswerMap;
         this.CompleteJSSurvey = jsSurvey;
         ragPattern = Pattern.compile("^[\\d-]+[(UNKNOWN)(RED)(AMBER)(GREEN)]+\\|(.*)$");
+        // the page loading the script provides Utils.SERVER and jwtToken. Revalidated on every use since the custom
+        // questions can be reloaded at any time, which is only a 304 while they haven't been
+        this.surveyScript = StaticPayload.of(jsSurvey
+                        .replace("\"SERVER_URL", "Utils.SERVER+\"")
+                        .replace("JWT_TOKEN", "\"+jwtToken+\""),
+                MediaType.valueOf("application/javascript"), CacheControl.noCache().cachePublic());
     }
 
     public String getQNAPayload() {
         return this.jsonQNAPayload;
     }
 
+    public CompiledSurvey getCompiledSurvey() {
+        return this.compiledSurvey;
+    }
+
     public String getSurveyJSPayload() {
         return this.CompleteJSSurvey;
     }
 
+    /**
+     * @return the survey script as served to the browser
+     */
+    public StaticPayload getSurveyScript() {
+        return this.surveyScript;
+    }
+
     public String getAnswerText(String questionName, String ragValue) {
         String result=null;
         try {
@@ -0,0 +1,133 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Watches the directory of the CUSTOM_QUESTIONS file and has SurveyEngine reload the survey when something in it
+ * changes. The whole directory is watched since a mounted ConfigMap is updated by swapping a symlink rather than
+ * writing to the file; SurveyEngine skips the reload when the file's content is unchanged.
+ * <p>
+ * Reload times are published as survey.reload and rejected files are counted in survey.reload.failures.
+ */
+@Component
+public class SurveyReloader {
+    private final Logger log = LoggerFactory.getLogger(SurveyReloader.class);
+
+    // editors and volume updates touch the file several times in a row, let them settle before reading it
+    static final long SETTLE_MILLIS = 500;
+
+    private final SurveyEngine surveyEngine;
+    private final Timer reloads;
+    private final Counter failures;
+
+    private WatchService watcher;
+
+    public SurveyReloader(SurveyEngine surveyEngine, MetricRegistry metricRegistry) {
+        this.surveyEngine = surveyEngine;
+        this.reloads = metricRegistry.timer("survey.reload");
+        this.failures = metricRegistry.counter("survey.reload.failures");
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!surveyEngine.isCustomised()) return;
+
+        Path file = Paths.get(surveyEngine.getCustomQuestionsFileLocation()).toAbsolutePath();
+        Path dir = file.getParent();
+        if (null == dir || !Files.isDirectory(dir)) {
+            log.warn("Not watching custom questions file {}, its directory doesn't exist", file);
+            return;
+        }
+        watcher = FileSystems.getDefault().newWatchService();
+        dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+
+        Thread thread = new Thread(this::watch, "survey-reloader");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Watching custom questions file {} for changes", file);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (null != watcher) watcher.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Thread.sleep(SETTLE_MILLIS);
+                key.pollEvents();
+                for (WatchKey more = watcher.poll(); null != more; more = watcher.poll()) {
+                    more.pollEvents();
+                    more.reset();
+                }
+                reload();
+                if (!key.reset()) {
+                    log.warn("Custom questions directory is no longer accessible, stopped watching it");
+                    return;
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            log.debug("Stopped watching the custom questions file");
+        }
+    }
+
+    void reload() {
+        long start = System.nanoTime();
+        try {
+            SurveyPayload survey = surveyEngine.reload();
+            if (null != survey) {
+                reloads.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.info("Reloaded custom questions from {}", surveyEngine.getCustomQuestionsFileLocation());
+            }
+        } catch (Exception e) {
+            failures.inc();
+            log.error("Unable to reload custom questions from {}, keeping survey {}", surveyEngine.getCustomQuestionsFileLocation(),
+                    surveyEngine.current().getCompiledSurvey().getVersion(), e);
+        }
+    }
+}
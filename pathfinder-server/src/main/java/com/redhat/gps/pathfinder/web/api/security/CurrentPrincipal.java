@@ -0,0 +1,116 @@
+package com.redhat.gps.pathfinder.web.api.security;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.io.Serializable;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.redhat.gps.pathfinder.domain.Member;
+
+/**
+ * Immutable snapshot of the authenticated member, with the roles folded into bit flags.
+ * It is bound to the current request by the JWT filter, so every authorization check in the request reads the same
+ * instance without touching Mongo or any shared mutable state.
+ */
+public final class CurrentPrincipal implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static final String REQUEST_ATTRIBUTE = CurrentPrincipal.class.getName();
+
+    public static final int ROLE_SUPER = 1;
+    public static final int ROLE_ADMIN = 1 << 1;
+    public static final int ROLE_USER = 1 << 2;
+
+    private final String username;
+    private final String customerId;
+    private final int roles;
+
+    public CurrentPrincipal(String username, String customerId, int roles) {
+        this.username = username;
+        this.customerId = customerId;
+        this.roles = roles;
+    }
+
+    public static CurrentPrincipal of(Member member) {
+        return new CurrentPrincipal(member.getUsername(), member.getCustomerId(), roleFlags(member.getRoles()));
+    }
+
+    static int roleFlags(List<String> roles) {
+        int result = 0;
+        if (roles == null) return result;
+        for (String role : roles) {
+            if ("SUPER".equals(role)) result |= ROLE_SUPER;
+            else if ("ADMIN".equals(role)) result |= ROLE_ADMIN;
+            else if ("USER".equals(role)) result |= ROLE_USER;
+        }
+        return result;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getCustomerId() {
+        return customerId;
+    }
+
+    public boolean hasRole(int role) {
+        return (roles & role) != 0;
+    }
+
+    /**
+     * SUPER members can see every customer, ADMIN members only the customer they belong to
+     */
+    public boolean isAuthorizedFor(String custId) {
+        return hasRole(ROLE_SUPER)
+                || (hasRole(ROLE_ADMIN) && customerId != null && customerId.equals(custId));
+    }
+
+    /**
+     * @return the principal bound to the request being processed on this thread, or null if there's none
+     */
+    public static CurrentPrincipal current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return null;
+        return (CurrentPrincipal) attributes.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public static void bind(HttpServletRequest request, CurrentPrincipal principal) {
+        request.setAttribute(REQUEST_ATTRIBUTE, principal);
+    }
+
+    public static void bind(CurrentPrincipal principal) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) attributes.setAttribute(REQUEST_ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public String toString() {
+        return "CurrentPrincipal{username=" + username + ", customerId=" + customerId + ", roles=" + roles + "}";
+    }
+}
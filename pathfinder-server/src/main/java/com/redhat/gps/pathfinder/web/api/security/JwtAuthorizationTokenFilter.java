@@ -24,19 +24,21 @@ package com.redhat.gps.pathfinder.web.api.security;
 
 
 import java.io.IOException;
-import java.util.Enumeration;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -51,11 +53,13 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
 
     private final UserDetailsService userDetailsService;
     private final JwtTokenUtil jwtTokenUtil;
+    private final JwtUserDetailsCache userDetailsCache;
     private final String tokenHeader;
 
-    public JwtAuthorizationTokenFilter(UserDetailsService userDetailsService, JwtTokenUtil jwtTokenUtil, /*@Value("${jwt.header}")*/ @Value("Authorization") String tokenHeader) {
+    public JwtAuthorizationTokenFilter(UserDetailsService userDetailsService, JwtTokenUtil jwtTokenUtil, JwtUserDetailsCache userDetailsCache, /*@Value("${jwt.header}")*/ @Value("Authorization") String tokenHeader) {
         this.userDetailsService = userDetailsService;
         this.jwtTokenUtil = jwtTokenUtil;
+        this.userDetailsCache = userDetailsCache;
         this.tokenHeader = tokenHeader;
     }
 
@@ -63,7 +67,6 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
         logger.debug("processing authentication for '{}'", request.getRequestURL());
 
-        String username = null;
         String authToken=null;
         if (authToken==null) authToken = request.getHeader("Authorization");
         if (authToken==null) authToken = request.getParameter("_t");
@@ -73,45 +76,68 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
         
         logger.debug("Discovered token: {}", authToken);
 
-        
-        if (authToken!=null && !"".equals(authToken)){
-          try {
-            username = jwtTokenUtil.getUsernameFromToken(authToken);
-          } catch (IllegalArgumentException e) {
-              logger.error("an error occured during getting username from token", e);
-          } catch (ExpiredJwtException e) {
-              logger.warn("the token is expired and not valid anymore", e);
-          }
-        }else{
-          logger.debug("couldn't find bearer string, will ignore the header");
-        }
-        
-        logger.debug("checking authentication for user '{}'", username);
-        
         boolean wasNull=SecurityContextHolder.getContext().getAuthentication() == null;
         boolean wasAnon=!wasNull?SecurityContextHolder.getContext().getAuthentication().getName().equals("anonymousUser"):false;
-        
-        if (username != null && (wasNull || wasAnon)) {
+
+        if (authToken!=null && !"".equals(authToken)){
+          if (wasNull || wasAnon) {
             logger.debug("security context was "+(wasNull?"null":"anonymous")+", so authorizing user");
-            
-            // It is not compelling necessary to load the use details from the database. You could also store the information
-            // in the token and read it from it. It's up to you ;)
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            
-            logger.debug("userdetails found for "+username+" = "+userDetails);
-            
-            // For simple validation it is completely sufficient to just check the token integrity. You don't have to call
-            // the database compellingly. Again it's up to you ;)
-            if (jwtTokenUtil.validateToken(authToken, userDetails)) {
+            UserDetails userDetails = resolveUserDetails(authToken);
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                logger.info("authorized user '{}', setting security context", username);
+                logger.info("authorized user '{}', setting security context", userDetails.getUsername());
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-            }else{
-              logger.warn("XXXXXXXX jwt token was NOT valid");
             }
+          }
+        }else{
+          logger.debug("couldn't find bearer string, will ignore the header");
         }
 
+        // make the member available to the controllers for the rest of this request
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof MemberUserDetails)
+            CurrentPrincipal.bind(request, ((MemberUserDetails) authentication.getPrincipal()).getPrincipal());
+
         chain.doFilter(request, response);
     }
+
+    /**
+     * @return the UserDetails the token belongs to, from the cache when this exact token was verified before, otherwise
+     * by parsing the token once and loading the member. Null if the token isn't valid.
+     */
+    private UserDetails resolveUserDetails(String authToken) {
+        String cacheKey = JwtUserDetailsCache.keyOf(authToken);
+        UserDetails userDetails = userDetailsCache.get(cacheKey);
+        if (userDetails != null) {
+            logger.debug("userdetails for token found in cache = {}", userDetails);
+            return userDetails;
+        }
+
+        Claims claims;
+        try {
+            claims = jwtTokenUtil.parseClaims(authToken);
+        } catch (ExpiredJwtException e) {
+            logger.warn("the token is expired and not valid anymore", e);
+            return null;
+        } catch (IllegalArgumentException | JwtException e) {
+            logger.error("an error occured during getting username from token", e);
+            return null;
+        }
+
+        String username = claims.getSubject();
+        logger.debug("checking authentication for user '{}'", username);
+
+        // It is not compelling necessary to load the use details from the database. You could also store the information
+        // in the token and read it from it. It's up to you ;)
+        userDetails = this.userDetailsService.loadUserByUsername(username);
+        logger.debug("userdetails found for "+username+" = "+userDetails);
+
+        if (!jwtTokenUtil.validateToken(claims, userDetails)) {
+            logger.warn("XXXXXXXX jwt token was NOT valid");
+            return null;
+        }
+        userDetailsCache.put(cacheKey, userDetails, claims.getExpiration());
+        return userDetails;
+    }
 }
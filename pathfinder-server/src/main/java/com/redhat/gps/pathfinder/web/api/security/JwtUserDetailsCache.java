@@ -0,0 +1,108 @@
+package com.redhat.gps.pathfinder.web.api.security;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.redhat.gps.pathfinder.config.ApplicationProperties;
+
+/**
+ * Tokens that already passed signature and expiry checks, keyed on the SHA-256 of the token, with the UserDetails they
+ * resolved to. A hit lets the filter skip both the JWT parse and the member lookup in Mongo.
+ * Entries die with their token's expiry and are dropped when the member is changed. The cache is local to each
+ * instance, so entries also expire a short while after they're written, which bounds how long a change made through
+ * another instance goes unseen.
+ */
+@Component
+public class JwtUserDetailsCache {
+
+    static final int MAX_ENTRIES = 10000;
+
+    private final Cache<String, Entry> cache;
+
+    @Autowired
+    public JwtUserDetailsCache(ApplicationProperties properties) {
+        this(properties.getCache().getUserDetailsTimeToLiveSeconds(), Ticker.systemTicker());
+    }
+
+    JwtUserDetailsCache(long timeToLiveSeconds, Ticker ticker) {
+        this.cache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ENTRIES)
+            .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+            .ticker(ticker)
+            .build();
+    }
+
+    private static class Entry {
+        private final UserDetails userDetails;
+        private final long expiresAt;
+
+        private Entry(UserDetails userDetails, long expiresAt) {
+            this.userDetails = userDetails;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static String keyOf(String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+    }
+
+    /**
+     * @return the cached UserDetails for the token key, or null if there's none or the token has since expired
+     */
+    public UserDetails get(String key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) return null;
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            cache.invalidate(key);
+            return null;
+        }
+        return entry.userDetails;
+    }
+
+    public void put(String key, UserDetails userDetails, Date expiration) {
+        if (expiration == null) return; // tokens without an expiry are never cached
+        cache.put(key, new Entry(userDetails, expiration.getTime()));
+    }
+
+    /**
+     * Drop every token resolved for the member, so the next request reloads their roles
+     */
+    public void invalidate(String username) {
+        cache.asMap().values().removeIf(e -> e.userDetails.getUsername().equals(username));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -1,7 +1,6 @@
 package com.redhat.gps.pathfinder.web.api.security;
 
 import java.io.Serializable;
-import java.util.Collection;
 
 /*-
  * #%L
@@ -26,17 +25,11 @@ import java.util.Collection;
  */
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import com.google.common.base.Function;
-import com.google.common.base.Joiner;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 import com.redhat.gps.pathfinder.domain.Member;
 import com.redhat.gps.pathfinder.repository.MembersRepository;
 
@@ -54,25 +47,7 @@ public class JwtUserDetailsService implements UserDetailsService,Serializable {
         if (user == null) {
             throw new UsernameNotFoundException(String.format("No user found with username '%s'.", username));
         } else {
-          return new UserDetails(){
-            private static final long serialVersionUID=1L;
-            @Override public boolean isEnabled(){                 return true;}
-            @Override public boolean isCredentialsNonExpired(){   return true;}
-            @Override public boolean isAccountNonLocked(){        return true;}
-            @Override public boolean isAccountNonExpired(){       return true;}
-            @Override public String getUsername(){                return user.getUsername();}
-            @Override public String getPassword(){                return user.getPassword();}
-            @Override public Collection<? extends GrantedAuthority> getAuthorities(){
-              return Sets.newHashSet(Iterables.transform(user.getRoles(), new Function<String,GrantedAuthority>(){
-                @Override
-                public GrantedAuthority apply(String role){
-                  return new SimpleGrantedAuthority(role);
-                }}));
-            }
-            public String toString(){
-              return "UserDetails{username:"+getUsername()+",enabled="+isEnabled()+",authorities="+Joiner.on(",").join(getAuthorities())+"}";
-            }
-          };
+          return new MemberUserDetails(user);
         }
     }
 }
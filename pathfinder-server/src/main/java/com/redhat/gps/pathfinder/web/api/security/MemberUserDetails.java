@@ -0,0 +1,74 @@
+package com.redhat.gps.pathfinder.web.api.security;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Sets;
+import com.redhat.gps.pathfinder.domain.Member;
+
+/**
+ * UserDetails for a Pathfinder member. The authorities and the CurrentPrincipal are computed once when the member is
+ * loaded, so they can be reused for as long as the verified token is cached.
+ */
+public class MemberUserDetails implements UserDetails {
+    private static final long serialVersionUID = 1L;
+
+    private final String username;
+    private final String password;
+    private final Set<GrantedAuthority> authorities;
+    private final CurrentPrincipal principal;
+
+    public MemberUserDetails(Member member) {
+        this.username = member.getUsername();
+        this.password = member.getPassword();
+        this.authorities = Sets.newHashSet();
+        if (member.getRoles() != null) {
+            for (String role : member.getRoles()) authorities.add(new SimpleGrantedAuthority(role));
+        }
+        this.principal = CurrentPrincipal.of(member);
+    }
+
+    public CurrentPrincipal getPrincipal() {
+        return principal;
+    }
+
+    @Override public boolean isEnabled(){                 return true;}
+    @Override public boolean isCredentialsNonExpired(){   return true;}
+    @Override public boolean isAccountNonLocked(){        return true;}
+    @Override public boolean isAccountNonExpired(){       return true;}
+    @Override public String getUsername(){                return username;}
+    @Override public String getPassword(){                return password;}
+    @Override public Collection<? extends GrantedAuthority> getAuthorities(){ return authorities;}
+
+    @Override
+    public String toString(){
+      return "UserDetails{username:"+getUsername()+",enabled="+isEnabled()+",authorities="+Joiner.on(",").join(getAuthorities())+"}";
+    }
+}
@@ -47,6 +47,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
   @Autowired
   JwtTokenUtil jwtTokenUtil;
   
+  @Autowired
+  JwtUserDetailsCache userDetailsCache;
+  
   @Override
   protected void configure(HttpSecurity http) throws Exception{
     boolean authentication=true;
@@ -67,7 +70,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
 //      
 //      http.addFilterAfter(new MyFilter(), BasicAuthenticationFilter.class);
       http.cors();
-      http.addFilterAfter(new JwtAuthorizationTokenFilter(userDetailsService,jwtTokenUtil,"Authorization"), BasicAuthenticationFilter.class);
+      http.addFilterAfter(new JwtAuthorizationTokenFilter(userDetailsService,jwtTokenUtil,userDetailsCache,"Authorization"), BasicAuthenticationFilter.class);
       
       http.authorizeRequests()
           
@@ -0,0 +1,114 @@
+package com.redhat.gps.pathfinder;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import de.flapdoodle.embed.mongo.MongodExecutable;
+import de.flapdoodle.embed.mongo.MongodProcess;
+import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.MongodConfigBuilder;
+import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.process.runtime.Network;
+import org.junit.rules.ExternalResource;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoDbFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * An embedded mongod for the lifetime of a test class, used as a @ClassRule:
+ * <pre>
+ * &#64;ClassRule
+ * public static final EmbeddedMongo mongo = new EmbeddedMongo();
+ * </pre>
+ * The rule starts before the class' @BeforeClass methods run, so they can already use template()/dbFactory().
+ */
+public class EmbeddedMongo extends ExternalResource {
+
+    private Consumer<CommandStartedEvent> onCommandStarted = event -> {
+    };
+    private MongodExecutable mongodExecutable;
+    private MongodProcess mongod;
+    private MongoClient client;
+
+    /**
+     * @param listener - called with every command the client sends, eg. to count or capture the queries
+     */
+    public EmbeddedMongo onCommandStarted(Consumer<CommandStartedEvent> listener) {
+        this.onCommandStarted = listener;
+        return this;
+    }
+
+    @Override
+    protected void before() throws Throwable {
+        int port = Network.getFreeServerPort();
+        mongodExecutable = MongodStarter.getDefaultInstance().prepare(new MongodConfigBuilder()
+                .version(Version.Main.PRODUCTION)
+                .net(new Net(port, Network.localhostIsIPv6()))
+                .build());
+        mongod = mongodExecutable.start();
+        client = new MongoClient(new ServerAddress("localhost", port), MongoClientOptions.builder()
+                .addCommandListener(new CommandListener() {
+                    @Override
+                    public void commandStarted(CommandStartedEvent event) {
+                        onCommandStarted.accept(event);
+                    }
+
+                    @Override
+                    public void commandSucceeded(CommandSucceededEvent event) {
+                    }
+
+                    @Override
+                    public void commandFailed(CommandFailedEvent event) {
+                    }
+                })
+                .build());
+    }
+
+    @Override
+    protected void after() {
+        if (client != null) client.close();
+        if (mongod != null) mongod.stop();
+        if (mongodExecutable != null) mongodExecutable.stop();
+    }
+
+    public MongoClient getClient() {
+        return client;
+    }
+
+    public MongoTemplate template(String databaseName) {
+        return new MongoTemplate(client, databaseName);
+    }
+
+    public MongoDbFactory dbFactory(String databaseName) {
+        return new SimpleMongoDbFactory(client, databaseName);
+    }
+}
@@ -0,0 +1,114 @@
+package com.redhat.gps.pathfinder.config;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DbQueryCountFilterTest {
+
+    private final MongoCommandMetrics metrics = new MongoCommandMetrics(new MetricRegistry());
+    private final ApplicationProperties properties = new ApplicationProperties();
+    private final ListAppender<ILoggingEvent> logged = new ListAppender<>();
+    private final Logger log = (Logger) LoggerFactory.getLogger(DbQueryCountFilter.class);
+
+    @Before
+    public void captureWarnings() {
+        logged.start();
+        log.addAppender(logged);
+    }
+
+    @After
+    public void releaseWarnings() {
+        log.detachAppender(logged);
+    }
+
+    private void commands(int n) {
+        for (int i = 0; i < n; i++) metrics.commandStarted(MongoCommandMetricsTest.started("find", "applications"));
+    }
+
+    private MockHttpServletResponse filter(FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new DbQueryCountFilter(properties).doFilter(new MockHttpServletRequest("GET", "/api/pathfinder/customers"), response, chain);
+        return response;
+    }
+
+    @Test
+    public void countIsSentOnceTheHandlerIsDone() throws Exception {
+        properties.getDb().setExposeQueryCount(true);
+
+        MockHttpServletResponse response = filter((req, res) -> commands(3));
+
+        assertEquals("3", response.getHeader(DbQueryCountFilter.QUERY_COUNT_HEADER));
+    }
+
+    @Test
+    public void streamedResponseCarriesTheCountAtCommit() throws Exception {
+        properties.getDb().setExposeQueryCount(true);
+
+        MockHttpServletResponse response = filter((req, res) -> {
+            commands(2);
+            res.getWriter().write("[");
+            res.flushBuffer();
+            commands(5);
+        });
+
+        assertTrue(response.isCommitted());
+        assertEquals("2", response.getHeader(DbQueryCountFilter.QUERY_COUNT_HEADER));
+    }
+
+    @Test
+    public void countIsNotSentUnlessExposed() throws Exception {
+        MockHttpServletResponse response = filter((req, res) -> commands(3));
+
+        assertNull(response.getHeader(DbQueryCountFilter.QUERY_COUNT_HEADER));
+    }
+
+    @Test
+    public void requestOverBudgetIsLoggedWithItsMostRepeatedCommand() throws Exception {
+        properties.getDb().setQueryBudget(4);
+
+        filter((req, res) -> commands(4));
+        assertTrue(logged.list.isEmpty());
+
+        filter((req, res) -> commands(5));
+        assertEquals(1, logged.list.size());
+        ILoggingEvent warning = logged.list.get(0);
+        assertEquals(Level.WARN, warning.getLevel());
+        assertTrue(warning.getFormattedMessage().contains("GET /api/pathfinder/customers made 5 mongo commands (budget 4)"), warning.getFormattedMessage());
+        assertTrue(warning.getFormattedMessage().endsWith("applications.find x 5"), warning.getFormattedMessage());
+    }
+}
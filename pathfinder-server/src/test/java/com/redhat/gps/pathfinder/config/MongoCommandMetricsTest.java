@@ -0,0 +1,101 @@
+package com.redhat.gps.pathfinder.config;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MongoCommandMetricsTest {
+
+    static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+    private static int requestId;
+
+    static CommandStartedEvent started(String commandName, String collection) {
+        return new CommandStartedEvent(++requestId, CONNECTION, "pathfinder", commandName, new BsonDocument(commandName, new BsonString(collection)));
+    }
+
+    @After
+    public void stopCounting() {
+        MongoCommandMetrics.end();
+    }
+
+    @Test
+    public void collectionOfCommandsOnACollection() {
+        assertEquals("applications", MongoCommandMetrics.collectionOf("find", new BsonDocument("find", new BsonString("applications")), "pathfinder"));
+        assertEquals("customer", MongoCommandMetrics.collectionOf("update", new BsonDocument("update", new BsonString("customer")), "pathfinder"));
+        // a getMore names its cursor's collection in a field of its own
+        assertEquals("applications", MongoCommandMetrics.collectionOf("getMore",
+                new BsonDocument("getMore", new BsonInt64(42)).append("collection", new BsonString("applications")), "pathfinder"));
+    }
+
+    @Test
+    public void collectionOfCommandsNotOnACollectionIsTheDatabase() {
+        assertEquals("admin", MongoCommandMetrics.collectionOf("isMaster", new BsonDocument("isMaster", new BsonInt32(1)), "admin"));
+        assertEquals("pathfinder", MongoCommandMetrics.collectionOf("getMore", new BsonDocument("getMore", new BsonInt64(42)), "pathfinder"));
+        assertEquals("pathfinder", MongoCommandMetrics.collectionOf("ping", new BsonDocument(), "pathfinder"));
+    }
+
+    @Test
+    public void countsTheCommandsOfTheCurrentThreadOnly() {
+        MongoCommandMetrics metrics = new MongoCommandMetrics(new MetricRegistry());
+        metrics.commandStarted(started("find", "customer"));
+
+        MongoCommandMetrics.QueryCount count = MongoCommandMetrics.begin();
+        assertEquals("none", count.getMostRepeated());
+        for (int i = 0; i < 3; i++) metrics.commandStarted(started("find", "applications"));
+        metrics.commandStarted(started("find", "customer"));
+        metrics.commandStarted(started("update", "applications"));
+        MongoCommandMetrics.end();
+        metrics.commandStarted(started("find", "customer"));
+
+        assertEquals(5, count.getTotal());
+        assertEquals("applications.find x 3", count.getMostRepeated());
+    }
+
+    @Test
+    public void timesEachCommandByCollection() {
+        MetricRegistry registry = new MetricRegistry();
+        MongoCommandMetrics metrics = new MongoCommandMetrics(registry);
+        CommandStartedEvent event = started("find", "applications");
+        metrics.commandStarted(event);
+        metrics.commandSucceeded(new CommandSucceededEvent(event.getRequestId(), CONNECTION, "find", new BsonDocument(), TimeUnit.MILLISECONDS.toNanos(5)));
+
+        assertEquals(1, registry.timer("mongo.applications.find").getCount());
+    }
+}
@@ -22,6 +22,7 @@ package com.redhat.gps.pathfinder.questions;
  */
 
 import com.redhat.gps.pathfinder.QuestionProcessor;
+import com.redhat.gps.pathfinder.web.api.CompiledSurvey;
 import jdk.nashorn.api.scripting.NashornScriptEngine;
 import org.apache.commons.io.IOUtils;
 import org.everit.json.schema.Schema;
@@ -292,6 +293,30 @@ public class QuestionValidationTest {
         assertEquals(res[0],"6");
     }
 
+    @Test
+    public void compiledSurveyTest() throws Exception {
+        InputStream baseQFile = QuestionValidationTest.class.getResourceAsStream("../../../../../questions/base-questions-data-default.json");
+        InputStream schemaFile = QuestionValidationTest.class.getResourceAsStream("../../../../../questions/question-schema.json");
+        InputStream customQue = QuestionValidationTest.class.getResourceAsStream("../../../../../test-data/custom-question-data-1page-2-valid.json");
 
+        String rawQuestionsJson = IOUtils.toString(baseQFile, StandardCharsets.UTF_8.name());
+        String questionsJsonSchema = IOUtils.toString(schemaFile, StandardCharsets.UTF_8.name());
+        String customQuestionsJson = IOUtils.toString(customQue, StandardCharsets.UTF_8.name());
+        String processedQ = new QuestionProcessor().GenerateSurveyPages(rawQuestionsJson, customQuestionsJson, questionsJsonSchema);
+
+        CompiledSurvey survey = CompiledSurvey.compile(processedQ);
+        HashMap<String, List<String>> qa = GenerateSurveyQA(processedQ);
+        assertEquals(qa.size(), survey.size());
 
+        int devOwner = survey.indexOf("DEVOWNER");
+        assertTrue(devOwner >= 0);
+        assertEquals(-1, survey.indexOf("NOTESONPAGE0"));
+        assertEquals(qa.get("DEVOWNER").size(), survey.getChoiceCount(devOwner));
+
+        int choice = survey.choiceIndexOf(devOwner, "3");
+        assertEquals("3", survey.getOrdinal(devOwner, choice));
+        assertEquals("AMBER", survey.getRating(devOwner, choice));
+        assertEquals("Maintenance mode, SME knowledge available", survey.getAnswerText(devOwner, choice));
+        assertEquals(-1, survey.choiceIndexOf(devOwner, "99"));
+    }
 }
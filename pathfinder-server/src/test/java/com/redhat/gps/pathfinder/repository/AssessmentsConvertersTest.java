@@ -0,0 +1,186 @@
+package com.redhat.gps.pathfinder.repository;
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2019 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.QuestionProcessor;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.web.api.CompiledSurvey;
+import org.apache.commons.io.IOUtils;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.CustomConversions;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AssessmentsConvertersTest {
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo();
+
+    private static CompiledSurvey survey;
+    private static MongoTemplate template;
+    private static DBCollection collection;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        String rawQuestionsJson = IOUtils.toString(AssessmentsConvertersTest.class.getResourceAsStream("/questions/base-questions-data-default.json"), StandardCharsets.UTF_8.name());
+        String questionsJsonSchema = IOUtils.toString(AssessmentsConvertersTest.class.getResourceAsStream("/questions/question-schema.json"), StandardCharsets.UTF_8.name());
+        survey = CompiledSurvey.compile(new QuestionProcessor().GenerateSurveyPages(rawQuestionsJson, "", questionsJsonSchema));
+        template = template(version -> survey.getVersion().equals(version) ? survey : null);
+        collection = template.getCollection(template.getCollectionName(Assessments.class));
+    }
+
+    /**
+     * @return a template persisting Assessments through the converters, the way MongoConversionsConfiguration sets them up
+     */
+    private static MongoTemplate template(Function<String, CompiledSurvey> surveys) {
+        MongoDbFactory dbFactory = mongo.dbFactory("pathfinder-assessments-test");
+        CustomConversions conversions = new CustomConversions(Arrays.asList(
+                new AssessmentsConverters.AssessmentsWriter(() -> survey),
+                new AssessmentsConverters.AssessmentsReader(surveys)));
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(new DefaultDbRefResolver(dbFactory), context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return new MongoTemplate(dbFactory, converter);
+    }
+
+    private static Assessments assessment(String id, HashMap<String, String> results) {
+        Assessments assessment = new Assessments();
+        assessment.setId(id);
+        assessment.setDatetime("201801011200");
+        assessment.setDepsOUT(Arrays.asList("app-2", "app-3"));
+        assessment.setResults(results);
+        return assessment;
+    }
+
+    private static DBObject stored(String id) {
+        return collection.findOne(new BasicDBObject("_id", id));
+    }
+
+    @Test
+    public void roundTripPacksAnswersAndResolvesTextFromTheSurvey() {
+        HashMap<String, String> results = new HashMap<>();
+        results.put("DEVOWNER", "3-AMBER");
+        results.put("NOTESONPAGE0", "some notes");
+        results.put("BUSPRIORITY", "5");
+        results.put(survey.getName(1), survey.getOrdinal(1, 0) + "-" + survey.getRating(1, 0));
+        // doesn't match a choice of the survey, so it is kept verbatim
+        results.put(survey.getName(2), "99-RED");
+
+        template.save(assessment("compact", results));
+
+        DBObject dbo = stored("compact");
+        assertFalse(dbo.containsField("results"));
+        assertFalse(dbo.containsField("qanswers"));
+        assertEquals(survey.getVersion(), dbo.get("surveyVersion"));
+        assertEquals(survey.size(), ((byte[]) dbo.get("answers")).length);
+        assertEquals(3, ((DBObject) dbo.get("extras")).keySet().size());
+
+        Assessments read = template.findById("compact", Assessments.class);
+        assertEquals("201801011200", read.getDatetime());
+        assertEquals(Arrays.asList("app-2", "app-3"), read.getDepsOUT());
+        assertTrue(read.getAnswers().isEncodedWith(survey));
+        assertEquals(2, read.getAnswers().getAnsweredCount());
+        assertEquals("AMBER", read.getAnswers().getRating(survey.indexOf("DEVOWNER")));
+        assertEquals("Maintenance mode, SME knowledge available", read.getQanswers().get("DEVOWNER"));
+        assertEquals(results, read.getResults());
+    }
+
+    @Test
+    public void legacyDocumentKeepsItsAnswersAndTextsWhenResaved() {
+        String reworded = survey.getName(1);
+        collection.insert(new BasicDBObject("_id", "legacy")
+                .append("results", new BasicDBObject("DEVOWNER", "3-AMBER").append("NOTESONPAGE0", "some notes")
+                        .append(reworded, survey.getOrdinal(1, 0) + "-" + survey.getRating(1, 0)))
+                .append("qanswers", new BasicDBObject("DEVOWNER", "Maintenance mode, SME knowledge available")
+                        .append(reworded, "the wording the customer saw before the survey changed"))
+                .append("dependenciesOUT", Arrays.asList("app-2"))
+                .append("AssessmentDateTime", "201801011200"));
+
+        Assessments legacy = template.findById("legacy", Assessments.class);
+        assertNull(legacy.getAnswers());
+        assertEquals("3-AMBER", legacy.getResults().get("DEVOWNER"));
+        assertTrue(legacy.getDepsIN().isEmpty());
+        HashMap<String, String> results = new HashMap<>(legacy.getResults());
+        HashMap<String, String> texts = new HashMap<>(legacy.getQanswers());
+
+        template.save(legacy);
+
+        // re-saving converts it to the compact form, only the text the survey can't give back is still stored
+        DBObject dbo = stored("legacy");
+        assertFalse(dbo.containsField("results"));
+        assertTrue(dbo.get("answers") instanceof byte[]);
+        assertEquals(1, ((DBObject) dbo.get("qanswers")).keySet().size());
+
+        Assessments read = template.findById("legacy", Assessments.class);
+        assertTrue(read.getAnswers().isEncodedWith(survey));
+        assertEquals(results, read.getResults());
+        assertEquals(texts, read.getQanswers());
+        assertEquals(Arrays.asList("app-2"), read.getDepsOUT());
+        assertEquals("201801011200", read.getDatetime());
+
+        // and saving it again doesn't lose anything either
+        template.save(read);
+        Assessments again = template.findById("legacy", Assessments.class);
+        assertEquals(results, again.getResults());
+        assertEquals(texts, again.getQanswers());
+    }
+
+    @Test
+    public void unknownSurveyVersionIsWrittenBackUntouched() {
+        HashMap<String, String> results = new HashMap<>();
+        results.put("DEVOWNER", "3-AMBER");
+        results.put("NOTESONPAGE0", "some notes");
+        template.save(assessment("unknown-version", results));
+        DBObject dbo = stored("unknown-version");
+
+        MongoTemplate unaware = template(version -> null);
+        Assessments read = unaware.findById("unknown-version", Assessments.class);
+        assertFalse(read.getAnswers().isEncodedWith(survey));
+        assertEquals(1, read.getResults().size());
+        unaware.save(read);
+
+        DBObject written = stored("unknown-version");
+        assertEquals(dbo.get("surveyVersion"), written.get("surveyVersion"));
+        assertArrayEquals((byte[]) dbo.get("answers"), (byte[]) written.get("answers"));
+        assertEquals(results, template.findById("unknown-version", Assessments.class).getResults());
+    }
+}
@@ -0,0 +1,328 @@
+package com.redhat.gps.pathfinder.repository;
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2019 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.AssessmentDigest;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.CustomerSummary;
+import com.redhat.gps.pathfinder.domain.Member;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CustomerRepositoryGraphTest {
+    private static final int APP_COUNT = 50;
+
+    private static final AtomicInteger queries = new AtomicInteger();
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo().onCommandStarted(event -> {
+        if ("find".equals(event.getCommandName())) queries.incrementAndGet();
+    });
+
+    private static MongoTemplate template;
+
+    @BeforeClass
+    public static void setUp() {
+        template = mongo.template("pathfinder-test");
+    }
+
+    private static void insertCustomer(String custId, int appCount) {
+        Customer customer = new Customer();
+        customer.setId(custId);
+        customer.setName(custId);
+        List<Applications> apps = new ArrayList<>();
+        for (int i = 0; i < appCount; i++) {
+            Assessments older = new Assessments();
+            older.setId(custId + "-assm-old-" + i);
+            older.getResults().put("DEVOWNER", "1-RED");
+            template.insert(older);
+
+            Assessments latest = new Assessments();
+            latest.setId(custId + "-assm-new-" + i);
+            latest.getResults().put("DEVOWNER", "4-GREEN");
+            template.insert(latest);
+
+            ApplicationAssessmentReview review = new ApplicationAssessmentReview("0", latest, "REHOST", "SMALL", "notes", "1", "1");
+            review.setId(custId + "-review-" + i);
+            template.insert(review);
+
+            Applications app = new Applications();
+            app.setId(custId + "-app-" + i);
+            app.setName("app " + i);
+            app.setStereotype("TARGETAPP");
+            List<Assessments> assessments = new ArrayList<>();
+            assessments.add(older);
+            assessments.add(latest);
+            app.setAssessments(assessments);
+            app.setReview(review);
+            AssessmentDigest digest = new AssessmentDigest();
+            digest.setAssessmentId(latest.getId());
+            digest.setGreen(1);
+            app.setLatestAssessment(digest);
+            template.insert(app);
+            apps.add(app);
+        }
+        customer.setApplications(apps);
+        template.insert(customer);
+    }
+
+    @Test
+    public void customerGraphLoadsInFixedNumberOfQueries() {
+        insertCustomer("graph-customer", APP_COUNT);
+
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+        queries.set(0);
+
+        Customer loaded = repo.findOneWithGraph("graph-customer");
+        assertEquals(APP_COUNT, loaded.getApplications().size());
+        for (int i = 0; i < APP_COUNT; i++) {
+            Applications app = loaded.getApplications().get(i);
+            assertEquals("graph-customer-app-" + i, app.getId());
+            assertEquals(2, app.getAssessments().size());
+            assertEquals("4-GREEN", app.getAssessments().get(1).getResults().get("DEVOWNER"));
+            assertEquals("graph-customer-review-" + i, app.getReview().getId());
+            assertEquals("graph-customer-assm-new-" + i, app.getReview().getAssessments().getId());
+        }
+
+        // customer + applications + assessments + reviews, regardless of the number of applications
+        assertEquals(4, queries.get());
+
+        assertNull(repo.findOneWithGraph("no-such-customer"));
+    }
+
+    @Test
+    public void reportGraphHoldsOnlyTheLatestAssessments() {
+        insertCustomer("latest-customer", APP_COUNT);
+
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+        queries.set(0);
+
+        Customer loaded = repo.findOneWithLatestAssessments("latest-customer");
+        assertEquals(APP_COUNT, loaded.getApplications().size());
+        for (int i = 0; i < APP_COUNT; i++) {
+            Applications app = loaded.getApplications().get(i);
+            assertEquals(1, app.getAssessments().size());
+            assertEquals("latest-customer-assm-new-" + i, app.getAssessments().get(0).getId());
+            assertEquals("latest-customer-assm-new-" + i, app.getReview().getAssessments().getId());
+        }
+        assertEquals(4, queries.get());
+
+        assertNull(repo.findOneWithLatestAssessments("no-such-customer"));
+    }
+
+    @Test
+    public void customerWithApplicationsLeavesAssessmentsUnresolved() {
+        insertCustomer("summary-customer", APP_COUNT);
+
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+        queries.set(0);
+
+        Customer loaded = repo.findOneWithApplications("summary-customer");
+        assertEquals(APP_COUNT, loaded.getApplications().size());
+        for (int i = 0; i < APP_COUNT; i++) {
+            Applications app = loaded.getApplications().get(i);
+            assertEquals("summary-customer-assm-new-" + i, app.getLatestAssessment().getAssessmentId());
+            assertEquals(1, app.getLatestAssessment().getGreen());
+            assertTrue(app.isAssessed());
+            assertEquals("summary-customer-review-" + i, app.getReview().getId());
+        }
+
+        // customer + applications + reviews, no assessments
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    public void applicationPagesFollowTheKeyset() {
+        insertCustomer("paged-customer", APP_COUNT);
+
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+        assertEquals(0, repo.countApplications("paged-customer", null));
+        assertTrue(repo.linkApplicationsToCustomers() >= APP_COUNT);
+        assertEquals(0, repo.linkApplicationsToCustomers());
+        assertEquals(APP_COUNT, repo.countApplications("paged-customer", null));
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < APP_COUNT; i++) expected.add("app " + i);
+        Collections.sort(expected);
+
+        List<String> ascending = walk(repo, Collections.singletonList("name"), true);
+        assertEquals(expected, ascending);
+        List<String> descending = walk(repo, Arrays.asList("stereotype", "name"), false);
+        Collections.reverse(descending);
+        assertEquals(expected, descending);
+
+        // without a cursor the page is found by skipping
+        KeysetPage<Applications> skipped = repo.findApplications("paged-customer", null,
+                KeysetRequest.of(Collections.singletonList("name"), true, null, 7, 7));
+        assertEquals(expected.get(7), skipped.getContent().get(0).getName());
+        assertEquals("paged-customer-review-" + skipped.getContent().get(0).getId().substring("paged-customer-app-".length()),
+                skipped.getContent().get(0).getReview().getId());
+
+        // "app 1" and "app 10" to "app 19"
+        assertEquals(11, repo.countApplications("paged-customer", Criteria.where("name").regex("^app 1")));
+    }
+
+    @Test
+    public void plainApplicationListKeepsTheCustomersOrder() {
+        insertCustomer("ordered-customer", 12);
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+        repo.linkApplicationsToCustomers();
+
+        List<String> ids = new ArrayList<>();
+        for (Applications app : repo.findApplicationsInListOrder("ordered-customer", null)) ids.add(app.getId());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) expected.add("ordered-customer-app-" + i);
+        // by name "app 10" and "app 11" would come before "app 2"
+        assertEquals(expected, ids);
+
+        List<Applications> filtered = repo.findApplicationsInListOrder("ordered-customer", Criteria.where("name").is("app 3"));
+        assertEquals(1, filtered.size());
+        assertEquals("ordered-customer-app-3", filtered.get(0).getId());
+    }
+
+    private static List<String> walk(CustomerRepositoryImpl repo, List<String> sort, boolean ascending) {
+        List<String> names = new ArrayList<>();
+        String after = null;
+        do {
+            KeysetPage<Applications> page = repo.findApplications("paged-customer", null, KeysetRequest.of(sort, ascending, after, 0, 7));
+            assertTrue(page.getContent().size() <= 7);
+            for (Applications app : page.getContent()) names.add(app.getName());
+            after = page.getNext();
+        } while (after != null);
+        return names;
+    }
+
+    @Test
+    public void partialUpdatesLeaveTheSummaryAlone() {
+        insertCustomer("partial-customer", 2);
+        template.updateFirst(Query.query(Criteria.where("_id").is("partial-customer")),
+                Update.update("summary", new CustomerSummary(2, 2, 2, 2, 0)), Customer.class);
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+
+        // a concurrent $inc made between reading the customer and writing it back
+        template.updateFirst(Query.query(Criteria.where("_id").is("partial-customer")), new Update().inc("summary.applications", 1), Customer.class);
+
+        Customer details = new Customer();
+        details.setId("partial-customer");
+        details.setName("renamed");
+        details.setVertical("FINANCE");
+        assertTrue(repo.updateDetails(details));
+
+        Applications app = new Applications();
+        app.setId("partial-customer-app-new");
+        app.setName("new app");
+        template.insert(app);
+        assertTrue(repo.addApplication("partial-customer", app));
+
+        Customer loaded = repo.findOneWithApplications("partial-customer");
+        assertEquals("renamed", loaded.getName());
+        assertEquals("FINANCE", loaded.getVertical());
+        assertEquals(3, loaded.getSummary().getApplications());
+        assertEquals(3, loaded.getApplications().size());
+        assertEquals("partial-customer-app-new", loaded.getApplications().get(2).getId());
+
+        details.setId("no-such-customer");
+        assertFalse(repo.updateDetails(details));
+        assertFalse(repo.addApplication("no-such-customer", app));
+    }
+
+    @Test
+    public void memberChangesLeaveTheSummaryAndApplicationsAlone() {
+        insertCustomer("members-customer", 2);
+        template.updateFirst(Query.query(Criteria.where("_id").is("members-customer")),
+                Update.update("summary", new CustomerSummary(2, 2, 2, 2, 0)), Customer.class);
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+
+        List<Member> members = new ArrayList<>();
+        for (String username : Arrays.asList("members-customer-a", "members-customer-b", "members-customer-c")) {
+            Member member = new Member();
+            member.setUsername(username);
+            member.setCustomerId("members-customer");
+            template.insert(member);
+            assertTrue(repo.addMember("members-customer", member));
+            members.add(member);
+        }
+        // a concurrent $inc and $push made between reading the customer and writing it back
+        template.updateFirst(Query.query(Criteria.where("_id").is("members-customer")), new Update().inc("summary.applications", 1), Customer.class);
+        Applications app = new Applications();
+        app.setId("members-customer-app-new");
+        app.setName("new app");
+        template.insert(app);
+        assertTrue(repo.addApplication("members-customer", app));
+
+        assertEquals(2, repo.removeMembers("members-customer", Arrays.asList("members-customer-a", "members-customer-c", "not-a-member")));
+        assertEquals(0, repo.removeMembers("members-customer", Collections.singletonList("members-customer-a")));
+
+        Customer loaded = repo.findOneWithApplications("members-customer");
+        assertEquals(1, loaded.getMembers().size());
+        assertEquals("members-customer-b", loaded.getMembers().get(0).getUsername());
+        assertEquals(3, loaded.getSummary().getApplications());
+        assertEquals(3, loaded.getApplications().size());
+
+        assertFalse(repo.addMember("no-such-customer", members.get(0)));
+        assertEquals(0, repo.removeMembers("no-such-customer", Collections.singletonList("members-customer-b")));
+    }
+
+    @Test
+    public void forEachApplicationWalksBatchesWithLatestAssessmentOnly() {
+        int appCount = CustomerRepositoryImpl.EXPORT_BATCH_SIZE * 2 + 10;
+        insertCustomer("export-customer", appCount);
+
+        CustomerRepositoryImpl repo = new CustomerRepositoryImpl(template);
+        queries.set(0);
+
+        List<Applications> seen = new ArrayList<>();
+        repo.forEachApplication("export-customer", true, seen::add);
+        assertEquals(appCount, seen.size());
+        for (int i = 0; i < appCount; i++) {
+            Applications app = seen.get(i);
+            assertEquals("export-customer-app-" + i, app.getId());
+            assertEquals(1, app.getAssessments().size());
+            assertEquals("export-customer-assm-new-" + i, app.getAssessments().get(0).getId());
+            assertEquals("export-customer-assm-new-" + i, app.getReview().getAssessments().getId());
+        }
+
+        // customer, then applications + reviews + assessments per batch
+        assertEquals(1 + 3 * 3, queries.get());
+
+        Customer shallow = repo.findOneWithoutApplications("export-customer");
+        assertEquals("export-customer", shallow.getName());
+        assertNull(shallow.getApplications());
+    }
+}
@@ -0,0 +1,147 @@
+package com.redhat.gps.pathfinder.repository;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Member;
+import org.bson.BsonDocument;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the hot queries against the embedded mongo and checks explain() picks an index rather than a COLLSCAN.
+ */
+public class IndexRegistryTest {
+
+    private static final AtomicReference<BsonDocument> lastFilter = new AtomicReference<>();
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo().onCommandStarted(event -> {
+        // remember the filter of the last query so it can be explained
+        if ("find".equals(event.getCommandName())) lastFilter.set(event.getCommand().getDocument("filter", new BsonDocument()));
+        if ("count".equals(event.getCommandName())) lastFilter.set(event.getCommand().getDocument("query", new BsonDocument()));
+    });
+
+    private static MongoTemplate template;
+    private static IndexRegistry registry;
+
+    @BeforeClass
+    public static void setUp() {
+        template = mongo.template("pathfinder-index-test");
+        registry = new IndexRegistry(template);
+    }
+
+    @Before
+    public void resetDatabase() {
+        template.getDb().dropDatabase();
+    }
+
+    private static List<String> stages(DBObject plan, List<String> result) {
+        result.add((String) plan.get("stage"));
+        if (plan.containsField("inputStage")) stages((DBObject) plan.get("inputStage"), result);
+        if (plan.containsField("inputStages")) for (Object s : (List<?>) plan.get("inputStages")) stages((DBObject) s, result);
+        return result;
+    }
+
+    private static void assertIndexed(Class<?> type, DBObject query) {
+        DBObject explain = template.getCollection(template.getCollectionName(type)).find(query).explain();
+        List<String> stages = stages((DBObject) ((DBObject) explain.get("queryPlanner")).get("winningPlan"), new ArrayList<>());
+        assertFalse(stages.contains("COLLSCAN"), "COLLSCAN for " + query + " on " + type.getSimpleName() + ": " + stages);
+        assertTrue(stages.contains("IXSCAN"), "no index used for " + query + " on " + type.getSimpleName() + ": " + stages);
+    }
+
+    private static DBObject lastQuery() {
+        return BasicDBObject.parse(lastFilter.get().toJson());
+    }
+
+    @Test
+    public void ensureIndexesCreatesMissingIndexesAndReportsDrift() {
+        IndexRegistry.Drift first = registry.ensureIndexes();
+        assertEquals(IndexRegistry.INDEXES.size(), first.getCreated().size());
+        assertTrue(first.isClean());
+
+        IndexRegistry.Drift second = registry.ensureIndexes();
+        assertTrue(second.getCreated().isEmpty());
+        assertTrue(second.isClean());
+
+        template.getCollection(template.getCollectionName(Customer.class)).createIndex(new BasicDBObject("vertical", 1));
+        template.getCollection(template.getCollectionName(Member.class)).dropIndex("member_customerId");
+        template.getCollection(template.getCollectionName(Member.class)).createIndex(new BasicDBObject("customerId", -1), "member_customerId");
+        IndexRegistry.Drift drifted = registry.ensureIndexes();
+        assertTrue(drifted.getCreated().isEmpty());
+        assertEquals(Arrays.asList("customer.vertical_1"), drifted.getUnexpected());
+        assertEquals(1, drifted.getMismatched().size());
+        assertTrue(drifted.getMismatched().get(0).startsWith("member.member_customerId"));
+    }
+
+    @Test
+    public void hotRepositoryQueriesUseAnIndex() {
+        registry.ensureIndexes();
+        MongoRepositoryFactory factory = new MongoRepositoryFactory(template);
+
+        CustomerRepository custRepo = factory.getRepository(CustomerRepository.class, new CustomerRepositoryImpl(template));
+        custRepo.countByName("Acme");
+        assertIndexed(Customer.class, lastQuery());
+
+        MembersRepository membersRepo = factory.getRepository(MembersRepository.class);
+        membersRepo.findByCustomerId("cust-1");
+        assertIndexed(Member.class, lastQuery());
+
+        // import name collision check
+        assertIndexed(Customer.class, new BasicDBObject("name", new BasicDBObject("$in", Arrays.asList("Acme", "Acme_1"))));
+        // reverse lookups through the DBRefs
+        assertIndexed(Customer.class, new BasicDBObject("Applications.$id", "app-1"));
+        assertIndexed(Applications.class, new BasicDBObject("review.$id", new BasicDBObject("$in", Arrays.asList("review-1", "review-2"))));
+        assertIndexed(Applications.class, new BasicDBObject("Assessments.$id", "assm-1"));
+        assertIndexed(ApplicationAssessmentReview.class, new BasicDBObject("Assessments.$id", "assm-1"));
+        assertIndexed(Applications.class, new BasicDBObject("stereotype", "TARGETAPP").append("name", "Online Ticker"));
+    }
+
+    @Test
+    public void customerGridSortsUseAnIndex() {
+        registry.ensureIndexes();
+        for (String column : Arrays.asList("name", "description", "vertical")) {
+            DBObject sort = new BasicDBObject(column, 1).append("_id", 1);
+            DBObject explain = template.getCollection(template.getCollectionName(Customer.class)).find().sort(sort).limit(11).explain();
+            List<String> stages = stages((DBObject) ((DBObject) explain.get("queryPlanner")).get("winningPlan"), new ArrayList<>());
+            assertFalse(stages.contains("SORT"), "in memory sort on " + sort + ": " + stages);
+            assertTrue(stages.contains("IXSCAN"), "no index used for " + sort + ": " + stages);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.CustomerSummary;
+import com.redhat.gps.pathfinder.service.util.JsonCodec;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class ApplicationBulkServiceTest {
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo();
+
+    private static MongoTemplate template;
+    private static ApplicationBulkService service;
+
+    @BeforeClass
+    public static void setUp() {
+        template = mongo.template("pathfinder-bulk-test");
+        service = new ApplicationBulkService(template, new JsonCodec(new ObjectMapper()),
+                new CustomerSummaryService(template, null), new DomainCacheService(template, null, null));
+    }
+
+    private static void insertCustomer(String custId) {
+        Customer customer = new Customer();
+        customer.setId(custId);
+        customer.setName(custId);
+        customer.setSummary(new CustomerSummary(0, 0, 0, 0, 0));
+        customer.setApplications(new ArrayList<>());
+        template.insert(customer);
+    }
+
+    private static List<Map<String, String>> read(String payload, MediaType contentType) throws IOException {
+        return service.read(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), contentType);
+    }
+
+    @Test
+    public void csvUploadIsInsertedAndAttached() throws IOException {
+        insertCustomer("csv-customer");
+        StringBuilder csv = new StringBuilder("Name,Description,Owner,Stereotype\n");
+        int count = ApplicationBulkService.BATCH_SIZE + 10;
+        for (int i = 0; i < count; i++) csv.append("app ").append(i).append(",desc,owner,").append(i % 2 == 0 ? "TARGETAPP" : "dependency").append('\n');
+
+        List<String> ids = service.create("csv-customer", read(csv.toString(), ApplicationBulkService.TEXT_CSV));
+
+        assertEquals(count, ids.size());
+        Customer customer = template.findById("csv-customer", Customer.class);
+        assertEquals(count, customer.getApplications().size());
+        assertEquals(ids.get(0), customer.getApplications().get(0).getId());
+        assertEquals(count, customer.getSummary().getApplications());
+        Applications app = template.findById(ids.get(1), Applications.class);
+        assertEquals("app 1", app.getName());
+        assertEquals("DEPENDENCY", app.getStereotype());
+        assertEquals("csv-customer", app.getCustomerId());
+    }
+
+    @Test
+    public void invalidRowCreatesNothing() throws IOException {
+        insertCustomer("json-customer");
+        String payload = "[{\"Name\":\"good\",\"Stereotype\":\"TARGETAPP\"},{\"Name\":\"bad\",\"Stereotype\":\"NOPE\"},{\"Stereotype\":\"PROFILE\"}]";
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.create("json-customer", read(payload, MediaType.APPLICATION_JSON)));
+
+        assertTrue(e.getMessage().contains("row 2"), e.getMessage());
+        assertTrue(e.getMessage().contains("row 3"), e.getMessage());
+        assertEquals(0, template.count(query(where("customerId").is("json-customer")), Applications.class));
+        assertTrue(template.findById("json-customer", Customer.class).getApplications().isEmpty());
+    }
+}
@@ -0,0 +1,220 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.config.ApplicationProperties;
+import com.redhat.gps.pathfinder.domain.ApplicationAssessmentReview;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.CustomerSummary;
+import com.redhat.gps.pathfinder.domain.Job;
+import com.redhat.gps.pathfinder.domain.Member;
+import com.redhat.gps.pathfinder.web.api.security.JwtUserDetailsCache;
+import io.github.jhipster.config.JHipsterProperties;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class CascadeDeleteServiceTest {
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo();
+
+    private static MongoTemplate template;
+    private static JobService jobs;
+    private static JwtUserDetailsCache userDetailsCache;
+    private static CascadeDeleteService service;
+
+    @BeforeClass
+    public static void setUp() {
+        template = mongo.template("pathfinder-delete-test");
+        jobs = new JobService(template, mongo.dbFactory("pathfinder-delete-test"), new JHipsterProperties(), new MetricRegistry());
+        userDetailsCache = new JwtUserDetailsCache(new ApplicationProperties());
+        service = new CascadeDeleteService(template, new CustomerSummaryService(template, null), new DomainCacheService(template, null, null),
+                userDetailsCache, jobs);
+    }
+
+    @AfterClass
+    public static void stopJobs() {
+        if (jobs != null) jobs.stop();
+    }
+
+    private static void insertCustomer(String custId, int appCount) {
+        Customer customer = new Customer();
+        customer.setId(custId);
+        customer.setName(custId);
+        customer.setSummary(new CustomerSummary(appCount, appCount, appCount, appCount, 1));
+        List<Applications> apps = new ArrayList<>();
+        for (int i = 0; i < appCount; i++) {
+            Assessments assessment = new Assessments();
+            assessment.setId(custId + "-assm-" + i);
+            assessment.getResults().put("DEVOWNER", "4-GREEN");
+            template.insert(assessment);
+
+            ApplicationAssessmentReview review = new ApplicationAssessmentReview("0", assessment, "REHOST", "SMALL", "notes", "1", "1");
+            review.setId(custId + "-review-" + i);
+            template.insert(review);
+
+            Applications app = new Applications();
+            app.setId(custId + "-app-" + i);
+            app.setName("app " + i);
+            app.setStereotype("TARGETAPP");
+            app.setCustomerId(custId);
+            app.setAssessments(new ArrayList<>(Collections.singletonList(assessment)));
+            app.setReview(review);
+            template.insert(app);
+            apps.add(app);
+        }
+        Member member = new Member();
+        member.setUsername(custId + "-member");
+        member.setCustomerId(custId);
+        template.insert(member);
+        customer.setMembers(new ArrayList<>(Collections.singletonList(member)));
+        customer.setApplications(apps);
+        template.insert(customer);
+    }
+
+    private static long count(Class<?> type, String custId) {
+        return template.count(query(where("_id").regex("^" + custId + "-")), type);
+    }
+
+    @Test
+    public void deletingApplicationsPullsThemAndTheirDescendants() {
+        insertCustomer("apps-customer", 5);
+
+        assertEquals(CascadeDeleteService.Outcome.DELETED,
+                service.deleteApplications(null, "apps-customer", Arrays.asList("apps-customer-app-1", "apps-customer-app-3")).getOutcome());
+
+        Customer customer = template.findById("apps-customer", Customer.class);
+        assertEquals(3, customer.getApplications().size());
+        assertEquals(3, customer.getSummary().getApplications());
+        assertEquals(3, customer.getSummary().getReviewed());
+        assertEquals(3, count(Applications.class, "apps-customer"));
+        assertEquals(3, count(Assessments.class, "apps-customer"));
+        assertEquals(3, count(ApplicationAssessmentReview.class, "apps-customer"));
+        assertNull(template.findById("apps-customer-app-1", Applications.class));
+    }
+
+    @Test
+    public void unknownApplicationDeletesNothing() {
+        insertCustomer("unknown-app-customer", 2);
+
+        assertEquals(CascadeDeleteService.Outcome.NOT_FOUND,
+                service.deleteApplications(null, "unknown-app-customer", Arrays.asList("unknown-app-customer-app-0", "no-such-app")).getOutcome());
+        assertEquals(CascadeDeleteService.Outcome.NOT_FOUND,
+                service.deleteApplications(null, "no-such-customer", Collections.singletonList("unknown-app-customer-app-0")).getOutcome());
+
+        assertEquals(2, template.findById("unknown-app-customer", Customer.class).getApplications().size());
+        assertEquals(2, count(Applications.class, "unknown-app-customer"));
+    }
+
+    @Test
+    public void deletingCustomersRemovesTheWholeGraph() {
+        insertCustomer("graph-customer-a", 3);
+        insertCustomer("graph-customer-b", 2);
+
+        assertEquals(CascadeDeleteService.Outcome.DELETED, service.deleteCustomers(null, Arrays.asList("graph-customer-a", "graph-customer-b")).getOutcome());
+
+        for (String custId : Arrays.asList("graph-customer-a", "graph-customer-b")) {
+            assertNull(template.findById(custId, Customer.class));
+            assertEquals(0, count(Member.class, custId));
+            assertEquals(0, count(Applications.class, custId));
+            assertEquals(0, count(Assessments.class, custId));
+            assertEquals(0, count(ApplicationAssessmentReview.class, custId));
+        }
+    }
+
+    @Test
+    public void deletingCustomersDropsTheirMembersCachedTokens() {
+        insertCustomer("token-customer", 1);
+        Date expiry = new Date(System.currentTimeMillis() + 60000);
+        String removed = JwtUserDetailsCache.keyOf("removed.token.sig");
+        String kept = JwtUserDetailsCache.keyOf("kept.token.sig");
+        userDetailsCache.put(removed, new User("token-customer-member", "secret", Collections.emptyList()), expiry);
+        userDetailsCache.put(kept, new User("someone-else", "secret", Collections.emptyList()), expiry);
+
+        assertEquals(CascadeDeleteService.Outcome.DELETED, service.deleteCustomers(null, Collections.singletonList("token-customer")).getOutcome());
+
+        assertNull(userDetailsCache.get(removed));
+        assertEquals("someone-else", userDetailsCache.get(kept).getUsername());
+    }
+
+    @Test
+    public void deletingACustomerKeepsTheMembersItOnlyReferences() {
+        insertCustomer("owner-customer", 1);
+        insertCustomer("referring-customer", 1);
+        // an imported copy whose username was taken still lists the original's member
+        Customer referring = template.findById("referring-customer", Customer.class);
+        referring.getMembers().add(template.findById("owner-customer-member", Member.class));
+        template.save(referring);
+        Date expiry = new Date(System.currentTimeMillis() + 60000);
+        String owned = JwtUserDetailsCache.keyOf("owned.token.sig");
+        userDetailsCache.put(owned, new User("owner-customer-member", "secret", Collections.emptyList()), expiry);
+
+        assertEquals(CascadeDeleteService.Outcome.DELETED, service.deleteCustomers(null, Collections.singletonList("referring-customer")).getOutcome());
+
+        assertEquals(0, count(Member.class, "referring-customer"));
+        assertNotNull(template.findById("owner-customer-member", Member.class));
+        assertEquals(1, template.findById("owner-customer", Customer.class).getMembers().size());
+        assertEquals("owner-customer-member", userDetailsCache.get(owned).getUsername());
+    }
+
+    @Test
+    public void largeDeleteRunsAsAJob() throws InterruptedException {
+        // each application brings an assessment and a review, so this is over the threshold
+        int apps = CascadeDeleteService.BACKGROUND_THRESHOLD / 2;
+        insertCustomer("job-customer", apps);
+
+        CascadeDeleteService.Result result = service.deleteCustomers("admin", Collections.singletonList("job-customer"));
+        assertEquals(CascadeDeleteService.Outcome.ACCEPTED, result.getOutcome());
+        // the customer has gone straight away, the rest goes with the job
+        assertNull(template.findById("job-customer", Customer.class));
+
+        Job job = result.getJob();
+        for (int i = 0; i < 300 && !job.getStatus().isFinished(); i++) {
+            Thread.sleep(100);
+            job = jobs.find(job.getId());
+        }
+        assertEquals(Job.Status.SUCCEEDED, job.getStatus());
+        assertEquals("admin", job.getOwner());
+        assertEquals(0, count(Applications.class, "job-customer"));
+        assertEquals(0, count(Assessments.class, "job-customer"));
+        assertEquals(0, count(ApplicationAssessmentReview.class, "job-customer"));
+    }
+}
@@ -0,0 +1,154 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Member;
+import com.redhat.gps.pathfinder.repository.CustomerRepository;
+import com.redhat.gps.pathfinder.repository.CustomerRepositoryImpl;
+import com.redhat.gps.pathfinder.service.util.JsonCodec;
+import io.github.jhipster.config.JHipsterProperties;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+public class CustomerImportServiceTest {
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo();
+
+    private static MongoTemplate template;
+    private static JobService jobs;
+    private static CustomerExportService exporter;
+    private static CustomerImportService importer;
+
+    @BeforeClass
+    public static void setUp() {
+        template = mongo.template("pathfinder-import-test");
+        jobs = new JobService(template, mongo.dbFactory("pathfinder-import-test"), new JHipsterProperties(), new MetricRegistry());
+        JsonCodec json = new JsonCodec(new ObjectMapper());
+        CustomerRepository custRepo = new MongoRepositoryFactory(template)
+                .getRepository(CustomerRepository.class, new CustomerRepositoryImpl(template));
+        exporter = new CustomerExportService(custRepo, json, jobs);
+        importer = new CustomerImportService(template, json, new AssessmentDigestService(template, null),
+                new DomainCacheService(template, null, null), jobs);
+    }
+
+    @AfterClass
+    public static void stopJobs() {
+        if (jobs != null) jobs.stop();
+    }
+
+    private static void insertCustomer(String custId, int appCount) {
+        List<Applications> apps = new ArrayList<>();
+        for (int i = 0; i < appCount; i++) {
+            Applications app = new Applications();
+            app.setId(custId + "-app-" + i);
+            app.setName("app " + i);
+            app.setCustomerId(custId);
+            template.insert(app);
+            apps.add(app);
+        }
+        Member member = new Member();
+        member.setUsername(custId + "-member");
+        member.setCustomerId(custId);
+        template.insert(member);
+
+        Customer customer = new Customer();
+        customer.setId(custId);
+        customer.setName(custId);
+        customer.setApplications(apps);
+        customer.setMembers(new ArrayList<>(Collections.singletonList(member)));
+        template.insert(customer);
+    }
+
+    private static byte[] export(String custId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(Collections.singletonList(custId), out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void reimportingAnExportedCustomerGivesItANewIdAndName() throws Exception {
+        insertCustomer("exported", 3);
+
+        List<String> imported = importer.importCustomers(new ByteArrayInputStream(export("exported")));
+
+        assertEquals(1, imported.size());
+        String newId = imported.get(0);
+        assertNotEquals("exported", newId);
+        Customer copy = template.findById(newId, Customer.class);
+        assertEquals("exported_1", copy.getName());
+        assertEquals(3, copy.getApplications().size());
+        assertEquals(3, copy.getSummary().getApplications());
+        // the member's username is taken by the original, so the copy neither refers to nor counts it
+        assertTrue(null == copy.getMembers() || copy.getMembers().isEmpty());
+        assertEquals(0, copy.getSummary().getMembers());
+        for (Applications app : copy.getApplications()) {
+            assertEquals(newId, app.getCustomerId());
+            assertFalse(app.getId().startsWith("exported-app-"));
+        }
+
+        Customer original = template.findById("exported", Customer.class);
+        assertEquals("exported", original.getName());
+        assertEquals(3, original.getApplications().size());
+        assertEquals(3, template.count(query(where("customerId").is("exported")), Applications.class));
+        assertEquals("exported", template.findById("exported-member", Member.class).getCustomerId());
+    }
+
+    @Test
+    public void aFreeCustomerIdIsKept() throws Exception {
+        insertCustomer("moved", 2);
+        byte[] exported = export("moved");
+        template.remove(query(where("customerId").is("moved")), Applications.class);
+        template.remove(query(where("customerId").is("moved")), Member.class);
+        template.remove(query(where("_id").is("moved")), Customer.class);
+
+        assertEquals(Collections.singletonList("moved"), importer.importCustomers(new ByteArrayInputStream(exported)));
+
+        Customer customer = template.findById("moved", Customer.class);
+        assertEquals("moved", customer.getName());
+        assertEquals(2, customer.getApplications().size());
+        assertEquals("moved-app-0", customer.getApplications().get(0).getId());
+        assertEquals(1, customer.getMembers().size());
+        assertEquals(1, customer.getSummary().getMembers());
+        assertEquals("moved", template.findById("moved-member", Member.class).getCustomerId());
+    }
+}
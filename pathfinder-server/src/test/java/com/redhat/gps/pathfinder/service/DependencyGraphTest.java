@@ -0,0 +1,112 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DependencyGraphTest {
+
+    private static List<String> deps(String... ids) {
+        return Arrays.asList(ids);
+    }
+
+    @Test
+    public void scheduleFollowsOutboundAndInboundDependencies() {
+        // a depends on b (outbound), c is depended on by b (inbound on c), so c -> b -> a
+        DependencyGraph graph = DependencyGraph.build(Arrays.asList("a", "b", "c"),
+                Arrays.asList(deps("b"), null, null),
+                Arrays.asList(null, null, deps("b")));
+        assertEquals(2, graph.edgeCount());
+
+        DependencyGraph.Schedule schedule = graph.schedule(new int[]{10, 20, 40});
+        assertEquals(60, schedule.getStart(0));
+        assertEquals(40, schedule.getStart(1));
+        assertEquals(0, schedule.getStart(2));
+        assertEquals(2, schedule.getWave(0));
+        assertEquals(1, schedule.getWave(1));
+        assertEquals(0, schedule.getWave(2));
+        assertTrue(schedule.getCycles().isEmpty());
+    }
+
+    @Test
+    public void unselectedDependenciesStillPropagateTransitively() {
+        // a -> b -> c with b taking no time, a must still start after c
+        DependencyGraph graph = DependencyGraph.build(Arrays.asList("a", "b", "c"),
+                Arrays.asList(deps("b"), deps("c"), null),
+                Arrays.asList(null, null, null));
+        DependencyGraph.Schedule schedule = graph.schedule(new int[]{10, 0, 40});
+        assertEquals(40, schedule.getStart(0));
+        assertEquals(40, schedule.getStart(1));
+        assertEquals(0, schedule.getStart(2));
+    }
+
+    @Test
+    public void cyclesCollapseIntoOneComponent() {
+        // a <-> b form a cycle, c depends on the cycle; unknown ids and self loops are ignored
+        DependencyGraph graph = DependencyGraph.build(Arrays.asList("a", "b", "c"),
+                Arrays.asList(deps("b", "a", "unknown"), deps("a"), deps("a")),
+                Arrays.asList(null, null, null));
+        assertEquals(3, graph.edgeCount());
+
+        DependencyGraph.Schedule schedule = graph.schedule(new int[]{10, 20, 10});
+        assertEquals(schedule.getComponent(0), schedule.getComponent(1));
+        assertNotEquals(schedule.getComponent(0), schedule.getComponent(2));
+        assertEquals(0, schedule.getStart(0));
+        assertEquals(0, schedule.getStart(1));
+        assertEquals(20, schedule.getStart(2));
+        assertEquals(1, schedule.getWave(2));
+
+        assertEquals(1, schedule.getCycles().size());
+        int[] cycle = schedule.getCycles().get(0).clone();
+        Arrays.sort(cycle);
+        assertArrayEquals(new int[]{0, 1}, cycle);
+    }
+
+    @Test
+    public void longChainDoesNotOverflowTheStack() {
+        int n = 10000;
+        List<String> ids = new ArrayList<>(n);
+        List<List<String>> outbound = new ArrayList<>(n);
+        List<List<String>> inbound = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ids.add("app-" + i);
+            outbound.add(i == 0 ? null : Collections.singletonList("app-" + (i - 1)));
+            inbound.add(null);
+        }
+        int[] sizes = new int[n];
+        Arrays.fill(sizes, 10);
+
+        DependencyGraph.Schedule schedule = DependencyGraph.build(ids, outbound, inbound).schedule(sizes);
+        assertEquals(0, schedule.getStart(0));
+        assertEquals((n - 1) * 10, schedule.getStart(n - 1));
+        assertEquals(n - 1, schedule.getWave(n - 1));
+        assertTrue(schedule.getCycles().isEmpty());
+    }
+}
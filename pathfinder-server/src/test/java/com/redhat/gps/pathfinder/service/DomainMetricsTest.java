@@ -0,0 +1,52 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import io.prometheus.client.CollectorRegistry;
+import org.junit.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DomainMetricsTest {
+
+    @Test
+    public void applicationBucketsIncludeTheirUpperBound() {
+        assertEquals("0-10", DomainMetrics.applicationBucket(0));
+        assertEquals("0-10", DomainMetrics.applicationBucket(10));
+        assertEquals("11-50", DomainMetrics.applicationBucket(11));
+        assertEquals("201-1000", DomainMetrics.applicationBucket(1000));
+        assertEquals("1001+", DomainMetrics.applicationBucket(1001));
+    }
+
+    @Test
+    public void reportBuildsAreObservedUnderTheirBucket() {
+        CollectorRegistry registry = new CollectorRegistry();
+        DomainMetrics metrics = new DomainMetrics(registry);
+        metrics.reportBuilt(11, 2_000_000_000L);
+        metrics.reportBuilt(1001, 1_000_000_000L);
+
+        assertEquals(1.0, registry.getSampleValue("pathfinder_report_build_seconds_count", new String[]{"applications"}, new String[]{"11-50"}).doubleValue());
+        assertEquals(2.0, registry.getSampleValue("pathfinder_report_build_seconds_sum", new String[]{"applications"}, new String[]{"11-50"}).doubleValue());
+        assertEquals(1.0, registry.getSampleValue("pathfinder_report_build_seconds_count", new String[]{"applications"}, new String[]{"1001+"}).doubleValue());
+    }
+}
@@ -0,0 +1,206 @@
+package com.redhat.gps.pathfinder.service;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.codahale.metrics.MetricRegistry;
+import com.mongodb.gridfs.GridFSDBFile;
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.domain.Job;
+import io.github.jhipster.config.JHipsterProperties;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobServiceTest {
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo();
+
+    private static MongoTemplate template;
+    private JobService jobs;
+
+    @BeforeClass
+    public static void setUp() {
+        template = mongo.template("pathfinder-job-test");
+    }
+
+    @Before
+    public void startJobs() {
+        jobs = new JobService(template, mongo.dbFactory("pathfinder-job-test"), new JHipsterProperties(), new MetricRegistry());
+    }
+
+    @After
+    public void stopJobs() {
+        jobs.stop();
+    }
+
+    private static JobHandler handler(String type, boolean restartable, JobHandlerBody body) {
+        return new JobHandler() {
+            @Override
+            public String getType() {
+                return type;
+            }
+
+            @Override
+            public boolean isRestartable() {
+                return restartable;
+            }
+
+            @Override
+            public Object run(Job job, JobContext context) throws Exception {
+                return body.run(job, context);
+            }
+        };
+    }
+
+    private interface JobHandlerBody {
+        Object run(Job job, JobContext context) throws Exception;
+    }
+
+    private Job awaitFinished(String id) throws InterruptedException {
+        Job job = jobs.find(id);
+        for (int i = 0; i < 300 && !job.getStatus().isFinished(); i++) {
+            Thread.sleep(100);
+            job = jobs.find(id);
+        }
+        return job;
+    }
+
+    /**
+     * A job as left behind by an instance that went away without releasing it
+     */
+    private static Job abandoned(String type, Job.Status status) {
+        Job job = new Job();
+        job.setId(UUID.randomUUID().toString());
+        job.setType(type);
+        job.setStatus(status);
+        job.setInstance("instance-that-went-away");
+        job.setCreated(new Date(0));
+        job.setHeartbeat(new Date(System.currentTimeMillis() - JobService.ABANDONED_AFTER_MILLIS - 1000));
+        template.insert(job);
+        return job;
+    }
+
+    @Test
+    public void submittedJobRunsWithItsInputAndKeepsItsOutput() throws Exception {
+        jobs.register(handler("echo", true, (job, context) -> {
+            try (InputStream in = context.openInput(); OutputStream out = context.createOutput("echo.txt", "text/plain")) {
+                IOUtils.copy(in, out);
+            }
+            return job.getParameters().get("reply");
+        }));
+
+        Job submitted = jobs.submit("echo", "admin", "customer-1", Collections.singletonMap("reply", "done"),
+                new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(Job.Status.QUEUED, submitted.getStatus());
+
+        Job job = awaitFinished(submitted.getId());
+        assertEquals(Job.Status.SUCCEEDED, job.getStatus());
+        assertEquals("admin", job.getOwner());
+        assertEquals("customer-1", job.getCustomerId());
+        assertEquals("done", job.getResult());
+        assertNotNull(job.getStarted());
+        assertNotNull(job.getFinished());
+
+        GridFSDBFile output = jobs.openOutput(job);
+        assertEquals("echo.txt", output.getFilename());
+        assertEquals("text/plain", output.getContentType());
+        assertEquals("hello", IOUtils.toString(output.getInputStream(), StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    public void unknownTypeIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> jobs.submit("no-such-type", "admin", null, null));
+    }
+
+    @Test
+    public void runningJobStopsAtItsNextProgressOnceCancelled() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        jobs.register(handler("endless", true, (job, context) -> {
+            started.countDown();
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            for (long done = 0; System.currentTimeMillis() < deadline; done++) {
+                context.progress(done, 0);
+                Thread.sleep(50);
+            }
+            return "not cancelled";
+        }));
+
+        Job submitted = jobs.submit("endless", "admin", null, null);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(jobs.cancel(submitted.getId()).isCancelRequested());
+
+        Job job = awaitFinished(submitted.getId());
+        assertEquals(Job.Status.CANCELLED, job.getStatus());
+        assertNull(job.getResult());
+        assertNull(jobs.openOutput(job));
+    }
+
+    @Test
+    public void abandonedJobIsRunAgainWhenItsHandlerIsRestartable() throws Exception {
+        jobs.register(handler("restartable", true, (job, context) -> "run again"));
+        Job queued = abandoned("restartable", Job.Status.QUEUED);
+        Job running = abandoned("restartable", Job.Status.RUNNING);
+
+        jobs.start();
+
+        for (Job abandoned : new Job[]{queued, running}) {
+            Job job = awaitFinished(abandoned.getId());
+            assertEquals(Job.Status.SUCCEEDED, job.getStatus());
+            assertEquals("run again", job.getResult());
+            assertNotEquals("instance-that-went-away", job.getInstance());
+        }
+    }
+
+    @Test
+    public void abandonedRunningJobFailsWhenItsHandlerIsNotRestartable() throws Exception {
+        jobs.register(handler("once-only", false, (job, context) -> "run again"));
+        Job queued = abandoned("once-only", Job.Status.QUEUED);
+        Job running = abandoned("once-only", Job.Status.RUNNING);
+
+        jobs.start();
+
+        // a queued job never started, so it's safe to run whatever its handler
+        assertEquals(Job.Status.SUCCEEDED, awaitFinished(queued.getId()).getStatus());
+        Job job = awaitFinished(running.getId());
+        assertEquals(Job.Status.FAILED, job.getStatus());
+        assertEquals("Interrupted, the instance running it went away", job.getMessage());
+        assertNull(job.getResult());
+    }
+}
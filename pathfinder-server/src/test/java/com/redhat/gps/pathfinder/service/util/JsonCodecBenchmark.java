@@ -0,0 +1,110 @@
+package com.redhat.gps.pathfinder.service.util;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of building a codehaus ObjectMapper (Json.newObjectMapper) versus reusing the cached JsonCodec writer,
+ * on a payload shaped like the viewAssessmentSummary response. The GC profiler reports the allocation per call.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.redhat.gps.pathfinder.service.util.JsonCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    public static class AssessmentLine {
+        private final String question;
+        private final String answer;
+        private final String rating;
+
+        public AssessmentLine(String question, String answer, String rating) {
+            this.question = question;
+            this.answer = answer;
+            this.rating = rating;
+        }
+
+        public String getQuestion() {
+            return question;
+        }
+
+        public String getAnswer() {
+            return answer;
+        }
+
+        public String getRating() {
+            return rating;
+        }
+    }
+
+    private List<AssessmentLine> payload;
+    private JsonCodec codec;
+
+    @Setup
+    public void setup() {
+        payload = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            payload.add(new AssessmentLine("Question number " + i + "?", "Answer text for question " + i, i % 3 == 0 ? "RED" : "GREEN"));
+        codec = new JsonCodec(new ObjectMapper().registerModule(new AfterburnerModule()));
+    }
+
+    @Benchmark
+    public String newObjectMapperPerRequest() throws IOException {
+        return Json.newObjectMapper(true).writeValueAsString(payload);
+    }
+
+    @Benchmark
+    public String cachedWriter() throws IOException {
+        return codec.writeValueAsString(payload);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JsonCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
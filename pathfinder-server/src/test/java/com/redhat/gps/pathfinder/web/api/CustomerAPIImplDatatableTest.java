@@ -0,0 +1,64 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Malformed grid parameters are the client's mistake, they're refused before anything is looked up
+ */
+public class CustomerAPIImplDatatableTest {
+
+    private static CustomerAPIImpl api;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        api = new CustomerAPIImpl(null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private static Map<String, String> params(String name, String value) {
+        Map<String, String> params = new HashMap<>();
+        params.put("draw", "1");
+        params.put(name, value);
+        return params;
+    }
+
+    @Test
+    public void nonNumericParameterIsABadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST, api.customersDatatable(params("length", "ten")).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, api.customersCustIdApplicationsDatatable("cust-1", null, null, params("start", "x")).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, api.customersCustIdApplicationAssessmentSummaryDatatable("cust-1", params("draw", "?")).getStatusCode());
+    }
+
+    @Test
+    public void malformedCursorIsABadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST, api.customersDatatable(params("after", "not a cursor")).getStatusCode());
+    }
+}
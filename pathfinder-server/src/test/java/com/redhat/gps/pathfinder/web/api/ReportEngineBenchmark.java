@@ -0,0 +1,188 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2020 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Joiner;
+import com.redhat.gps.pathfinder.QuestionProcessor;
+import com.redhat.gps.pathfinder.domain.Applications;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the original getReport() aggregation loop with ReportEngine on synthetic customers.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.redhat.gps.pathfinder.web.api.ReportEngineBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReportEngineBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int applicationCount;
+
+    private CompiledSurvey survey;
+    private List<Applications> applications;
+
+    @Setup
+    public void setup() throws IOException {
+        String rawQuestionsJson = IOUtils.toString(ReportEngineBenchmark.class.getResourceAsStream("/questions/base-questions-data-default.json"), StandardCharsets.UTF_8.name());
+        String questionsJsonSchema = IOUtils.toString(ReportEngineBenchmark.class.getResourceAsStream("/questions/question-schema.json"), StandardCharsets.UTF_8.name());
+        survey = CompiledSurvey.compile(new QuestionProcessor().GenerateSurveyPages(rawQuestionsJson, "", questionsJsonSchema));
+
+        Random random = new Random(42);
+        applications = new ArrayList<>(applicationCount);
+        for (int i = 0; i < applicationCount; i++) {
+            HashMap<String, String> results = new HashMap<>();
+            for (int q = 0; q < survey.size(); q++) {
+                int choice = random.nextInt(survey.getChoiceCount(q));
+                results.put(survey.getName(q), survey.getOrdinal(q, choice) + "-" + survey.getRating(q, choice));
+            }
+            Assessments assessment = new Assessments();
+            assessment.setResults(results);
+            List<Assessments> assessments = new ArrayList<>();
+            assessments.add(assessment);
+
+            Applications app = new Applications();
+            app.setName("app-" + i);
+            app.setAssessments(assessments);
+            applications.add(app);
+        }
+
+        if (!legacy().equals(engine()))
+            throw new IllegalStateException("ReportEngine output differs from the original implementation");
+    }
+
+    @Benchmark
+    public Set<String> legacy() {
+        return legacyReport(survey, applications);
+    }
+
+    @Benchmark
+    public Set<String> engine() {
+        ReportEngine.Report report = new ReportEngine(survey).build(applications);
+        Set<String> result = new HashSet<>();
+        result.add(report.getAssessmentSummary().toString());
+        // include serialization of the risk app lists since that's where the joining now happens
+        for (ReportEngine.Risk risk : report.getRisks()) result.add(risk.getQ() + "|" + risk.getA() + "|" + risk.getApps());
+        return result;
+    }
+
+    /**
+     * The aggregation loop as it was in CustomerAPIImpl.getReport() before ReportEngine, reduced to the same flattened output
+     */
+    private static Set<String> legacyReport(CompiledSurvey survey, List<Applications> applications) {
+        Map<String, Integer> overallStatusCount = new HashMap<>();
+        overallStatusCount.put("GREEN", 0);
+        overallStatusCount.put("AMBER", 0);
+        overallStatusCount.put("RED", 0);
+        int assessmentTotal = 0;
+        Map<String, String[]> risks2 = new HashMap<>();
+
+        for (Applications app : applications) {
+            if (null == app.getAssessments()) continue;
+            Assessments assessment = app.getAssessments().get(app.getAssessments().size() - 1);
+
+            Map<String, Map<String, String>> questionKeyToText = new QuestionReader<Map<String, Map<String, String>>>().read(new HashMap<>(),
+                    survey,
+                    assessment,
+                    (result1, name, answerOrdinal, answerRating, answerText, questionText) -> {
+                        Map<String, String> m = new HashMap<>();
+                        m.put("questionText", questionText);
+                        m.put("answerText", answerText);
+                        result1.put(name, m);
+                    });
+
+            String assessmentOverallStatus = "GREEN";
+            int mediumCount = 0;
+            for (Map.Entry<String, String> e : assessment.getResults().entrySet()) {
+                if (e.getValue().contains("NOTESONPAGE"))
+                    continue;
+
+                if (e.getValue().contains("-RED")) {
+                    assessmentOverallStatus = "RED";
+                    String riskQuestionAnswerKey = e.getKey() + e.getValue();
+                    if (!risks2.containsKey(riskQuestionAnswerKey)) {
+                        Map<String, String> text = questionKeyToText.get(e.getKey());
+                        if (null != text)
+                            risks2.put(riskQuestionAnswerKey, new String[]{text.get("questionText"), text.get("answerText"), app.getName()});
+                    } else {
+                        String[] risk = risks2.get(riskQuestionAnswerKey);
+                        risk[2] = Joiner.on(", ").join(risk[2], app.getName());
+                    }
+                }
+                if (e.getValue().contains("-AMBER"))
+                    mediumCount = mediumCount + 1;
+
+                double percentageOfAmbers = (double) mediumCount / (double) assessment.getResults().size();
+                double threshold = 0.3;
+                if ("GREEN".equals(assessmentOverallStatus) && percentageOfAmbers > threshold) {
+                    assessmentOverallStatus = "AMBER";
+                }
+            }
+            assessmentTotal = assessmentTotal + 1;
+            overallStatusCount.put(assessmentOverallStatus, overallStatusCount.get(assessmentOverallStatus) + 1);
+        }
+
+        Map<String, Double> summary = new LinkedHashMap<>();
+        summary.put("Easy", (double) overallStatusCount.get("GREEN"));
+        summary.put("Medium", (double) overallStatusCount.get("AMBER"));
+        summary.put("Hard", (double) overallStatusCount.get("RED"));
+        summary.put("Total", (double) assessmentTotal);
+        Set<String> result = new HashSet<>();
+        result.add(summary.toString());
+        for (String[] risk : risks2.values()) result.add(risk[0] + "|" + risk[1] + "|" + risk[2]);
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ReportEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
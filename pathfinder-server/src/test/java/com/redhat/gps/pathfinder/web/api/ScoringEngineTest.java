@@ -0,0 +1,176 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2019 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.QuestionProcessor;
+import com.redhat.gps.pathfinder.domain.AssessmentAnswers;
+import com.redhat.gps.pathfinder.domain.Assessments;
+import com.redhat.gps.pathfinder.domain.QuestionMetaData;
+import com.redhat.gps.pathfinder.domain.QuestionWeights;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScoringEngineTest {
+
+    private CompiledSurvey survey;
+
+    @Before
+    public void setup() throws Exception {
+        String rawQuestionsJson = IOUtils.toString(ScoringEngineTest.class.getResourceAsStream("/questions/base-questions-data-default.json"), StandardCharsets.UTF_8.name());
+        String questionsJsonSchema = IOUtils.toString(ScoringEngineTest.class.getResourceAsStream("/questions/question-schema.json"), StandardCharsets.UTF_8.name());
+        survey = CompiledSurvey.compile(new QuestionProcessor().GenerateSurveyPages(rawQuestionsJson, "", questionsJsonSchema));
+    }
+
+    /**
+     * @return answers for the first questions of the survey that have a choice with each rating, in that order
+     */
+    private LinkedHashMap<String, String> answers(String... ratings) {
+        LinkedHashMap<String, String> results = new LinkedHashMap<>();
+        int q = 0;
+        for (String rating : ratings) {
+            for (; q < survey.size(); q++) {
+                int choice = choiceRated(q, rating);
+                if (choice < 0) continue;
+                results.put(survey.getName(q), survey.getOrdinal(q, choice) + "-" + rating);
+                q++;
+                break;
+            }
+        }
+        assertEquals(ratings.length, results.size(), "survey has too few questions for the test");
+        return results;
+    }
+
+    private int choiceRated(int q, String rating) {
+        for (int c = 0; c < survey.getChoiceCount(q); c++) {
+            if (rating.equals(survey.getRating(q, c))) return c;
+        }
+        return -1;
+    }
+
+    private static Assessments legacy(Map<String, String> results) {
+        Assessments assessment = new Assessments();
+        // linked, to keep the answer order
+        assessment.setResults(new LinkedHashMap<>(results));
+        return assessment;
+    }
+
+    private Assessments encoded(Map<String, String> results) {
+        Assessments assessment = new Assessments();
+        assessment.setAnswers(AssessmentAnswers.encode(survey, results));
+        return assessment;
+    }
+
+    /**
+     * The confidence calculation as it was written before it was compiled: REDs first, then the rest in order
+     */
+    private static int reference(List<String> ratings) {
+        Map<String, Integer> weightMap = new HashMap<>();
+        weightMap.put("RED", 1);
+        weightMap.put("UNKNOWN", 700);
+        weightMap.put("AMBER", 800);
+        weightMap.put("GREEN", 1000);
+
+        List<String> ordered = new ArrayList<>();
+        for (String r : ratings) if ("RED".equals(r)) ordered.add(r);
+        for (String r : ratings) if (!"RED".equals(r)) ordered.add(r);
+
+        double adjuster = Math.pow(0.5, Collections.frequency(ordered, "RED")) * Math.pow(0.98, Collections.frequency(ordered, "AMBER"));
+        double confidence = 0;
+        for (String rating : ordered) {
+            if ("RED".equals(rating)) confidence = confidence * 0.6;
+            if ("AMBER".equals(rating)) confidence = confidence * 0.95;
+            confidence += weightMap.get(rating) * adjuster;
+        }
+        return (int) (confidence / (1000d * ordered.size()) * 100);
+    }
+
+    @Test
+    public void allGreenIsFullConfidence() {
+        ScoringEngine.Score score = ScoringEngine.unweighted(survey).score(legacy(answers("GREEN", "GREEN", "GREEN")));
+        assertEquals(100, score.getConfidence());
+        assertEquals(3, score.getGreen());
+        assertEquals(ScoringEngine.GREEN, score.getRag());
+    }
+
+    @Test
+    public void unweightedMatchesTheReferenceCalculation() {
+        String[] ratings = {"GREEN", "AMBER", "RED", "UNKNOWN", "GREEN", "AMBER", "RED", "GREEN"};
+        ScoringEngine engine = ScoringEngine.unweighted(survey);
+        int expected = reference(Arrays.asList(ratings));
+
+        ScoringEngine.Score fromResults = engine.score(legacy(answers(ratings)));
+        ScoringEngine.Score fromEncoded = engine.score(encoded(answers(ratings)));
+        assertEquals(expected, fromResults.getConfidence());
+        assertEquals(expected, fromEncoded.getConfidence());
+        assertEquals(2, fromEncoded.getRed());
+        assertEquals(2, fromEncoded.getAmber());
+        assertEquals(3, fromEncoded.getGreen());
+        assertEquals(1, fromEncoded.getUnknown());
+        assertEquals(ScoringEngine.RED, fromEncoded.getRag());
+    }
+
+    @Test
+    public void questionWeightsScaleTheirAnswers() {
+        LinkedHashMap<String, String> results = answers("GREEN", "AMBER");
+        String amberQuestion = new ArrayList<>(results.keySet()).get(1);
+        int amberOrdinal = Integer.parseInt(results.get(amberQuestion).substring(0, results.get(amberQuestion).indexOf('-')));
+
+        QuestionMetaData metadata = new QuestionMetaData();
+        metadata.setId(amberQuestion);
+        List<QuestionWeights> weights = new ArrayList<>();
+        for (int i = 0; i <= amberOrdinal; i++) {
+            QuestionWeights w = new QuestionWeights();
+            w.setWeight(4);
+            weights.add(w);
+        }
+        metadata.setMetaData(weights);
+
+        int unweighted = ScoringEngine.unweighted(survey).score(legacy(results)).getConfidence();
+        int weighted = ScoringEngine.compile(survey, Collections.singletonList(metadata), 0.3, 1).score(legacy(results)).getConfidence();
+        assertTrue(weighted < unweighted, weighted + " should be below " + unweighted);
+    }
+
+    @Test
+    public void thresholdsDecideTheRagStatus() {
+        LinkedHashMap<String, String> results = answers("RED", "AMBER", "GREEN");
+        assertEquals(ScoringEngine.RED, ScoringEngine.compile(survey, null, 0.3, 1).score(legacy(results)).getRag());
+        assertEquals(ScoringEngine.AMBER, ScoringEngine.compile(survey, null, 0.3, 2).score(legacy(results)).getRag());
+        assertEquals(ScoringEngine.GREEN, ScoringEngine.compile(survey, null, 0.5, 2).score(legacy(results)).getRag());
+
+        Assessments unanswered = new Assessments();
+        assertEquals(0, ScoringEngine.unweighted(survey).score(unanswered).getConfidence());
+        assertEquals(ScoringEngine.GREEN, ScoringEngine.unweighted(survey).score(unanswered).getRag());
+    }
+}
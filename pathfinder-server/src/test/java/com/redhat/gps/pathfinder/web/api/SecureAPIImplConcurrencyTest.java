@@ -0,0 +1,108 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.domain.Customer;
+import com.redhat.gps.pathfinder.domain.Member;
+import com.redhat.gps.pathfinder.repository.MembersRepository;
+import com.redhat.gps.pathfinder.web.api.security.MemberUserDetails;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many members hitting one shared controller instance in parallel; every decision must match the member making that request.
+ */
+public class SecureAPIImplConcurrencyTest {
+    private static final int USERS = 32;
+    private static final int THREADS = 16;
+    private static final int REQUESTS = 20000;
+
+    private static Member member(int i) {
+        Member m = new Member();
+        m.setUsername("user" + i);
+        m.setCustomerId("cust" + i);
+        m.setRoles(Collections.singletonList(i % 8 == 0 ? "SUPER" : "ADMIN"));
+        return m;
+    }
+
+    private static Customer customer(int i) {
+        Customer c = new Customer();
+        c.setId("cust" + i);
+        return c;
+    }
+
+    @Test
+    public void authorizationNeverLeaksBetweenConcurrentUsers() throws Exception {
+        MembersRepository membersRepo = mock(MembersRepository.class);
+        when(membersRepo.findOne(anyString())).thenAnswer(inv -> member(Integer.parseInt(((String) inv.getArguments()[0]).substring(4))));
+        SecureAPIImpl api = new SecureAPIImpl(membersRepo);
+
+        AtomicInteger wrongDecisions = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int r = 0; r < REQUESTS; r++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int user = random.nextInt(USERS);
+                RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+                // half the requests look like they came through the JWT filter, the rest fall back to the repository lookup
+                Object principal = random.nextBoolean() ? new MemberUserDetails(member(user)) : "user" + user;
+                SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, Collections.emptyList()));
+                try {
+                    for (int check = 0; check < 4; check++) {
+                        int target = random.nextInt(USERS);
+                        boolean expected = user % 8 == 0 || target == user;
+                        if (api.isAuthorizedFor(customer(target)) != expected) wrongDecisions.incrementAndGet();
+                    }
+                } finally {
+                    SecurityContextHolder.clearContext();
+                    RequestContextHolder.resetRequestAttributes();
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, wrongDecisions.get());
+    }
+}
@@ -0,0 +1,130 @@
+package com.redhat.gps.pathfinder.web.api;
+
+/*-
+ * #%L
+ * com.redhat.gps.pathfinder.pathfinder-server
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 - 2019 RedHat Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.redhat.gps.pathfinder.EmbeddedMongo;
+import com.redhat.gps.pathfinder.repository.SurveyRegistry;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.data.mongodb.MongoDbFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SurveyEngineTest {
+
+    @ClassRule
+    public static final EmbeddedMongo mongo = new EmbeddedMongo();
+
+    private static MongoDbFactory dbFactory;
+
+    private File customQuestions;
+    private SurveyEngine engine;
+
+    @BeforeClass
+    public static void setUpDatabase() {
+        dbFactory = mongo.dbFactory("pathfinder-survey-test");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        customQuestions = File.createTempFile("custom-questions", ".json");
+        write("custom-question-data-1page-2-valid.json");
+        engine = newEngine();
+    }
+
+    private SurveyEngine newEngine() throws Exception {
+        SurveyEngine result = new SurveyEngine(new SurveyRegistry(dbFactory));
+        ReflectionTestUtils.setField(result, "customQuestionsFileLocation", customQuestions.getAbsolutePath());
+        result.init();
+        return result;
+    }
+
+    @After
+    public void tearDown() {
+        customQuestions.delete();
+    }
+
+    private void write(String testData) throws IOException {
+        try (InputStream in = SurveyEngineTest.class.getResourceAsStream("/test-data/" + testData)) {
+            Files.write(customQuestions.toPath(), IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void reloadSwapsInTheChangedSurvey() throws Exception {
+        SurveyPayload before = engine.current();
+        write("custom-question-data-2page-2-valid.json");
+
+        SurveyPayload after = engine.reload();
+
+        assertNotNull(after);
+        assertSame(after, engine.current());
+        assertNotEquals(before.getCompiledSurvey().getVersion(), after.getCompiledSurvey().getVersion());
+        assertTrue(after.getCompiledSurvey().size() > before.getCompiledSurvey().size());
+        // assessments answered against the previous survey can still be decoded
+        assertSame(before.getCompiledSurvey(), engine.find(before.getCompiledSurvey().getVersion()));
+    }
+
+    @Test
+    public void unchangedFileIsNotReloaded() throws Exception {
+        SurveyPayload before = engine.current();
+        assertNull(engine.reload());
+        assertSame(before, engine.current());
+    }
+
+    @Test
+    public void invalidFileKeepsThePreviousSurvey() throws Exception {
+        SurveyPayload before = engine.current();
+        write("custom-question-data-invalid-values.json");
+
+        assertThrows(org.everit.json.schema.ValidationException.class, () -> engine.reload());
+        assertSame(before, engine.current());
+    }
+
+    @Test
+    public void earlierSurveyIsReadableAfterARestart() throws Exception {
+        CompiledSurvey before = engine.current().getCompiledSurvey();
+        write("custom-question-data-2page-2-valid.json");
+        engine.reload();
+
+        SurveyEngine restarted = newEngine();
+        CompiledSurvey earlier = restarted.find(before.getVersion());
+
+        assertNotEquals(before.getVersion(), restarted.current().getCompiledSurvey().getVersion());
+        assertNotNull(earlier);
+        assertEquals(before.size(), earlier.size());
+        assertEquals(before.getTitle(before.size() - 1), earlier.getTitle(earlier.size() - 1));
+        assertNull(restarted.find("unknown"));
+    }
+}
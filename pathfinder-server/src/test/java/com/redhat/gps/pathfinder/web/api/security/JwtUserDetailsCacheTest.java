@@ -0,0 +1,105 @@
+package com.redhat.gps.pathfinder.web.api.security;
+
+/*-
+ * #%L
+ * Pathfinder
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2018 RedHat
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUserDetailsCacheTest {
+
+    private static final int TTL_SECONDS = 60;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    private static UserDetails user(String username) {
+        return user(username, "ADMIN");
+    }
+
+    private static UserDetails user(String username, String role) {
+        return new User(username, "secret", Collections.singletonList(new SimpleGrantedAuthority(role)));
+    }
+
+    @Test
+    public void cachedUntilTokenExpiry() {
+        JwtUserDetailsCache cache = new JwtUserDetailsCache(TTL_SECONDS, ticker);
+        String live = JwtUserDetailsCache.keyOf("live.token.sig");
+        String expired = JwtUserDetailsCache.keyOf("expired.token.sig");
+
+        cache.put(live, user("alice"), new Date(System.currentTimeMillis() + 60000));
+        cache.put(expired, user("alice"), new Date(System.currentTimeMillis() - 1));
+
+        assertEquals("alice", cache.get(live).getUsername());
+        assertNull(cache.get(expired));
+        assertNull(cache.get(JwtUserDetailsCache.keyOf("unknown.token.sig")));
+    }
+
+    @Test
+    public void invalidatedPerMember() {
+        JwtUserDetailsCache cache = new JwtUserDetailsCache(TTL_SECONDS, ticker);
+        Date expiry = new Date(System.currentTimeMillis() + 60000);
+        cache.put(JwtUserDetailsCache.keyOf("a1"), user("alice"), expiry);
+        cache.put(JwtUserDetailsCache.keyOf("a2"), user("alice"), expiry);
+        cache.put(JwtUserDetailsCache.keyOf("b1"), user("bob"), expiry);
+
+        cache.invalidate("alice");
+
+        assertNull(cache.get(JwtUserDetailsCache.keyOf("a1")));
+        assertNull(cache.get(JwtUserDetailsCache.keyOf("a2")));
+        assertEquals("bob", cache.get(JwtUserDetailsCache.keyOf("b1")).getUsername());
+    }
+
+    @Test
+    public void roleChangeSeenOnceTheEntryExpires() {
+        JwtUserDetailsCache cache = new JwtUserDetailsCache(TTL_SECONDS, ticker);
+        String key = JwtUserDetailsCache.keyOf("a1");
+        Date expiry = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        cache.put(key, user("alice", "ADMIN"), expiry);
+
+        // alice is demoted through another instance, so nothing invalidates this one's entry
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(TTL_SECONDS - 1));
+        assertEquals("ADMIN", cache.get(key).getAuthorities().iterator().next().getAuthority());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertNull(cache.get(key));
+
+        cache.put(key, user("alice", "USER"), expiry);
+        assertEquals("USER", cache.get(key).getAuthorities().iterator().next().getAuthority());
+    }
+}
@@ -168,19 +168,14 @@
 
 	<script>
 		function onDatatableRefresh(json) {
+			// progress is over all the target applications, not just the page on screen
+			var summary = json.summary;
 			console.log("onDatatableRefresh: apps/assessments.length="
-					+ json.length);
-			var assessed = reviewed = 0;
-			for (var i = 0; i < json.length; i++) {
-				if (json[i].Assessed)
-					assessed += 1;
-				if (json[i].ReviewDate != null)
-					reviewed += 1;
-			}
-			setProgress("assessedProgress", json.length <= 0 ? 0
-					: (100 / json.length) * assessed, "Assessed");
-			setProgress("reviewedProgress", json.length <= 0 ? 0
-					: (100 / json.length) * reviewed, "Reviewed");
+					+ summary.targetApplications);
+			setProgress("assessedProgress", summary.targetApplications <= 0 ? 0
+					: (100 / summary.targetApplications) * summary.assessed, "Assessed");
+			setProgress("reviewedProgress", summary.targetApplications <= 0 ? 0
+					: (100 / summary.targetApplications) * summary.reviewed, "Reviewed");
 			buttonEnablement();
 		}
 		$(document)
@@ -190,23 +185,18 @@
 							var dTable = $('#example')
 									.DataTable(
 											{
-												"ajax" : {
-													"url" : Utils.SERVER
-															+ '/api/pathfinder/customers/'
-															+ customerId
-															+ "/applicationAssessmentSummary",
-													"data" : {
-														"_t" : jwtToken
-													},
-													"dataSrc" : "",
-													"dataType" : "json"
-												},
+												// paged on the server, which can only sort on the application name
+												"serverSide" : true,
+												"ajax" : serverSideAjax(Utils.SERVER
+														+ '/api/pathfinder/customers/'
+														+ customerId
+														+ "/applicationAssessmentSummary/datatable"),
 												"fnInitComplete" : function(
 														oSettings, json) { //unfortunately this method isnt called again on ajax refresh, so we have to push the update to another function that can ben called on both init and refresh events
 													onDatatableRefresh(json);
 												},
 												"scrollCollapse" : true,
-												"paging" : false,
+												"paging" : true,
 												"lengthMenu" : [
 														[ 10, 25, 50, 100, 200,
 																-1 ],
@@ -215,9 +205,7 @@
 												"pageLength" : 10, // default page entries
 												"bInfo" : false, // removes "Showing N entries" in the table footer
 												"searching" : false,
-												"order" : [ [ 3, "desc" ],
-														[ 2, "desc" ],
-														[ 1, "asc" ] ], //reviewed, assessed then app name
+												"order" : [ [ 1, "asc" ] ], //app name
 												columns : [ {
 													data : "Id",
 													width : "3%"
@@ -272,7 +260,7 @@
 														},
 														{
 															"targets" : 2,
-															"orderable" : true,
+															"orderable" : false,
 															"render" : function(
 																	data, type,
 																	row) {
@@ -311,7 +299,7 @@
 														},
 														{
 															"targets" : 3,
-															"orderable" : true,
+															"orderable" : false,
 															"render" : function(
 																	data, type,
 																	row) {
@@ -339,9 +327,13 @@
 																}
 															}
 														},
+														{
+															"targets" : 4,
+															"orderable" : false
+														},
 														{
 															"targets" : 5,
-															"orderable" : true,
+															"orderable" : false,
 															"render" : function(
 																	data, type,
 																	row) {
@@ -351,7 +343,7 @@
 														},
 														{
 															"targets" : 6,
-															"orderable" : true,
+															"orderable" : false,
 															"render" : function(
 																	data, type,
 																	row) {
@@ -361,7 +353,7 @@
 														},
 														{
 															"targets" : 7,
-															"orderable" : true,
+															"orderable" : false,
 															"render" : function(
 																	data, type,
 																	row) {
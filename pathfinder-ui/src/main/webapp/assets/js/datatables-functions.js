@@ -45,6 +45,31 @@ function send(action, uri, data){
   };
 }
 
+// ajax settings for a "serverSide" datatable. Paging forward sends back the cursor the server returned with the
+// previous page ("after") so it can carry on from there rather than skip over all the earlier rows
+function serverSideAjax(url){
+  var cursors={}, query=null, nextStart=0;
+  return {
+    "url": url,
+    "dataType": "json",
+    "data": function(d){
+      d._t=jwtToken;
+      // cursors only hold for the order, search and page length they were handed out with
+      var q=JSON.stringify([d.order, d.search.value, d.length]);
+      if (q!=query){
+        cursors={};
+        query=q;
+      }
+      if (undefined!=cursors[d.start]) d.after=cursors[d.start];
+      nextStart=d.start+d.length;
+    },
+    "dataSrc": function(json){
+      if (json.next) cursors[nextStart]=json.next;
+      return json.data;
+    }
+  };
+}
+
 function post(uri, data){
   return send("POST", uri, data);
 }
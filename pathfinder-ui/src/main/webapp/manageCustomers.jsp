@@ -39,20 +39,16 @@
 			$(document).ready(function() {
 				
 					var dTable=$('#example').DataTable( {
-							"ajax": {
-									"url": Utils.SERVER+'/api/pathfinder/customers/',
-									//"beforeSend": function(xhr){
-									//		xhr.setRequestHeader(jwtToken);
-									//},
-									"data":{"_t":jwtToken},
-									"dataSrc": "",
-									"dataType": "json"
-							},
+							// sorted, searched and paged on the server
+							"serverSide": true,
+							"searchDelay": 400,
+							"ajax": serverSideAjax(Utils.SERVER+'/api/pathfinder/customers/datatable'),
 							"fnInitComplete" : function(oSettings, json){ //unfortunately this method isnt called again on ajax refresh, so we have to push the update to another function that can ben called on both init and refresh events
 								onDatatableRefresh(json);
 							},
 							"scrollCollapse": true,
-							"paging":				 false,
+							"paging":				 true,
+							"order": [[1,"asc"]],
 							"lengthMenu": [[10, 25, 50, 100, 200, -1], [10, 25, 50, 100, 200, "All"]], // page entry options
 							"pageLength" : 10, // default page entries
 							"bInfo" : false, // removes "Showing N entries" in the table footer
@@ -37,15 +37,12 @@
 					
 					// ### populate the customer applications in the datatable
 			    $('#example').DataTable( {
-			        "ajax": {
-			            //"url": '${pageContext.request.contextPath}/api/pathfinder/customers/"+request.getParameter("customerId")+"/applications/',
-			            "url": Utils.SERVER+'/api/pathfinder/customers/'+customerId+'/applications/',
-			            "data":{"_t":jwtToken},
-			            "dataSrc": "",
-			            "dataType": "json"
-			        },
+			        // sorted, searched and paged on the server
+			        "serverSide": true,
+			        "searchDelay": 400,
+			        "ajax": serverSideAjax(Utils.SERVER+'/api/pathfinder/customers/'+customerId+'/applications/datatable'),
 			        "scrollCollapse": true,
-			        "paging":         false,
+			        "paging":         true,
 			        "oLanguage": { 
 			        	sSearch: "",             // remove the "Search" label text
 			        	sLengthMenu: "_MENU_" }, // remove the "show X entries" text
@@ -72,6 +69,7 @@
 			        	{ "targets": 2, "orderable": true, "render": function (data,type,row){
 									return row['Stereotype']=="TARGETAPP"?"Assessable Application":"Dependency Only";
 								}},
+			        	{ "targets": [3, 4], "orderable": false },
 			        ],
 			    } );
 			    